@@ -4,6 +4,8 @@ import dev.bakr.library_manager.exceptions.AccessDeniedException;
 import dev.bakr.library_manager.exceptions.ExistsException;
 import dev.bakr.library_manager.exceptions.InvalidInputsException;
 import dev.bakr.library_manager.exceptions.NotFoundException;
+import dev.bakr.library_manager.exceptions.TooManyRequestsException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -58,6 +60,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiErrorDto> handleTooManyRequests(TooManyRequestsException ex) {
+        ApiErrorDto error = new ApiErrorDto(
+                ex.getMessage(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                LocalDateTime.now()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     public ResponseEntity<ApiErrorDto> handleNotSupportedRequest(HttpRequestMethodNotSupportedException ex) {
         ApiErrorDto error = new ApiErrorDto(
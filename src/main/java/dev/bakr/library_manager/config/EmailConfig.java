@@ -14,6 +14,21 @@ public class EmailConfig {
     private String emailUsername;
     @Value("${spring.mail.password}")
     private String emailPassword;
+    // Configurable so that the outbox can be pointed at a local SMTP server (e.g., in tests)
+    @Value("${spring.mail.host:smtp.gmail.com}")
+    private String emailHost;
+    @Value("${spring.mail.port:587}")
+    private int emailPort;
+    @Value("${spring.mail.properties.mail.smtp.auth:true}")
+    private String isSmtpAuthEnabled;
+    @Value("${spring.mail.properties.mail.smtp.starttls.enable:true}")
+    private String isStartTlsEnabled;
+    // Logs the whole SMTP conversation, only for debugging
+    @Value("${spring.mail.properties.mail.debug:false}")
+    private String isMailDebugEnabled;
+    // So that a stuck SMTP server can't hold an outbox batch forever
+    @Value("${spring.mail.properties.mail.smtp.timeout:10000}")
+    private String smtpTimeoutMs;
 
     // About how you are going to go ahead and send a mail from spring to the reader's inbox.
     @Bean
@@ -22,10 +37,10 @@ public class EmailConfig {
         JavaMailSender interface. */
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
         // Set the Gmail's SMTP (Simple Mail Transfer Protocol) server as the host of mailSender for sending emails
-        mailSender.setHost("smtp.gmail.com");
+        mailSender.setHost(emailHost);
         /* Configure the SMTP port (587 is the default for STARTTLS with Gmail). STARTTLS is a command used to upgrade
         an unencrypted connection to a secure (TLS/SSL) connection, within the same port. */
-        mailSender.setPort(587);
+        mailSender.setPort(emailPort);
         mailSender.setUsername(emailUsername);
         mailSender.setPassword(emailPassword);
 
@@ -33,9 +48,12 @@ public class EmailConfig {
         exactly how to behave when sending an email */
         Properties props = mailSender.getJavaMailProperties();
         props.put("mail.transport.protocol", "smtp");
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.debug", "true");
+        props.put("mail.smtp.auth", isSmtpAuthEnabled);
+        props.put("mail.smtp.starttls.enable", isStartTlsEnabled);
+        props.put("mail.debug", isMailDebugEnabled);
+        props.put("mail.smtp.connectiontimeout", smtpTimeoutMs);
+        props.put("mail.smtp.timeout", smtpTimeoutMs);
+        props.put("mail.smtp.writetimeout", smtpTimeoutMs);
 
         return mailSender;
     }
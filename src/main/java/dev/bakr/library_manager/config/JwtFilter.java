@@ -1,9 +1,11 @@
 package dev.bakr.library_manager.config;
 
 import dev.bakr.library_manager.exceptions.InvalidInputsException;
+import dev.bakr.library_manager.model.ReaderPrincipal;
 import dev.bakr.library_manager.service.JwtService;
 import dev.bakr.library_manager.service.MyUserDetailsService;
 import dev.bakr.library_manager.service.TokenBlacklistService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -57,20 +59,30 @@ public class JwtFilter extends OncePerRequestFilter {
 
 
         try {
+            // Verified once here, everything below reads from these claims
+            Claims claims = jwtService.parseClaims(token);
+            username = claims.getSubject();
+
             // Check if token is blacklisted before making the auth token (allowing the user to access the resource)
-            if (tokenBlacklistService.isTokenBlacklisted(token)) {
+            if (tokenBlacklistService.isTokenBlacklisted(claims, token)) {
                 throw new InvalidInputsException(
                         "Token has been invalidated! Login again to receive a new token.");
             }
 
-            username = jwtService.extractUsername(token);
-
             Authentication existingAuth = SecurityContextHolder.getContext().getAuthentication();
 
             if (username != null && existingAuth == null) {
-                UserDetails userDetails = context.getBean(MyUserDetailsService.class).loadUserByUsername(username);
+                MyUserDetailsService userDetailsService = context.getBean(MyUserDetailsService.class);
+                UserDetails userDetails = jwtService.toPrincipal(claims);
+
+                if (userDetails == null) {
+                    // A token from before the rid/enabled claims, it still needs the lookup until it expires
+                    userDetails = userDetailsService.loadUserByUsername(username);
+                } else if (!userDetailsService.isStillActive((ReaderPrincipal) userDetails)) {
+                    throw new InvalidInputsException("This account is no longer active! Login again to receive a new token.");
+                }
 
-                if (jwtService.isTokenValid(token, userDetails)) {
+                if (jwtService.isTokenValid(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -0,0 +1,68 @@
+package dev.bakr.library_manager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// The primary and replica pools behind ReadReplicaRoutingDataSource, only when spring.datasource.replica.url is set
+@Configuration
+@ConditionalOnProperty(name = "spring.datasource.replica.url")
+public class ReadReplicaDataSourceConfig {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primaryDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primaryDataSource.setPoolName("primary");
+        return primaryDataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties dataSourceProperties,
+            @Value("${spring.datasource.replica.url}") String replicaUrl,
+            @Value("${spring.datasource.replica.username:}") String replicaUsername,
+            @Value("${spring.datasource.replica.password:}") String replicaPassword) {
+        HikariDataSource replicaDataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(dataSourceProperties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername.isEmpty() ? dataSourceProperties.determineUsername() : replicaUsername)
+                .password(replicaPassword.isEmpty() ? dataSourceProperties.determinePassword() : replicaPassword)
+                .build();
+        replicaDataSource.setPoolName("replica");
+        // A write that somehow gets routed here fails instead of diverging from the primary
+        replicaDataSource.setReadOnly(true);
+        return replicaDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.replica.read-your-writes-window:5s}") Duration readYourWritesWindow,
+            @Value("${spring.datasource.replica.read-your-writes-maximum-readers:100000}") long maximumRecentWriters) {
+        ReadReplicaRoutingDataSource routingDataSource = new ReadReplicaRoutingDataSource(primaryDataSource,
+                                                                                          replicaDataSource,
+                                                                                          readYourWritesWindow,
+                                                                                          maximumRecentWriters,
+                                                                                          meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        // So the router sees the read-only flag, which JpaTransactionManager sets after getting the connection
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
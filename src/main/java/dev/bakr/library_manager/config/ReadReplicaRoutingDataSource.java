@@ -0,0 +1,78 @@
+package dev.bakr.library_manager.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/* Read-only transactions go to the replica, except for a reader who committed a write in the last `window` (on this
+node). Only works behind a LazyConnectionDataSourceProxy. */
+class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+    private final Cache<Long, Boolean> recentWritersById;
+    private final Counter primaryReads;
+    private final Counter readYourWritesReads;
+    private final Counter replicaReads;
+
+    ReadReplicaRoutingDataSource(DataSource primaryDataSource,
+            DataSource replicaDataSource,
+            Duration readYourWritesWindow,
+            long maximumRecentWriters,
+            MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(PRIMARY, primaryDataSource, REPLICA, replicaDataSource));
+        setDefaultTargetDataSource(primaryDataSource);
+        this.recentWritersById = Caffeine.newBuilder()
+                .maximumSize(maximumRecentWriters)
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+
+        this.primaryReads = meterRegistry.counter("db.routing.connections", "target", "primary");
+        this.readYourWritesReads = meterRegistry.counter("db.routing.connections", "target", "primary_read_your_writes");
+        this.replicaReads = meterRegistry.counter("db.routing.connections", "target", "replica");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long readerId = authenticatedReaderId();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // The window starts when the write is visible, i.e., at the commit
+            if (readerId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWritersById.put(readerId, true);
+                    }
+                });
+            }
+            primaryReads.increment();
+            return PRIMARY;
+        }
+
+        if (readerId != null && recentWritersById.getIfPresent(readerId) != null) {
+            readYourWritesReads.increment();
+            return PRIMARY;
+        }
+        replicaReads.increment();
+        return REPLICA;
+    }
+
+    // No reader on e.g. the login/verification requests and the scheduled jobs
+    private static Long authenticatedReaderId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof ReaderPrincipal readerPrincipal
+                ? readerPrincipal.getId()
+                : null;
+    }
+}
@@ -0,0 +1,10 @@
+package dev.bakr.library_manager.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Turns on the @Scheduled jobs (e.g., the sweep of expired revoked tokens)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
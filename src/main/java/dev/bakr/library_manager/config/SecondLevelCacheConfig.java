@@ -0,0 +1,47 @@
+package dev.bakr.library_manager.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/* The hibernate.* metrics (hits, misses, puts per second-level cache region, ...) come from Spring Boot as soon as
+hibernate.generate_statistics is on. This adds the hit ratio of each region next to them, so that a badly sized region
+shows up right away in /actuator/metrics/hibernate.second.level.cache.hit.ratio?tag=region:books */
+@Configuration
+public class SecondLevelCacheConfig {
+    @Bean
+    public MeterBinder secondLevelCacheHitRatios(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        return meterRegistry -> {
+            for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+                Gauge.builder("hibernate.second.level.cache.hit.ratio", statistics,
+                              stats -> hitRatio(stats.getCacheRegionStatistics(regionName)))
+                        .tag("region", regionName)
+                        .description("Share of the lookups in the region that were hits, since startup")
+                        .register(meterRegistry);
+            }
+            Gauge.builder("hibernate.query.cache.hit.ratio", statistics,
+                          stats -> ratio(stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount()))
+                    .description("Share of the cacheable query executions answered by the query cache, since startup")
+                    .register(meterRegistry);
+        };
+    }
+
+    private static double hitRatio(CacheRegionStatistics regionStatistics) {
+        return regionStatistics == null
+                ? Double.NaN
+                : ratio(regionStatistics.getHitCount(), regionStatistics.getMissCount());
+    }
+
+    // NaN until there is a first lookup
+    private static double ratio(long hitCount, long missCount) {
+        long lookupCount = hitCount + missCount;
+        return lookupCount == 0 ? Double.NaN : (double) hitCount / lookupCount;
+    }
+}
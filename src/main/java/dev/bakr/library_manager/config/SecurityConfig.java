@@ -1,8 +1,10 @@
 package dev.bakr.library_manager.config;
 
 import dev.bakr.library_manager.service.MyUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -36,13 +38,18 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(request ->
-                                               request.requestMatchers("/api/v1/auth/**",
+                                               /* The async dispatch of a streamed response (e.g., the library export)
+                                               belongs to a request that was already authorized */
+                                               request.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                                                       .requestMatchers("/api/v1/auth/**",
                                                                        "/swagger-ui/**",
                                                                        "/swagger-ui.html",
                                                                        "/v3/api-docs/**",
                                                                        "/swagger-resources/**",
                                                                        "/webjars/**"
                                                        ).permitAll()
+                                                       // The job id is the capability (see PurgeJob)
+                                                       .requestMatchers(HttpMethod.GET, "/api/v1/purge-jobs/*").permitAll()
                                                        .anyRequest().authenticated())
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -1,6 +1,7 @@
 package dev.bakr.library_manager.controller;
 
 import dev.bakr.library_manager.requests.LoginReaderDtoRequest;
+import dev.bakr.library_manager.requests.RefreshTokenDtoRequest;
 import dev.bakr.library_manager.requests.RegisterReaderDtoRequest;
 import dev.bakr.library_manager.requests.VerifyReaderDtoRequest;
 import dev.bakr.library_manager.responses.LoginReaderDtoResponse;
@@ -48,16 +49,27 @@ public class AuthController {
     }
 
     @Operation(summary = "Logs in the new reader that has been verified so that he can access the resources")
+    @ApiResponse(responseCode = "429", description = "Too many login attempts (from this address or for this account), or the server is busy")
     @PostMapping("/login")
-    public ResponseEntity<LoginReaderDtoResponse> loginReader(@Valid @RequestBody LoginReaderDtoRequest loginReaderDtoRequest) {
-        LoginReaderDtoResponse loginReaderDtoResponse = authReaderService.loginReader(loginReaderDtoRequest);
+    public ResponseEntity<LoginReaderDtoResponse> loginReader(@Valid @RequestBody LoginReaderDtoRequest loginReaderDtoRequest,
+            HttpServletRequest request) {
+        LoginReaderDtoResponse loginReaderDtoResponse = authReaderService.loginReader(loginReaderDtoRequest,
+                                                                                      request.getRemoteAddr());
         return ResponseEntity.ok(loginReaderDtoResponse);
     }
 
-    @Operation(summary = "Logs the reader out from the application, and that will block his recent JWT")
+    @Operation(summary = "Gives the reader a new JWT (and a new refresh token) for his refresh token, without logging in again")
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginReaderDtoResponse> refreshTokens(@Valid @RequestBody RefreshTokenDtoRequest refreshTokenDtoRequest) {
+        LoginReaderDtoResponse loginReaderDtoResponse = authReaderService.refreshTokens(refreshTokenDtoRequest);
+        return ResponseEntity.ok(loginReaderDtoResponse);
+    }
+
+    @Operation(summary = "Logs the reader out from the application, and that will block his recent JWT (and his refresh token if it's sent)")
     @PostMapping("/logout")
-    public ResponseEntity<String> logoutReader(HttpServletRequest request) {
-        String loggedOutMessage = authReaderService.logoutReader(request);
+    public ResponseEntity<String> logoutReader(HttpServletRequest request,
+            @RequestBody(required = false) RefreshTokenDtoRequest refreshTokenDtoRequest) {
+        String loggedOutMessage = authReaderService.logoutReader(request, refreshTokenDtoRequest);
         return ResponseEntity.ok(loggedOutMessage);
     }
 
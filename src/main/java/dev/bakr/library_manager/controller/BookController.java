@@ -1,19 +1,27 @@
 package dev.bakr.library_manager.controller;
 
 import dev.bakr.library_manager.requests.BookDtoRequest;
+import dev.bakr.library_manager.requests.BooksBatchDtoRequest;
 import dev.bakr.library_manager.requests.ReaderBookDtoRequest;
+import dev.bakr.library_manager.responses.BooksBatchDtoResponse;
 import dev.bakr.library_manager.responses.ReaderBookDtoResponse;
+import dev.bakr.library_manager.responses.ReaderBooksPageDtoResponse;
 import dev.bakr.library_manager.service.BookService;
+import dev.bakr.library_manager.service.LibraryExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping(path = "/api/v1/readers/me")
@@ -27,24 +35,57 @@ import java.util.List;
         @ApiResponse(responseCode = "401", description = "Unauthorized due to invalid inputs or credentials")
 })
 public class BookController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
     private final BookService bookService;
+    private final LibraryExportService libraryExportService;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, LibraryExportService libraryExportService) {
         this.bookService = bookService;
+        this.libraryExportService = libraryExportService;
     }
 
     // For OpenAPI to show more info about a certain request.
-    @Operation(summary = "Gets all books for the logged in reader", description = "Returns the collection of book that the reader has")
+    @Operation(summary = "Gets all books for the logged in reader", description = "Returns the collection of book that the reader has. Pass 'limit' (and then 'after') to walk it page by page; the cursor of the next page comes back in the X-Next-Cursor header")
     @GetMapping(path = "/books")
-    public ResponseEntity<List<ReaderBookDtoResponse>> getReaderBooks() {
-        List<ReaderBookDtoResponse> allBooks = bookService.getReaderBooks();
-        return ResponseEntity.ok(allBooks);
+    public ResponseEntity<List<ReaderBookDtoResponse>> getReaderBooks(@RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        if (limit == null && after == null) {
+            List<ReaderBookDtoResponse> allBooks = bookService.getReaderBooks();
+            return ResponseEntity.ok(allBooks);
+        }
+
+        ReaderBooksPageDtoResponse booksPage = bookService.getReaderBooksPage(limit, after);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (booksPage.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, booksPage.nextCursor());
+        }
+        return response.body(booksPage.books());
+    }
+
+    @Operation(summary = "Exports the whole collection of the logged in reader", description = "Streams every book with its quotes and words as newline-delimited JSON (one book per line)")
+    @GetMapping(path = "/books/export", produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportReaderBooks() {
+        StreamingResponseBody exportedBooks = libraryExportService.exportReaderBooks();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"library.ndjson\"")
+                .body(exportedBooks);
     }
 
-    @Operation(summary = "Gets a certain book by its ID for the logged in reader", description = "Returns the book that has the entered ID")
+    @Operation(summary = "Searches the books of the logged in reader", description = "Matches the title, subtitle, description and author name, and returns the books ordered by relevance (without their quotes and words)")
+    @GetMapping(path = "/books/search")
+    public ResponseEntity<List<ReaderBookDtoResponse>> searchReaderBooks(@RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        List<ReaderBookDtoResponse> matchingBooks = bookService.searchReaderBooks(q, limit);
+        return ResponseEntity.ok(matchingBooks);
+    }
+
+    @Operation(summary = "Gets a certain book by its ID for the logged in reader", description = "Returns the book that has the entered ID. Add ?include=quotes,words to get its quotes and/or words as well")
     @GetMapping(path = "/books/{bookId}")
-    public ResponseEntity<ReaderBookDtoResponse> getReaderBook(@PathVariable Long bookId) {
-        ReaderBookDtoResponse readingCopy = bookService.getReaderBook(bookId);  // this might throw BookNotFoundException
+    public ResponseEntity<ReaderBookDtoResponse> getReaderBook(@PathVariable Long bookId,
+            @RequestParam(required = false) Set<String> include) {
+        ReaderBookDtoResponse readingCopy = bookService.getReaderBook(bookId, include);  // this might throw BookNotFoundException
         return ResponseEntity.status(HttpStatus.OK).body(readingCopy);
     }
 
@@ -55,11 +96,19 @@ public class BookController {
         return ResponseEntity.status(HttpStatus.CREATED).body(newBookMessage);
     }
 
+    @Operation(summary = "Adds many books at once to the collection of the logged in reader", description = "Returns how many books were created, how many were added to the collection, and the ISBNs that were skipped")
+    @PostMapping(path = "/books/batch")
+    public ResponseEntity<BooksBatchDtoResponse> addReaderBooks(@Valid @RequestBody BooksBatchDtoRequest booksBatchDtoRequest) {
+        BooksBatchDtoResponse addedBooksSummary = bookService.addReaderBooks(booksBatchDtoRequest);
+        return ResponseEntity.status(HttpStatus.CREATED).body(addedBooksSummary);
+    }
+
     @Operation(summary = "Updates a certain book by its ID for the logged in reader", description = "Returns the book that was updated with all its info")
     @PutMapping(path = "/books/{bookId}")
     public ResponseEntity<ReaderBookDtoResponse> updateReaderBook(@PathVariable Long bookId,
-            @Valid @RequestBody ReaderBookDtoRequest readerBookDtoRequest) {
-        ReaderBookDtoResponse updatedReadingCopy = bookService.updateReaderBook(bookId, readerBookDtoRequest);
+            @Valid @RequestBody ReaderBookDtoRequest readerBookDtoRequest,
+            @RequestParam(required = false) Set<String> include) {
+        ReaderBookDtoResponse updatedReadingCopy = bookService.updateReaderBook(bookId, readerBookDtoRequest, include);
         return ResponseEntity.ok(updatedReadingCopy);
     }
 
@@ -2,6 +2,7 @@ package dev.bakr.library_manager.controller;
 
 import dev.bakr.library_manager.requests.QuoteDtoRequest;
 import dev.bakr.library_manager.responses.QuoteDtoResponse;
+import dev.bakr.library_manager.responses.QuoteSearchResultDtoResponse;
 import dev.bakr.library_manager.service.QuoteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,7 +16,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
 @RestController
-@RequestMapping(path = "/api/v1/readers/me/books")
+@RequestMapping(path = "/api/v1/readers/me")
 @Tag(name = "Quote")
 // For OpenAPI to update the Swagger UI to show all the returned HTTP status codes
 @ApiResponses(value = {
@@ -32,7 +33,7 @@ public class QuoteController {
     }
 
     @Operation(summary = "Adds a new quote to the quotes collection of the logged in reader")
-    @PostMapping("/{bookId}/quotes")
+    @PostMapping("/books/{bookId}/quotes")
     public ResponseEntity<QuoteDtoResponse> addQuote(@PathVariable Long bookId,
             @Valid @RequestBody QuoteDtoRequest quoteDtoRequest) {
         QuoteDtoResponse addedQuote = quoteService.addQuote(bookId, quoteDtoRequest);
@@ -40,7 +41,7 @@ public class QuoteController {
     }
 
     @Operation(summary = "Finds a certain quote by its id and updates it accordingly")
-    @PutMapping("/{bookId}/quotes/{quoteId}")
+    @PutMapping("/books/{bookId}/quotes/{quoteId}")
     public ResponseEntity<QuoteDtoResponse> updateQuote(@PathVariable Long bookId, @PathVariable Long quoteId,
             @Valid @RequestBody QuoteDtoRequest quoteDtoRequest) {
         QuoteDtoResponse updatedQuote = quoteService.updateQuote(bookId, quoteId, quoteDtoRequest);
@@ -48,7 +49,7 @@ public class QuoteController {
     }
 
     @Operation(summary = "Finds a certain quote by its id and deletes from the list")
-    @DeleteMapping("/{bookId}/quotes/{quoteId}")
+    @DeleteMapping("/books/{bookId}/quotes/{quoteId}")
     public ResponseEntity<String> deleteQuote(@PathVariable Long bookId, @PathVariable Long quoteId) {
         String deletedQuoteMessage = quoteService.deleteQuote(bookId, quoteId);
         return ResponseEntity.ok(deletedQuoteMessage);
@@ -56,16 +57,24 @@ public class QuoteController {
 
 
     @Operation(summary = "Gets a certain quote by its id from the list of quotes")
-    @GetMapping("/{bookId}/quotes/{quoteId}")
+    @GetMapping("/books/{bookId}/quotes/{quoteId}")
     public ResponseEntity<QuoteDtoResponse> getQuote(@PathVariable Long bookId, @PathVariable Long quoteId) {
         QuoteDtoResponse returnedQuote = quoteService.getQuote(bookId, quoteId);
         return ResponseEntity.ok(returnedQuote);
     }
 
     @Operation(summary = "Return all the quotes list for a specified reader")
-    @GetMapping("/{bookId}/quotes")
+    @GetMapping("/books/{bookId}/quotes")
     public ResponseEntity<List<QuoteDtoResponse>> getQuotes(@PathVariable Long bookId) {
         List<QuoteDtoResponse> returnedQuotes = quoteService.getQuotes(bookId);
         return ResponseEntity.ok(returnedQuotes);
     }
+
+    @Operation(summary = "Searches all the quotes of the logged in reader", description = "Every word must match, and \"quoted phrases\" match as phrases. Returns the most relevant quotes first, each with a highlighted snippet")
+    @GetMapping("/quotes/search")
+    public ResponseEntity<List<QuoteSearchResultDtoResponse>> searchQuotes(@RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        List<QuoteSearchResultDtoResponse> matchingQuotes = quoteService.searchQuotes(q, limit);
+        return ResponseEntity.ok(matchingQuotes);
+    }
 }
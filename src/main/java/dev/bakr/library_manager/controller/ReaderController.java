@@ -1,19 +1,29 @@
 package dev.bakr.library_manager.controller;
 
+import dev.bakr.library_manager.responses.PurgeJobDtoResponse;
 import dev.bakr.library_manager.responses.ReaderDtoResponse;
+import dev.bakr.library_manager.service.AccountPurgeService;
 import dev.bakr.library_manager.service.ReaderService;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+
 @RestController
 @RequestMapping(path = "/api/v1")
 public class ReaderController {
     private final ReaderService readerService;
+    private final AccountPurgeService accountPurgeService;
 
-    public ReaderController(ReaderService readerService) {
+    public ReaderController(ReaderService readerService, AccountPurgeService accountPurgeService) {
         this.readerService = readerService;
+        this.accountPurgeService = accountPurgeService;
     }
 
     @GetMapping("/readers/me")
@@ -21,4 +31,20 @@ public class ReaderController {
         ReaderDtoResponse authenticatedReader = readerService.getAuthenticatedReader();
         return ResponseEntity.ok(authenticatedReader);
     }
+
+    @Operation(summary = "Deletes the account of the logged in reader with all its books, quotes and words", description = "The account is disabled right away and its data is deleted in the background. Returns the deletion job, follow its progress at the Location header (no token needed, the token stops working)")
+    @DeleteMapping("/readers/me")
+    public ResponseEntity<PurgeJobDtoResponse> deleteAuthenticatedReader() {
+        PurgeJobDtoResponse purgeJob = accountPurgeService.requestPurge();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/api/v1/purge-jobs/" + purgeJob.jobId()))
+                .body(purgeJob);
+    }
+
+    @Operation(summary = "Gets the progress of an account deletion", description = "Returns the status of the deletion job and how many words, quotes and books it has deleted so far")
+    @GetMapping("/purge-jobs/{jobId}")
+    public ResponseEntity<PurgeJobDtoResponse> getPurgeJob(@PathVariable String jobId) {
+        PurgeJobDtoResponse purgeJob = accountPurgeService.getPurgeJob(jobId);
+        return ResponseEntity.ok(purgeJob);
+    }
 }
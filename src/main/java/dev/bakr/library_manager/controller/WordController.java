@@ -2,6 +2,7 @@ package dev.bakr.library_manager.controller;
 
 import dev.bakr.library_manager.requests.WordDtoRequest;
 import dev.bakr.library_manager.responses.WordDtoResponse;
+import dev.bakr.library_manager.responses.WordSuggestionDtoResponse;
 import dev.bakr.library_manager.service.WordService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,7 +16,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.List;
 
 @RestController
-@RequestMapping(path = "/api/v1/readers/me/books")
+@RequestMapping(path = "/api/v1/readers/me")
 @Tag(name = "Word")
 // For OpenAPI to update the Swagger UI to show all the returned HTTP status codes
 @ApiResponses(value = {
@@ -32,21 +33,21 @@ public class WordController {
     }
 
     @Operation(summary = "Add a new word to the words collection of the reader")
-    @PostMapping("/{bookId}/words")
+    @PostMapping("/books/{bookId}/words")
     public ResponseEntity<WordDtoResponse> addWord(@PathVariable Long bookId, @Valid @RequestBody WordDtoRequest wordDtoRequest) {
         WordDtoResponse addedWord = wordService.addWord(bookId, wordDtoRequest);
         return ResponseEntity.status(HttpStatus.CREATED).body(addedWord);
     }
 
     @Operation(summary = "Update a certain word by it's id")
-    @PutMapping("/{bookId}/words/{wordId}")
+    @PutMapping("/books/{bookId}/words/{wordId}")
     public ResponseEntity<WordDtoResponse> updateWord(@PathVariable Long bookId, @PathVariable Long wordId, @Valid @RequestBody WordDtoRequest wordDtoRequest) {
         WordDtoResponse updatedWord = wordService.updateWord(bookId, wordId, wordDtoRequest);
         return ResponseEntity.ok(updatedWord);
     }
 
     @Operation(summary = "Delete the chosen word from the words collection")
-    @DeleteMapping("/{bookId}/words/{wordId}")
+    @DeleteMapping("/books/{bookId}/words/{wordId}")
     public ResponseEntity<String> deleteWord(@PathVariable Long bookId, @PathVariable Long wordId) {
         String deletedWordMessage = wordService.deleteWord(bookId, wordId);
         return ResponseEntity.ok(deletedWordMessage);
@@ -54,16 +55,24 @@ public class WordController {
 
 
     @Operation(summary = "Extract a certain word by it's it from the words list")
-    @GetMapping("/{bookId}/words/{wordId}")
+    @GetMapping("/books/{bookId}/words/{wordId}")
     public ResponseEntity<WordDtoResponse> getWord(@PathVariable Long bookId, @PathVariable Long wordId) {
         WordDtoResponse returnedWord = wordService.getWord(bookId, wordId);
         return ResponseEntity.ok(returnedWord);
     }
 
     @Operation(summary = "Get the books list for a specified reader")
-    @GetMapping("/{bookId}/words")
+    @GetMapping("/books/{bookId}/words")
     public ResponseEntity<List<WordDtoResponse>> getWords(@PathVariable Long bookId) {
         List<WordDtoResponse> returnedWords = wordService.getWords(bookId);
         return ResponseEntity.ok(returnedWords);
     }
+
+    @Operation(summary = "Suggests words of the logged in reader as they type", description = "Returns the words (from all the books) whose content or translation starts with the prefix")
+    @GetMapping("/words/suggest")
+    public ResponseEntity<List<WordSuggestionDtoResponse>> suggestWords(@RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        List<WordSuggestionDtoResponse> suggestedWords = wordService.suggestWords(prefix, limit);
+        return ResponseEntity.ok(suggestedWords);
+    }
 }
@@ -0,0 +1,15 @@
+package dev.bakr.library_manager.exceptions;
+
+public class TooManyRequestsException extends RuntimeException {
+    // For the Retry-After header
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
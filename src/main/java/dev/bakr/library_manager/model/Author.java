@@ -5,16 +5,24 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
 @Entity
-@Table(name = "authors")
+// Second-level cached like Book
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "authors")
+@Immutable
+@Table(name = "authors", uniqueConstraints = @UniqueConstraint(name = "uk_authors_full_name", columnNames = "full_name"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Author {
+    // Pooled sequence for batch inserts (see Book.id)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "author_id_generator")
+    @SequenceGenerator(name = "author_id_generator", sequenceName = "authors_seq", allocationSize = 50)
     @Column(name = "author_id", updatable = false)
     private Long id;
 
@@ -2,18 +2,31 @@ package dev.bakr.library_manager.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.Immutable;
 
 
 @Entity
-@Table(name = "books")
+/* Shared by every reader and never updated once inserted (@Immutable), so it's READ_ONLY in the second-level cache
+(deleting an orphaned book still works). Region settings in hibernate-cache.conf */
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "books")
+@Immutable
+@Table(name = "books", uniqueConstraints = @UniqueConstraint(name = "uk_books_isbn", columnNames = "isbn"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Book {
+    /* Pooled sequence instead of IDENTITY: Hibernate has to run an IDENTITY insert right away to learn the id, which
+    rules out JDBC batching. MySQL has no sequences, so Hibernate keeps the counter in the single-row books_seq table and
+    reserves 50 ids per round trip (before the transaction takes its connection, see LazyConnectionConfig). */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_id_generator")
+    @SequenceGenerator(name = "book_id_generator", sequenceName = "books_seq", allocationSize = 50)
     @Column(name = "book_id", updatable = false)
     private Long id;
 
@@ -26,7 +39,7 @@ public class Book {
     @Column(name = "description")
     private String description;
 
-    @Column(name = "isbn", nullable = false, unique = true)
+    @Column(name = "isbn", nullable = false)
     private String isbn;
 
     @Column(name = "pages_count", nullable = false)
@@ -41,15 +54,20 @@ public class Book {
     @Column(name = "publishing_year")
     private Integer publishingYear;
 
+    /* SELECT instead of the default JOIN, so that loading a book takes its author/category/publisher from the
+    second-level cache instead of joining their tables every time */
     @ManyToOne
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "author_id")
     private Author author;
 
     @ManyToOne
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "category_id")
     private Category category;
 
     @ManyToOne
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "publisher_id")
     private Publisher publisher;
 
@@ -5,16 +5,24 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
 @Entity
-@Table(name = "categories")
+// Second-level cached like Book
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "categories")
+@Immutable
+@Table(name = "categories", uniqueConstraints = @UniqueConstraint(name = "uk_categories_name", columnNames = "name"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Category {
+    // Pooled sequence for batch inserts (see Book.id)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_id_generator")
+    @SequenceGenerator(name = "category_id_generator", sequenceName = "categories_seq", allocationSize = 50)
     @Column(name = "category_id", updatable = false)
     private Long id;
 
@@ -0,0 +1,48 @@
+package dev.bakr.library_manager.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// One row per cluster-wide job, held by the node that runs it (see JobLeaseService)
+@Entity
+@Table(name = "job_leases")
+@Getter
+@NoArgsConstructor
+public class JobLease implements Persistable<String> {
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "owner", nullable = false)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    // Only the first run of a job inserts its row, afterwards it's taken over with an UPDATE
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean newEntity;
+
+    public JobLease(String jobName, String owner, LocalDateTime leaseUntil) {
+        this.jobName = jobName;
+        this.owner = owner;
+        this.leaseUntil = leaseUntil;
+        this.newEntity = true;
+    }
+
+    @Override
+    public String getId() {
+        return jobName;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+}
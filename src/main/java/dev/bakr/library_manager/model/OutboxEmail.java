@@ -0,0 +1,66 @@
+package dev.bakr.library_manager.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// An email waiting to be sent (see EmailOutboxDispatcher), deleted once sent
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_email_outbox_reader_id", columnList = "reader_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEmail {
+    public static final String PENDING = "PENDING";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "email_id")
+    private Long id;
+
+    @Column(name = "reader_id")
+    private Long readerId;
+
+    @Column(name = "to_email", nullable = false)
+    private String toEmail;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @Column(name = "html_body", nullable = false)
+    private String htmlBody;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    // Pushed forward by the claim lease while a worker is sending it
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public OutboxEmail(Long readerId, String toEmail, String subject, String htmlBody) {
+        this.readerId = readerId;
+        this.toEmail = toEmail;
+        this.subject = subject;
+        this.htmlBody = htmlBody;
+        this.status = PENDING;
+        this.attempts = 0;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+}
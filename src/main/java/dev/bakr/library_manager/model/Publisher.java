@@ -5,16 +5,24 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
 @Entity
-@Table(name = "publishers")
+// Second-level cached like Book
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "publishers")
+@Immutable
+@Table(name = "publishers", uniqueConstraints = @UniqueConstraint(name = "uk_publishers_name", columnNames = "name"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Publisher {
+    // Pooled sequence for batch inserts (see Book.id)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "publisher_id_generator")
+    @SequenceGenerator(name = "publisher_id_generator", sequenceName = "publishers_seq", allocationSize = 50)
     @Column(name = "publisher_id", updatable = false)
     private Long id;
 
@@ -0,0 +1,79 @@
+package dev.bakr.library_manager.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// The id is a bearer capability for GET /purge-jobs/{jobId}, it mustn't be guessable or logged
+@Entity
+@Table(name = "purge_jobs",
+        uniqueConstraints = @UniqueConstraint(name = "uk_purge_jobs_reader_id", columnNames = "reader_id"),
+        indexes = @Index(name = "idx_purge_jobs_status", columnList = "status, updated_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class PurgeJob implements Persistable<String> {
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+
+    @Id
+    @Column(name = "job_id", length = 36)
+    private String id;
+
+    @Column(name = "reader_id", nullable = false)
+    private Long readerId;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "words_deleted", nullable = false)
+    private Long wordsDeleted;
+
+    @Column(name = "quotes_deleted", nullable = false)
+    private Long quotesDeleted;
+
+    @Column(name = "books_deleted", nullable = false)
+    private Long booksDeleted;
+
+    // The error of the last failed attempt, the job is retried on the next run
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity;
+
+    public PurgeJob(Long readerId) {
+        this.id = UUID.randomUUID().toString();
+        this.readerId = readerId;
+        this.status = PENDING;
+        this.wordsDeleted = 0L;
+        this.quotesDeleted = 0L;
+        this.booksDeleted = 0L;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+        this.newEntity = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+}
@@ -1,18 +1,21 @@
 package dev.bakr.library_manager.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import dev.bakr.library_manager.utils.TextNormalizer;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/* In MySQL the primary key is (reader_id, book_id, quote_id), so that a reader's quotes are stored together (V11). quote_id
+is still unique and stays the id here. */
 @Entity
-@Table(name = "quotes")
+@Table(name = "quotes", uniqueConstraints = @UniqueConstraint(name = "uk_quotes_text_hash",
+        columnNames = {"reader_id", "book_id", "text_hash"}))
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class Quote {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,17 +25,36 @@ public class Quote {
     @Column(name = "text", nullable = false)
     private String text;
 
+    // Kept in step with the text by setText(), the unique index on it is the duplicate check (see TextNormalizer)
+    @Column(name = "text_hash", nullable = false, columnDefinition = "char(64)")
+    @Setter(AccessLevel.NONE)
+    private String textHash;
+
     @Column(name = "page_number", nullable = false)
     private Integer pageNumber;
 
-    @ManyToOne
+    /* LAZY so that loading quotes/words in bulk doesn't drag in their ReaderBook (and its Reader and Book) row by row.
+    Reading getReaderBook().getId() on the proxy doesn't hit the database. */
+    @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     @JoinColumns({
-            @JoinColumn(name = "reader_id", referencedColumnName = "reader_id"),
-            @JoinColumn(name = "book_id", referencedColumnName = "book_id")
+            @JoinColumn(name = "reader_id", referencedColumnName = "reader_id", nullable = false),
+            @JoinColumn(name = "book_id", referencedColumnName = "book_id", nullable = false)
     })
     private ReaderBook readerBook;
 
+    public Quote(Long id, String text, Integer pageNumber, ReaderBook readerBook) {
+        this.id = id;
+        setText(text);
+        this.pageNumber = pageNumber;
+        this.readerBook = readerBook;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+        this.textHash = text == null ? null : TextNormalizer.contentHash(text);
+    }
+
     @Override
     public String toString() {
         return "Quote{" +
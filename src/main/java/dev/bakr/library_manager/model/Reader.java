@@ -8,7 +8,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "readers")
+@Table(name = "readers",
+        uniqueConstraints = @UniqueConstraint(name = "uk_readers_username", columnNames = "username"),
+        indexes = @Index(name = "idx_readers_email", columnList = "email"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -1,9 +1,13 @@
 package dev.bakr.library_manager.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -13,14 +17,17 @@ import java.util.List;
 Because we're going to store data based on the relationship between the book and the reader. The entity has two many-To
 -one relationships two achieve the many-to-many between readers and the books*/
 @Entity
-@Table(name = "readers_books")
+@Table(name = "readers_books", indexes = {
+        @Index(name = "idx_readers_books_reader", columnList = "reader_id, adding_date, book_id"),
+        @Index(name = "idx_readers_books_book", columnList = "book_id")
+})
 @Setter
 @Getter
 @NoArgsConstructor
-public class ReaderBook {
+public class ReaderBook implements Persistable<ReaderBookId> {
     @EmbeddedId
 //    @Column(name = "reader_book_id")
-    private ReaderBookId id; // composite PK (reader_id + book_id)
+    private ReaderBookId id; // composite PK (reader_id + book_id), reader first (V11)
 
     /* Many records (rows) of this entity can be associated with one row in the Reader table. One reader entity will
     appear in many rows here by its readerId */
@@ -34,13 +41,14 @@ public class ReaderBook {
     /* Many records (rows) of this entity can be associated with one row in the book table. One book entity will
     appear in many rows here by its bookId */
     @ManyToOne
+    @Fetch(FetchMode.SELECT) // from the second-level cache (see Book)
     @MapsId("bookId") // refers to the bookId from the composite PK (@EmbeddedId)
     /* Specifies the column in this table that will store the foreign key referencing the primary key of the Book entity
     (book_id column in the books table). */
     @JoinColumn(name = "book_id")
     private Book book;
 
-    @Column(name = "adding_date")
+    @Column(name = "adding_date", nullable = false)
     private LocalDate addingDate;
 
     @Column(name = "status", nullable = false)
@@ -55,6 +63,13 @@ public class ReaderBook {
     @OneToMany(mappedBy = "readerBook")
     private List<Word> words;
 
+    /* The composite id is always set by us, so Spring Data can't tell a new ReaderBook from an existing one by looking
+    at the id, and save()/saveAll() would run a SELECT (merge) before every INSERT. This flag tells it up front. */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity;
+
     public ReaderBook(Reader reader, Book book) {
         // creating the composite PK (allowing @MapsId to extract from it)
         this.id = createCompositeKey(reader.getId(), book.getId());
@@ -65,6 +80,18 @@ public class ReaderBook {
         this.leftOffPage = null;
         this.quotes = new ArrayList<>();
         this.words = new ArrayList<>();
+        this.newEntity = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.newEntity = false;
     }
 
     public static ReaderBookId createCompositeKey(Long readerId, Long bookId) {
@@ -7,31 +7,49 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Collection;
 import java.util.Collections;
 
-// holder the entity fields and the UserDetails fields
+/* holder of the reader fields that the security needs (and the UserDetails fields). It's immutable and doesn't keep the
+Reader entity, so nothing in the SecurityContext can trigger a lazy load, and for authenticated requests it's built
+straight from the token claims (see JwtFilter). */
 public class ReaderPrincipal implements UserDetails {
-    private final Reader reader;
+    private static final Collection<? extends GrantedAuthority> AUTHORITIES =
+            Collections.singleton(new SimpleGrantedAuthority("USER"));
+    private final Long id;
+    private final String username;
+    private final String password; // only known on login, null when built from a token
+    private final boolean isEnabled;
 
     public ReaderPrincipal(Reader reader) {
-        this.reader = reader;
+        this(reader.getId(), reader.getUsername(), reader.getPassword(), Boolean.TRUE.equals(reader.getIsEnabled()));
+    }
+
+    public ReaderPrincipal(Long id, String username, boolean isEnabled) {
+        this(id, username, null, isEnabled);
+    }
+
+    private ReaderPrincipal(Long id, String username, String password, boolean isEnabled) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.isEnabled = isEnabled;
     }
 
     public Long getId() {
-        return reader.getId();
+        return id;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.singleton(new SimpleGrantedAuthority("USER"));
+        return AUTHORITIES;
     }
 
     @Override
     public String getPassword() {
-        return reader.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return reader.getUsername();
+        return username;
     }
 
     @Override
@@ -51,10 +69,6 @@ public class ReaderPrincipal implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return reader.getIsEnabled();
-    }
-
-    public Reader getReader() {
-        return this.reader;
+        return isEnabled;
     }
 }
@@ -0,0 +1,61 @@
+package dev.bakr.library_manager.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/* A refresh token (see RefreshTokenService). Only the SHA-256 of the token is stored, so a leaked table can't be used to
+refresh. Every refresh replaces the token with a new one of the same family, and replaced_at marks the old one as used. */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family_id", columnList = "family_id"),
+        @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at")
+})
+@Getter
+@NoArgsConstructor
+public class RefreshToken implements Persistable<String> {
+    @Id
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "reader_id", nullable = false)
+    private Reader reader;
+
+    // All the tokens that came from the same login, so a reused one can revoke the whole chain
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "replaced_at")
+    private LocalDateTime replacedAt;
+
+    // Rows are only ever inserted by save(), this saves the SELECT that save() would run first for an assigned id
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean newEntity;
+
+    public RefreshToken(String tokenHash, Reader reader, String familyId, LocalDateTime expiresAt) {
+        this.tokenHash = tokenHash;
+        this.reader = reader;
+        this.familyId = familyId;
+        this.expiresAt = expiresAt;
+        this.newEntity = true;
+    }
+
+    @Override
+    public String getId() {
+        return tokenHash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+}
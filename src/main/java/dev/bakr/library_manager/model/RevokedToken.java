@@ -0,0 +1,45 @@
+package dev.bakr.library_manager.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/* A logged out token. Only its id (the jti claim, or a SHA-256 of the token for tokens without one) is stored, and the
+row is only needed until the token would have expired anyway (see TokenBlacklistService.sweepExpired). */
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"))
+@Getter
+@NoArgsConstructor
+public class RevokedToken implements Persistable<String> {
+    @Id
+    @Column(name = "token_key", length = 64)
+    private String tokenKey;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Rows are only ever inserted, this saves the SELECT that save() would run first for an assigned id
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean newEntity;
+
+    public RevokedToken(String tokenKey, LocalDateTime expiresAt) {
+        this.tokenKey = tokenKey;
+        this.expiresAt = expiresAt;
+        this.newEntity = true;
+    }
+
+    @Override
+    public String getId() {
+        return tokenKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+}
@@ -1,18 +1,20 @@
 package dev.bakr.library_manager.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import dev.bakr.library_manager.utils.TextNormalizer;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+// Stored by (reader_id, book_id, word_id) in MySQL, like Quote
 @Entity
-@Table(name = "words")
+@Table(name = "words", uniqueConstraints = @UniqueConstraint(name = "uk_words_word_key",
+        columnNames = {"reader_id", "book_id", "word_key"}))
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class Word {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,6 +24,11 @@ public class Word {
     @Column(name = "word_content", nullable = false)
     private String wordContent;
 
+    // Set together with the word by setWordContent(), the unique index on it is the duplicate check (see TextNormalizer)
+    @Column(name = "word_key", nullable = false)
+    @Setter(AccessLevel.NONE)
+    private String wordKey;
+
     @Column(name = "translation", nullable = false)
     private String translation;
 
@@ -31,14 +38,20 @@ public class Word {
     @Column(name = "page_number", nullable = false)
     private Integer pageNumber;
 
-    @ManyToOne
+    // LAZY for the same reason as Quote.readerBook
+    @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     @JoinColumns({
-            @JoinColumn(name = "reader_id", referencedColumnName = "reader_id"),
-            @JoinColumn(name = "book_id", referencedColumnName = "book_id")
+            @JoinColumn(name = "reader_id", referencedColumnName = "reader_id", nullable = false),
+            @JoinColumn(name = "book_id", referencedColumnName = "book_id", nullable = false)
     })
     private ReaderBook readerBook;
 
+    public void setWordContent(String wordContent) {
+        this.wordContent = wordContent;
+        this.wordKey = wordContent == null ? null : TextNormalizer.wordKey(wordContent);
+    }
+
     @Override
     public String toString() {
         return "Word{" +
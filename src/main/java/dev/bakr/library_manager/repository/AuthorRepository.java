@@ -1,12 +1,24 @@
 package dev.bakr.library_manager.repository;
 
 import dev.bakr.library_manager.model.Author;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AuthorRepository extends JpaRepository<Author, Integer> {
+public interface AuthorRepository extends JpaRepository<Author, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Author> findByFullName(String fullName);
+
+    @Query("SELECT a.id FROM Author a WHERE a.fullName = :fullName")
+    Optional<Long> findIdByFullName(String fullName);
+
+    List<Author> findAllByFullNameIn(Collection<String> fullNames);
 }
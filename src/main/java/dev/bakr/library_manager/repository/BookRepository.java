@@ -1,12 +1,26 @@
 package dev.bakr.library_manager.repository;
 
 import dev.bakr.library_manager.model.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Integer> {
+public interface BookRepository extends JpaRepository<Book, Long> {
+    // Cached in the query cache (the matching id) + the second-level cache (the entity), see hibernate-cache.conf
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Book> findByIsbn(String bookIsbn);
+
+    // Just the id, for the ISBN cache (see BookCatalogCache)
+    @Query("SELECT b.id FROM Book b WHERE b.isbn = :bookIsbn")
+    Optional<Long> findIdByIsbn(String bookIsbn);
+
+    List<Book> findAllByIsbnIn(Collection<String> bookIsbns);
 }
@@ -1,13 +1,24 @@
 package dev.bakr.library_manager.repository;
 
 import dev.bakr.library_manager.model.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CategoryRepository extends JpaRepository<Category, Integer> {
+public interface CategoryRepository extends JpaRepository<Category, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Category> findByName(String name);
 
+    @Query("SELECT c.id FROM Category c WHERE c.name = :name")
+    Optional<Long> findIdByName(String name);
+
+    List<Category> findAllByNameIn(Collection<String> names);
 }
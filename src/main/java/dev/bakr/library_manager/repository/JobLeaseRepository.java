@@ -0,0 +1,29 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+    // 1 when the lease was free (expired) or already ours, 0 when another node holds it or the row doesn't exist yet
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLease jl SET jl.owner = :owner, jl.leaseUntil = :leaseUntil " +
+            "WHERE jl.jobName = :jobName AND (jl.leaseUntil < :now OR jl.owner = :owner)")
+    int takeOver(@Param("jobName") String jobName,
+            @Param("owner") String owner,
+            @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE JobLease jl SET jl.leaseUntil = :now WHERE jl.jobName = :jobName AND jl.owner = :owner")
+    int release(@Param("jobName") String jobName, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
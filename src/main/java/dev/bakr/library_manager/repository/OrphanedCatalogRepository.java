@@ -0,0 +1,111 @@
+package dev.bakr.library_manager.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/* The statements of OrphanCollector, over plain JDBC on purpose: the catalog entities are READ_ONLY in the second-level
+cache, and a native bulk statement through Hibernate would empty their whole cache regions on every chunk. The
+collector evicts exactly the rows it deleted instead.
+
+Each statement is its own short transaction and covers at most one chunk of ids. */
+@Repository
+public class OrphanedCatalogRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public OrphanedCatalogRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /* A catalog table and what keeps one of its rows (t) alive. keyColumn is what the in-memory caches are keyed by.
+    The books go first, removing a book can leave its author/category/publisher unreferenced. */
+    public enum CatalogTable {
+        BOOKS("books", "book_id", "isbn", "SELECT 1 FROM readers_books r WHERE r.book_id = t.book_id"),
+        AUTHORS("authors", "author_id", "full_name", "SELECT 1 FROM books b WHERE b.author_id = t.author_id"),
+        CATEGORIES("categories", "category_id", "name", "SELECT 1 FROM books b WHERE b.category_id = t.category_id"),
+        PUBLISHERS("publishers", "publisher_id", "name", "SELECT 1 FROM books b WHERE b.publisher_id = t.publisher_id");
+
+        private final String tableName;
+        private final String idColumn;
+        private final String keyColumn;
+        private final String referenceQuery;
+
+        CatalogTable(String tableName, String idColumn, String keyColumn, String referenceQuery) {
+            this.tableName = tableName;
+            this.idColumn = idColumn;
+            this.keyColumn = keyColumn;
+            this.referenceQuery = referenceQuery;
+        }
+
+        public String tableName() {
+            return tableName;
+        }
+    }
+
+    public record Orphan(Long id, String key) {
+    }
+
+    public long findMaxId(CatalogTable table) {
+        Long maxId = jdbcTemplate.getJdbcTemplate()
+                .queryForObject("SELECT MAX(" + table.idColumn + ") FROM " + table.tableName, Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    // Stamps the unreferenced rows of [fromId, toId] that aren't stamped yet, a row keeps its first orphaned_at
+    public int markUnreferenced(CatalogTable table, long fromId, long toId, LocalDateTime now) {
+        return jdbcTemplate.update("UPDATE " + table.tableName + " t SET orphaned_at = :now " +
+                                           "WHERE t." + table.idColumn + " BETWEEN :fromId AND :toId " +
+                                           "AND t.orphaned_at IS NULL " +
+                                           "AND NOT EXISTS (" + table.referenceQuery + ")",
+                                   new MapSqlParameterSource("now", now)
+                                           .addValue("fromId", fromId)
+                                           .addValue("toId", toId));
+    }
+
+    // The same for a known set of rows (e.g., the books of a deleted account)
+    public int markUnreferenced(CatalogTable table, Collection<Long> ids, LocalDateTime now) {
+        return jdbcTemplate.update("UPDATE " + table.tableName + " t SET orphaned_at = :now " +
+                                           "WHERE t." + table.idColumn + " IN (:ids) " +
+                                           "AND t.orphaned_at IS NULL " +
+                                           "AND NOT EXISTS (" + table.referenceQuery + ")",
+                                   new MapSqlParameterSource("now", now).addValue("ids", ids));
+    }
+
+    // Rows that were orphaned and got picked up again (e.g., the book was added back) start over
+    public int unmarkReferenced(CatalogTable table, long fromId, long toId) {
+        return jdbcTemplate.update("UPDATE " + table.tableName + " t SET orphaned_at = NULL " +
+                                           "WHERE t." + table.idColumn + " BETWEEN :fromId AND :toId " +
+                                           "AND t.orphaned_at IS NOT NULL " +
+                                           "AND EXISTS (" + table.referenceQuery + ")",
+                                   new MapSqlParameterSource("fromId", fromId).addValue("toId", toId));
+    }
+
+    // Over idx_<table>_orphaned_at
+    public List<Orphan> findOrphanedBefore(CatalogTable table, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.query("SELECT " + table.idColumn + ", " + table.keyColumn + " FROM " + table.tableName +
+                                          " WHERE orphaned_at < :cutoff ORDER BY orphaned_at, " + table.idColumn +
+                                          " LIMIT :limit",
+                                  new MapSqlParameterSource("cutoff", cutoff).addValue("limit", limit),
+                                  (resultSet, rowNumber) -> new Orphan(resultSet.getLong(1), resultSet.getString(2)));
+    }
+
+    // Checks again that nothing points to them, the mark can be up to a whole run old
+    public int deleteOrphans(CatalogTable table, Collection<Long> ids, LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + table.tableName + " t " +
+                                           "WHERE t." + table.idColumn + " IN (:ids) " +
+                                           "AND t.orphaned_at < :cutoff " +
+                                           "AND NOT EXISTS (" + table.referenceQuery + ")",
+                                   new MapSqlParameterSource("ids", ids).addValue("cutoff", cutoff));
+    }
+
+    public int unmarkReferenced(CatalogTable table, Collection<Long> ids) {
+        return jdbcTemplate.update("UPDATE " + table.tableName + " t SET orphaned_at = NULL " +
+                                           "WHERE t." + table.idColumn + " IN (:ids) " +
+                                           "AND EXISTS (" + table.referenceQuery + ")",
+                                   new MapSqlParameterSource("ids", ids));
+    }
+}
@@ -0,0 +1,44 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.model.OutboxEmail;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+    @Query("SELECT e.id FROM OutboxEmail e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Limit limit);
+
+    // Only one of the workers racing on the same email gets 1 updated row
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.nextAttemptAt = :leaseEnd, e.attempts = e.attempts + 1 " +
+            "WHERE e.id = :id AND e.status = 'PENDING' AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseEnd") LocalDateTime leaseEnd);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError " +
+            "WHERE e.id = :id")
+    int reschedule(@Param("id") Long id,
+            @Param("status") String status,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError);
+
+    // The body is emptied, it can hold personal data
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxEmail e SET e.status = 'FAILED', e.htmlBody = '', e.nextAttemptAt = :failedAt, " +
+            "e.lastError = :lastError WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("failedAt") LocalDateTime failedAt, @Param("lastError") String lastError);
+
+    long countByStatus(String status);
+}
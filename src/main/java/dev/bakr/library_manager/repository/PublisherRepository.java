@@ -1,12 +1,24 @@
 package dev.bakr.library_manager.repository;
 
 import dev.bakr.library_manager.model.Publisher;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PublisherRepository extends JpaRepository<Publisher, Integer> {
+public interface PublisherRepository extends JpaRepository<Publisher, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Publisher> findByName(String name);
+
+    @Query("SELECT p.id FROM Publisher p WHERE p.name = :name")
+    Optional<Long> findIdByName(String name);
+
+    List<Publisher> findAllByNameIn(Collection<String> names);
 }
@@ -0,0 +1,18 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.model.PurgeJob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PurgeJobRepository extends JpaRepository<PurgeJob, String> {
+    boolean existsByReaderId(Long readerId);
+
+    // The least recently touched first, so a job that keeps failing doesn't hold up the ones behind it
+    @Query("SELECT j FROM PurgeJob j WHERE j.status <> 'DONE' ORDER BY j.updatedAt")
+    List<PurgeJob> findUnfinished(Limit limit);
+}
@@ -3,16 +3,29 @@ package dev.bakr.library_manager.repository;
 import dev.bakr.library_manager.model.Quote;
 import dev.bakr.library_manager.model.ReaderBookId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-@Repository
-public interface QuoteRepository extends JpaRepository<Quote, Long> {
-    @Query("SELECT COUNT(q) > 0 FROM Quote q WHERE q.text = :quoteText AND q.readerBook.id = :readerBookId")
-    boolean existsByTextAndReaderBookId(@Param("quoteText") String quoteText,
-            @Param("readerBookId") ReaderBookId readerBookId);
+import java.util.Collection;
+import java.util.List;
 
+@Repository
+public interface QuoteRepository extends JpaRepository<Quote, Long>, QuoteSearchRepository {
     @Query("SELECT q FROM Quote q WHERE q.id = :quoteId AND q.readerBook.id = :readerBookId")
     Quote findByIdAndReaderBookId(@Param("quoteId") Long quoteId, @Param("readerBookId") ReaderBookId readerBookId);
+
+    @Query("SELECT q FROM Quote q WHERE q.readerBook.id.readerId = :readerId ORDER BY q.id")
+    List<Quote> findAllByReaderId(@Param("readerId") Long readerId);
+
+    @Query("SELECT q FROM Quote q WHERE q.readerBook.id.readerId = :readerId " +
+            "AND q.readerBook.id.bookId IN :bookIds ORDER BY q.id")
+    List<Quote> findAllByReaderIdAndBookIdIn(@Param("readerId") Long readerId,
+            @Param("bookIds") Collection<Long> bookIds);
+
+    // A range of the quotes primary key (reader_id, book_id, quote_id), nothing is loaded
+    @Modifying
+    @Query("DELETE FROM Quote q WHERE q.readerBook.id = :readerBookId")
+    int deleteAllByReaderBookId(@Param("readerBookId") ReaderBookId readerBookId);
 }
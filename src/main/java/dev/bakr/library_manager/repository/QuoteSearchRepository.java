@@ -0,0 +1,14 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.utils.SearchQuery;
+
+import java.util.List;
+
+// Custom part of QuoteRepository (implemented in QuoteSearchRepositoryImpl) for the full-text search
+public interface QuoteSearchRepository {
+    // The reader's quotes that contain every phrase and word of the query, the most relevant first
+    List<QuoteSearchHit> searchQuotes(Long readerId, SearchQuery query, int limit);
+
+    record QuoteSearchHit(Long quoteId, Long bookId, String bookTitle, Integer pageNumber, String text) {
+    }
+}
@@ -0,0 +1,77 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.utils.DatabaseFeatures;
+import dev.bakr.library_manager.utils.SearchQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Locale;
+
+/* On MySQL the search goes through the ft_quotes_text FULLTEXT index (V5) in boolean mode, so phrases are matched as
+phrases and every indexed term is required. The index is maintained by InnoDB on every insert/update/delete of a quote, in the
+same transaction, so there's nothing to rebuild when quotes are added, edited or deleted.
+H2 (the tests), and a query made of stopwords only, fall back to one LIKE per phrase/word. */
+public class QuoteSearchRepositoryImpl implements QuoteSearchRepository {
+    private static final String FULL_TEXT_SEARCH = """
+            SELECT q.quote_id, q.book_id, b.title, q.page_number, q.text
+            FROM quotes q
+            JOIN books b ON b.book_id = q.book_id
+            WHERE q.reader_id = :readerId
+              AND MATCH (q.text) AGAINST (:query IN BOOLEAN MODE)
+            ORDER BY MATCH (q.text) AGAINST (:query IN BOOLEAN MODE) DESC, q.quote_id
+            LIMIT :limit""";
+    private static final String LIKE_SEARCH = """
+            SELECT q.id, rb.id.bookId, b.title, q.pageNumber, q.text
+            FROM Quote q JOIN q.readerBook rb JOIN rb.book b
+            WHERE rb.id.readerId = :readerId""";
+    private final EntityManager entityManager;
+    private final boolean isFullTextSupported;
+
+    public QuoteSearchRepositoryImpl(EntityManager entityManager, DataSource dataSource) throws MetaDataAccessException {
+        this.entityManager = entityManager;
+        this.isFullTextSupported = DatabaseFeatures.isMySql(dataSource);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<QuoteSearchHit> searchQuotes(Long readerId, SearchQuery query, int limit) {
+        String booleanMode = query.toBooleanMode();
+        if (isFullTextSupported && !booleanMode.isEmpty()) {
+            return ((List<Object[]>) entityManager.createNativeQuery(FULL_TEXT_SEARCH)
+                    .setParameter("readerId", readerId)
+                    .setParameter("query", booleanMode)
+                    .setParameter("limit", limit)
+                    .getResultList())
+                    .stream()
+                    .map(QuoteSearchRepositoryImpl::toHit)
+                    .toList();
+        }
+
+        List<String> fragments = query.fragments();
+        StringBuilder likeSearch = new StringBuilder(LIKE_SEARCH);
+        for (int i = 0; i < fragments.size(); i++) {
+            likeSearch.append(" AND LOWER(q.text) LIKE :fragment").append(i).append(" ESCAPE '!'");
+        }
+        likeSearch.append(" ORDER BY q.id");
+
+        TypedQuery<Object[]> likeQuery = entityManager.createQuery(likeSearch.toString(), Object[].class)
+                .setParameter("readerId", readerId)
+                .setMaxResults(limit);
+        for (int i = 0; i < fragments.size(); i++) {
+            String fragment = DatabaseFeatures.escapeLikePattern(fragments.get(i).toLowerCase(Locale.ROOT));
+            likeQuery.setParameter("fragment" + i, "%" + fragment + "%");
+        }
+        return likeQuery.getResultList().stream().map(QuoteSearchRepositoryImpl::toHit).toList();
+    }
+
+    private static QuoteSearchHit toHit(Object[] row) {
+        return new QuoteSearchHit(((Number) row[0]).longValue(),
+                                  ((Number) row[1]).longValue(),
+                                  (String) row[2],
+                                  ((Number) row[3]).intValue(),
+                                  (String) row[4]);
+    }
+}
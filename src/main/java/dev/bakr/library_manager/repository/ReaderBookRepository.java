@@ -2,21 +2,69 @@ package dev.bakr.library_manager.repository;
 
 import dev.bakr.library_manager.model.ReaderBook;
 import dev.bakr.library_manager.model.ReaderBookId;
+import dev.bakr.library_manager.responses.ReaderBookDtoResponse;
 import lombok.NonNull;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ReaderBookRepository extends JpaRepository<ReaderBook, ReaderBookId> {
-    @Query("SELECT COUNT(rb) FROM ReaderBook rb WHERE rb.book.id = :bookId")
-    Long countReadersByBookId(@Param("bookId") Long bookId);
+public interface ReaderBookRepository extends JpaRepository<ReaderBook, ReaderBookId>, ReaderBookSearchRepository {
+    /* The SELECT part shared by the projection queries below. It reads exactly the columns ReaderBookDtoResponse needs
+    in one round trip, instead of hydrating ReaderBook -> Book -> Author/Category/Publisher entity by entity. */
+    String READER_BOOK_VIEW = "SELECT new dev.bakr.library_manager.responses.ReaderBookDtoResponse(" +
+            "b.id, b.title, b.subtitle, b.description, b.isbn, b.pagesCount, b.imageLink, b.printingType, " +
+            "b.publishingYear, a.fullName, c.name, p.name, rb.status, rb.addingDate, rb.leftOffPage) " +
+            "FROM ReaderBook rb JOIN rb.book b LEFT JOIN b.author a LEFT JOIN b.category c LEFT JOIN b.publisher p ";
 
     @NonNull
     Optional<ReaderBook> findById(@NonNull ReaderBookId readerBookId);
 
     boolean existsById(@NonNull ReaderBookId readerBookId);
+
+    @Query("SELECT rb.id.bookId FROM ReaderBook rb WHERE rb.id.readerId = :readerId AND rb.id.bookId IN :bookIds")
+    List<Long> findBookIdsByReaderIdAndBookIdIn(@Param("readerId") Long readerId,
+            @Param("bookIds") Collection<Long> bookIds);
+
+    @Query(READER_BOOK_VIEW + "WHERE rb.id.readerId = :readerId ORDER BY rb.addingDate, rb.id.bookId")
+    List<ReaderBookDtoResponse> findAllViewsByReaderId(@Param("readerId") Long readerId);
+
+    @Query(READER_BOOK_VIEW + "WHERE rb.id.readerId = :readerId ORDER BY rb.addingDate, rb.id.bookId")
+    List<ReaderBookDtoResponse> findFirstViewsPageByReaderId(@Param("readerId") Long readerId, Limit limit);
+
+    // Keyset pagination: continue right after the (addingDate, bookId) pair of the last row the client has seen
+    @Query(READER_BOOK_VIEW + "WHERE rb.id.readerId = :readerId AND (rb.addingDate > :afterDate " +
+            "OR (rb.addingDate = :afterDate AND rb.id.bookId > :afterBookId)) ORDER BY rb.addingDate, rb.id.bookId")
+    List<ReaderBookDtoResponse> findViewsPageByReaderIdAfter(@Param("readerId") Long readerId,
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterBookId") Long afterBookId,
+            Limit limit);
+
+    @Query(READER_BOOK_VIEW + "WHERE rb.id.readerId = :readerId AND rb.id.bookId = :bookId")
+    Optional<ReaderBookDtoResponse> findViewByReaderIdAndBookId(@Param("readerId") Long readerId,
+            @Param("bookId") Long bookId);
+
+    @Query(READER_BOOK_VIEW + "WHERE rb.id.readerId = :readerId AND rb.id.bookId IN :bookIds")
+    List<ReaderBookDtoResponse> findViewsByReaderIdAndBookIdIn(@Param("readerId") Long readerId,
+            @Param("bookIds") Collection<Long> bookIds);
+
+    // Returns the number of updated rows (0 means the book isn't in the reader's collection)
+    @Modifying
+    @Query("UPDATE ReaderBook rb SET rb.status = :status, rb.leftOffPage = :leftOffPage WHERE rb.id = :readerBookId")
+    int updateReadingProgress(@Param("readerBookId") ReaderBookId readerBookId,
+            @Param("status") String status,
+            @Param("leftOffPage") Integer leftOffPage);
+
+    // Returns the number of deleted rows, the quotes and words of the reader book have to be deleted before
+    @Modifying
+    @Query("DELETE FROM ReaderBook rb WHERE rb.id = :readerBookId")
+    int deleteReaderBook(@Param("readerBookId") ReaderBookId readerBookId);
 }
@@ -0,0 +1,9 @@
+package dev.bakr.library_manager.repository;
+
+import java.util.List;
+
+// Custom part of ReaderBookRepository (implemented in ReaderBookSearchRepositoryImpl) for the full-text search
+public interface ReaderBookSearchRepository {
+    // The ids of the reader's books that match the query, the most relevant first
+    List<Long> searchBookIds(Long readerId, String query, int limit);
+}
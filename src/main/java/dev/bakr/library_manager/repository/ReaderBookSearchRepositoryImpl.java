@@ -0,0 +1,64 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.utils.DatabaseFeatures;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Locale;
+
+/* Searches the title, subtitle, description and author name of the reader's books.
+On MySQL it uses the FULLTEXT indexes from V4 (ft_books_title, ft_books_text and ft_authors_full_name). InnoDB updates
+them as part of the transaction that inserts/deletes the book, so a book is searchable as soon as it's added and gone as
+soon as it's deleted. The relevance is the sum of the three MATCH scores, with the title counted twice.
+H2 (the tests) has no MATCH ... AGAINST, so there it falls back to a LIKE over the same columns. */
+public class ReaderBookSearchRepositoryImpl implements ReaderBookSearchRepository {
+    private static final String FULL_TEXT_SEARCH = """
+            SELECT rb.book_id
+            FROM readers_books rb
+            JOIN books b ON b.book_id = rb.book_id
+            LEFT JOIN authors a ON a.author_id = b.author_id
+            WHERE rb.reader_id = :readerId
+              AND (MATCH (b.title, b.subtitle, b.description) AGAINST (:query IN NATURAL LANGUAGE MODE)
+                OR MATCH (a.full_name) AGAINST (:query IN NATURAL LANGUAGE MODE))
+            ORDER BY 2 * MATCH (b.title) AGAINST (:query IN NATURAL LANGUAGE MODE)
+                   + MATCH (b.title, b.subtitle, b.description) AGAINST (:query IN NATURAL LANGUAGE MODE)
+                   + MATCH (a.full_name) AGAINST (:query IN NATURAL LANGUAGE MODE) DESC,
+                     rb.book_id
+            LIMIT :limit""";
+    private static final String LIKE_SEARCH = """
+            SELECT rb.id.bookId FROM ReaderBook rb JOIN rb.book b LEFT JOIN b.author a
+            WHERE rb.id.readerId = :readerId
+              AND (LOWER(b.title) LIKE :pattern ESCAPE '!' OR LOWER(b.subtitle) LIKE :pattern ESCAPE '!'
+                OR LOWER(b.description) LIKE :pattern ESCAPE '!' OR LOWER(a.fullName) LIKE :pattern ESCAPE '!')
+            ORDER BY CASE WHEN LOWER(b.title) LIKE :pattern ESCAPE '!' THEN 0 ELSE 1 END, rb.id.bookId""";
+    private final EntityManager entityManager;
+    private final boolean isFullTextSupported;
+
+    public ReaderBookSearchRepositoryImpl(EntityManager entityManager, DataSource dataSource) throws MetaDataAccessException {
+        this.entityManager = entityManager;
+        this.isFullTextSupported = DatabaseFeatures.isMySql(dataSource);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> searchBookIds(Long readerId, String query, int limit) {
+        if (isFullTextSupported) {
+            return ((List<Number>) entityManager.createNativeQuery(FULL_TEXT_SEARCH)
+                    .setParameter("readerId", readerId)
+                    .setParameter("query", query)
+                    .setParameter("limit", limit)
+                    .getResultList())
+                    .stream()
+                    .map(Number::longValue)
+                    .toList();
+        }
+
+        return entityManager.createQuery(LIKE_SEARCH, Long.class)
+                .setParameter("readerId", readerId)
+                .setParameter("pattern", "%" + DatabaseFeatures.escapeLikePattern(query.toLowerCase(Locale.ROOT)) + "%")
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
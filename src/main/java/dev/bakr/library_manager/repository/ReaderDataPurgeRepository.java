@@ -0,0 +1,93 @@
+package dev.bakr.library_manager.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+// The statements of AccountPurgeService, one chunk each, read with keyset pagination in primary key order
+@Repository
+public class ReaderDataPurgeRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ReaderDataPurgeRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // The tables keyed by (reader_id, book_id, <id>)
+    public enum AnnotationTable {
+        WORDS("words", "word_id"),
+        QUOTES("quotes", "quote_id");
+
+        private final String tableName;
+        private final String idColumn;
+
+        AnnotationTable(String tableName, String idColumn) {
+            this.tableName = tableName;
+            this.idColumn = idColumn;
+        }
+
+        public String tableName() {
+            return tableName;
+        }
+    }
+
+    // Where a chunk of quotes/words ends, FIRST comes before every row
+    public record AnnotationKey(Long bookId, Long id) {
+        public static final AnnotationKey FIRST = new AnnotationKey(0L, 0L);
+    }
+
+    public List<AnnotationKey> findAnnotationKeysAfter(AnnotationTable table, Long readerId, AnnotationKey after,
+            int limit) {
+        return jdbcTemplate.query("SELECT book_id, " + table.idColumn + " FROM " + table.tableName +
+                                          " WHERE reader_id = :readerId AND (book_id > :afterBookId " +
+                                          "OR (book_id = :afterBookId AND " + table.idColumn + " > :afterId)) " +
+                                          "ORDER BY book_id, " + table.idColumn + " LIMIT :limit",
+                                  new MapSqlParameterSource("readerId", readerId)
+                                          .addValue("afterBookId", after.bookId())
+                                          .addValue("afterId", after.id())
+                                          .addValue("limit", limit),
+                                  (resultSet, rowNumber) -> new AnnotationKey(resultSet.getLong(1),
+                                                                              resultSet.getLong(2)));
+    }
+
+    public int deleteAnnotations(AnnotationTable table, Long readerId, Collection<Long> ids) {
+        return jdbcTemplate.update("DELETE FROM " + table.tableName +
+                                           " WHERE reader_id = :readerId AND " + table.idColumn + " IN (:ids)",
+                                   new MapSqlParameterSource("readerId", readerId).addValue("ids", ids));
+    }
+
+    // Only once the reader's quotes and words are gone (they point to readers_books)
+    public List<Long> findBookIdsAfter(Long readerId, Long afterBookId, int limit) {
+        return jdbcTemplate.queryForList("SELECT book_id FROM readers_books WHERE reader_id = :readerId " +
+                                                 "AND book_id > :afterBookId ORDER BY book_id LIMIT :limit",
+                                         new MapSqlParameterSource("readerId", readerId)
+                                                 .addValue("afterBookId", afterBookId)
+                                                 .addValue("limit", limit),
+                                         Long.class);
+    }
+
+    public int deleteReaderBooks(Long readerId, Collection<Long> bookIds) {
+        return jdbcTemplate.update("DELETE FROM readers_books WHERE reader_id = :readerId AND book_id IN (:bookIds)",
+                                   new MapSqlParameterSource("readerId", readerId).addValue("bookIds", bookIds));
+    }
+
+    // A handful of rows per reader, over the index of fk_refresh_token_reader
+    public int deleteRefreshTokens(Long readerId) {
+        return jdbcTemplate.update("DELETE FROM refresh_tokens WHERE reader_id = :readerId",
+                                   new MapSqlParameterSource("readerId", readerId));
+    }
+
+    // Emails still waiting in the outbox (e.g., a verification code) hold the reader's address too
+    public int deleteQueuedEmails(Long readerId) {
+        return jdbcTemplate.update("DELETE FROM email_outbox WHERE reader_id = :readerId",
+                                   new MapSqlParameterSource("readerId", readerId));
+    }
+
+    public int deleteReader(Long readerId) {
+        return jdbcTemplate.update("DELETE FROM readers WHERE reader_id = :readerId",
+                                   new MapSqlParameterSource("readerId", readerId));
+    }
+}
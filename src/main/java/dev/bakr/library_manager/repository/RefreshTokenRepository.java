@@ -0,0 +1,44 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+    // The token and what a new access token needs from its reader, in one primary key lookup
+    @Query("SELECT new dev.bakr.library_manager.repository.RefreshTokenRepository$RefreshTokenView(" +
+            "rt.tokenHash, rt.familyId, rt.expiresAt, rt.replacedAt, r.id, r.username, r.isEnabled) " +
+            "FROM RefreshToken rt JOIN rt.reader r WHERE rt.tokenHash = :tokenHash")
+    Optional<RefreshTokenView> findViewByTokenHash(@Param("tokenHash") String tokenHash);
+
+    // 0 = another request already used this token
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.replacedAt = :now WHERE rt.tokenHash = :tokenHash AND rt.replacedAt IS NULL")
+    int markReplaced(@Param("tokenHash") String tokenHash, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken rt WHERE rt.familyId = :familyId")
+    int deleteByFamilyId(@Param("familyId") String familyId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshToken rt WHERE rt.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    record RefreshTokenView(String tokenHash,
+                            String familyId,
+                            LocalDateTime expiresAt,
+                            LocalDateTime replacedAt,
+                            Long readerId,
+                            String username,
+                            Boolean isEnabled) {
+    }
+}
@@ -2,17 +2,37 @@ package dev.bakr.library_manager.repository;
 
 import dev.bakr.library_manager.model.ReaderBookId;
 import dev.bakr.library_manager.model.Word;
+import dev.bakr.library_manager.responses.WordSuggestionDtoResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface WordRepository extends JpaRepository<Word, Long> {
-    @Query("SELECT COUNT(w) > 0 FROM Word w WHERE w.wordContent = :wordContent AND w.readerBook.id = :readerBookId")
-    boolean existsByWordContentAndReaderBookId(@Param("wordContent") String wordContent,
-            @Param("readerBookId") ReaderBookId readerBookId);
-
     @Query("SELECT w FROM Word w WHERE w.id = :wordId AND w.readerBook.id = :readerBookId")
     Word findByIdAndReaderBookId(@Param("wordId") Long wordId, @Param("readerBookId") ReaderBookId readerBookId);
+
+    @Query("SELECT w FROM Word w WHERE w.readerBook.id.readerId = :readerId ORDER BY w.id")
+    List<Word> findAllByReaderId(@Param("readerId") Long readerId);
+
+    @Query("SELECT w FROM Word w WHERE w.readerBook.id.readerId = :readerId " +
+            "AND w.readerBook.id.bookId IN :bookIds ORDER BY w.id")
+    List<Word> findAllByReaderIdAndBookIdIn(@Param("readerId") Long readerId,
+            @Param("bookIds") Collection<Long> bookIds);
+
+    // Only the columns the suggestion index needs (see WordSuggestionIndex)
+    @Query("SELECT new dev.bakr.library_manager.responses.WordSuggestionDtoResponse(" +
+            "w.id, w.readerBook.id.bookId, w.wordContent, w.translation) " +
+            "FROM Word w WHERE w.readerBook.id.readerId = :readerId")
+    List<WordSuggestionDtoResponse> findAllSuggestionsByReaderId(@Param("readerId") Long readerId);
+
+    // A range of the words primary key (reader_id, book_id, word_id), nothing is loaded
+    @Modifying
+    @Query("DELETE FROM Word w WHERE w.readerBook.id = :readerBookId")
+    int deleteAllByReaderBookId(@Param("readerBookId") ReaderBookId readerBookId);
 }
@@ -10,6 +10,7 @@ import lombok.Builder;
 public record BookDtoRequest(@NotBlank(message = "Title is required") String title,
         String subtitle,
         String description,
+        @NotBlank(message = "ISBN is required")
         @Pattern(regexp = "97[89][0-9]{10}", message = "ISBN must be a 13-digit number starting with 978 or 979")
         String isbn,
         @NotNull(message = "Pages count is required")
@@ -0,0 +1,12 @@
+package dev.bakr.library_manager.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BooksBatchDtoRequest(@NotEmpty(message = "The batch should have at least one book!")
+        @Size(max = 500, message = "The batch can't have more than 500 books!")
+        List<@Valid BookDtoRequest> books) {
+}
@@ -0,0 +1,6 @@
+package dev.bakr.library_manager.requests;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenDtoRequest(@NotBlank(message = "The refresh token is required!") String refreshToken) {
+}
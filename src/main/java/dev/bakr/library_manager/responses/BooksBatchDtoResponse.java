@@ -0,0 +1,11 @@
+package dev.bakr.library_manager.responses;
+
+import java.util.List;
+
+/* createdBooksCount: books that weren't in the database before this batch.
+addedBooksCount: books added to the reader's collection (new ones + ones that already existed in the database).
+skippedIsbns: repeated in the batch or already in the reader's collection. */
+public record BooksBatchDtoResponse(Integer createdBooksCount,
+        Integer addedBooksCount,
+        List<String> skippedIsbns) {
+}
@@ -1,4 +1,8 @@
 package dev.bakr.library_manager.responses;
 
-public record LoginReaderDtoResponse(String jwtToken, Long jwtExpirationMs, String jwtExpirationText) {
+public record LoginReaderDtoResponse(String jwtToken,
+        Long jwtExpirationMs,
+        String jwtExpirationText,
+        String refreshToken,
+        Long refreshTokenExpirationMs) {
 }
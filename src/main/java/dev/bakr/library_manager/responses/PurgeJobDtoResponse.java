@@ -0,0 +1,14 @@
+package dev.bakr.library_manager.responses;
+
+import java.time.LocalDateTime;
+
+/* status: PENDING (not started yet), RUNNING or DONE (the account and all its data are gone).
+The counts are what has been deleted so far. */
+public record PurgeJobDtoResponse(String jobId,
+        String status,
+        Long wordsDeleted,
+        Long quotesDeleted,
+        Long booksDeleted,
+        LocalDateTime requestedAt,
+        LocalDateTime finishedAt) {
+}
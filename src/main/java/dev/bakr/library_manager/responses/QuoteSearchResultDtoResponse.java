@@ -0,0 +1,5 @@
+package dev.bakr.library_manager.responses;
+
+// The snippet is HTML-escaped with the matches wrapped in <mark></mark>
+public record QuoteSearchResultDtoResponse(Long id, Long bookId, String bookTitle, Integer pageNumber, String snippet) {
+}
@@ -9,7 +9,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
-@Builder
+@Builder(toBuilder = true)
 public record ReaderBookDtoResponse(Long id,
         String title,
         String subtitle,
@@ -27,4 +27,25 @@ public record ReaderBookDtoResponse(Long id,
         Integer leftOffPage,
         List<Quote> quotes,
         List<Word> words) {
+
+    /* Used by the JPQL constructor projections in ReaderBookRepository, which read only the book and reader-book columns.
+    The quotes and words are fetched separately (and only when needed), then attached through toBuilder(). */
+    public ReaderBookDtoResponse(Long id,
+            String title,
+            String subtitle,
+            String description,
+            String isbn,
+            Integer pagesCount,
+            String imageLink,
+            String printingType,
+            Integer publishingYear,
+            String authorName,
+            String categoryName,
+            String publisherName,
+            String readingStatus,
+            LocalDate addingDate,
+            Integer leftOffPage) {
+        this(id, title, subtitle, description, isbn, pagesCount, imageLink, printingType, publishingYear, authorName,
+             categoryName, publisherName, readingStatus, addingDate, leftOffPage, null, null);
+    }
 }
@@ -0,0 +1,7 @@
+package dev.bakr.library_manager.responses;
+
+import java.util.List;
+
+// nextCursor is null when the reader has reached the end of the collection
+public record ReaderBooksPageDtoResponse(List<ReaderBookDtoResponse> books, String nextCursor) {
+}
@@ -0,0 +1,4 @@
+package dev.bakr.library_manager.responses;
+
+public record WordSuggestionDtoResponse(Long id, Long bookId, String wordContent, String translation) {
+}
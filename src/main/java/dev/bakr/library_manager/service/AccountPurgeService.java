@@ -0,0 +1,250 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.exceptions.ExistsException;
+import dev.bakr.library_manager.exceptions.NotFoundException;
+import dev.bakr.library_manager.model.PurgeJob;
+import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.repository.PurgeJobRepository;
+import dev.bakr.library_manager.repository.ReaderDataPurgeRepository;
+import dev.bakr.library_manager.repository.ReaderDataPurgeRepository.AnnotationKey;
+import dev.bakr.library_manager.repository.ReaderDataPurgeRepository.AnnotationTable;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.responses.PurgeJobDtoResponse;
+import dev.bakr.library_manager.utils.ConstraintViolations;
+import dev.bakr.library_manager.utils.SecurityCheck;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Disables the reader right away and deletes their data in chunks from a background job (one node at a time)
+@Service
+public class AccountPurgeService {
+    private static final Logger logger = LoggerFactory.getLogger(AccountPurgeService.class);
+    private static final String JOB_NAME = "account-purge";
+    private final PurgeJobRepository purgeJobRepository;
+    private final ReaderRepository readerRepository;
+    private final ReaderDataPurgeRepository readerDataPurgeRepository;
+    private final JobLeaseService jobLeaseService;
+    private final OrphanCollector orphanCollector;
+    private final MyUserDetailsService myUserDetailsService;
+    private final WordSuggestionIndex wordSuggestionIndex;
+    private final int chunkSize;
+    private final Duration pauseBetweenChunks;
+    private final Duration leaseDuration;
+    private final Counter deletedWordsCounter;
+    private final Counter deletedQuotesCounter;
+    private final Counter deletedReaderBooksCounter;
+    private final Counter completedCounter;
+
+    public AccountPurgeService(PurgeJobRepository purgeJobRepository,
+            ReaderRepository readerRepository,
+            ReaderDataPurgeRepository readerDataPurgeRepository,
+            JobLeaseService jobLeaseService,
+            OrphanCollector orphanCollector,
+            MyUserDetailsService myUserDetailsService,
+            WordSuggestionIndex wordSuggestionIndex,
+            MeterRegistry meterRegistry,
+            @Value("${accounts.purge.chunk-size:500}") int chunkSize,
+            @Value("${accounts.purge.pause-between-chunks:50ms}") Duration pauseBetweenChunks,
+            @Value("${accounts.purge.lease:10m}") Duration leaseDuration) {
+        this.purgeJobRepository = purgeJobRepository;
+        this.readerRepository = readerRepository;
+        this.readerDataPurgeRepository = readerDataPurgeRepository;
+        this.jobLeaseService = jobLeaseService;
+        this.orphanCollector = orphanCollector;
+        this.myUserDetailsService = myUserDetailsService;
+        this.wordSuggestionIndex = wordSuggestionIndex;
+        this.chunkSize = chunkSize;
+        this.pauseBetweenChunks = pauseBetweenChunks;
+        this.leaseDuration = leaseDuration;
+        this.deletedWordsCounter = meterRegistry.counter("accounts.purge.deleted", "table", "words");
+        this.deletedQuotesCounter = meterRegistry.counter("accounts.purge.deleted", "table", "quotes");
+        this.deletedReaderBooksCounter = meterRegistry.counter("accounts.purge.deleted", "table", "readers_books");
+        this.completedCounter = meterRegistry.counter("accounts.purge.completed");
+    }
+
+    @Transactional
+    public PurgeJobDtoResponse requestPurge() {
+        Long authenticatedReaderId = SecurityCheck.getAuthenticatedReader().getId();
+
+        Reader reader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+                "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
+
+        // Can't log in, refresh a token or be verified again (see AuthReaderService) from here on
+        reader.setIsEnabled(false);
+        reader.setVerificationCode(null);
+        reader.setVerificationExpiration(null);
+        readerRepository.save(reader);
+
+        PurgeJob purgeJob = new PurgeJob(authenticatedReaderId);
+        try {
+            purgeJobRepository.saveAndFlush(purgeJob);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isViolationOf(e, "uk_purge_jobs_reader_id")) {
+                throw new ExistsException("The deletion of this account has already been requested!");
+            }
+            throw e;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                myUserDetailsService.evictPrincipal(authenticatedReaderId);
+            }
+        });
+
+        return toDto(purgeJob);
+    }
+
+    // On the primary, a job that was just requested could still be missing on the replica
+    @Transactional
+    public PurgeJobDtoResponse getPurgeJob(String jobId) {
+        return purgeJobRepository.findById(jobId)
+                .map(AccountPurgeService::toDto)
+                .orElseThrow(() -> new NotFoundException("There is no account deletion with id: " + jobId));
+    }
+
+    @Scheduled(initialDelayString = "${accounts.purge.initial-delay:30s}",
+            fixedDelayString = "${accounts.purge.interval:10s}")
+    public void runPurges() {
+        if (!jobLeaseService.tryAcquire(JOB_NAME, leaseDuration)) {
+            return;
+        }
+
+        try {
+            List<PurgeJob> purgeJobs;
+            while (!(purgeJobs = purgeJobRepository.findUnfinished(Limit.of(1))).isEmpty()) {
+                if (!purge(purgeJobs.getFirst())) {
+                    break;
+                }
+            }
+        } finally {
+            jobLeaseService.release(JOB_NAME);
+        }
+    }
+
+    // Returns whether the job finished, a failed one waits for the next run
+    private boolean purge(PurgeJob purgeJob) {
+        Long readerId = purgeJob.getReaderId();
+        try {
+            purgeJob.setStatus(PurgeJob.RUNNING);
+            saveProgress(purgeJob);
+
+            purgeAnnotations(purgeJob, AnnotationTable.WORDS);
+            purgeAnnotations(purgeJob, AnnotationTable.QUOTES);
+            purgeReaderBooks(purgeJob);
+
+            readerDataPurgeRepository.deleteRefreshTokens(readerId);
+            readerDataPurgeRepository.deleteQueuedEmails(readerId);
+            readerDataPurgeRepository.deleteReader(readerId);
+        } catch (RuntimeException e) {
+            String lastError = String.valueOf(e.getMessage());
+            lastError = lastError.length() > 500 ? lastError.substring(0, 500) : lastError;
+            purgeJob.setLastError(lastError);
+            purgeJob.setUpdatedAt(LocalDateTime.now());
+            purgeJobRepository.save(purgeJob);
+            logger.error("Error purging the account of the reader {}, retrying on the next run! {}", readerId, lastError);
+            return false;
+        }
+
+        // Local only, on the other nodes the suggestion index expires and the principal cache's ttl is long over
+        wordSuggestionIndex.evict(readerId);
+        myUserDetailsService.evictPrincipal(readerId);
+
+        purgeJob.setStatus(PurgeJob.DONE);
+        purgeJob.setLastError(null);
+        purgeJob.setFinishedAt(LocalDateTime.now());
+        saveProgress(purgeJob);
+        completedCounter.increment();
+        logger.info("Purged the account of the reader {}: {} words, {} quotes, {} books", readerId,
+                    purgeJob.getWordsDeleted(), purgeJob.getQuotesDeleted(), purgeJob.getBooksDeleted());
+        return true;
+    }
+
+    private void purgeAnnotations(PurgeJob purgeJob, AnnotationTable table) {
+        AnnotationKey after = AnnotationKey.FIRST;
+        List<AnnotationKey> keys;
+        do {
+            keys = readerDataPurgeRepository.findAnnotationKeysAfter(table, purgeJob.getReaderId(), after, chunkSize);
+            if (keys.isEmpty()) {
+                break;
+            }
+
+            int deletedCount = readerDataPurgeRepository.deleteAnnotations(
+                    table, purgeJob.getReaderId(), keys.stream().map(AnnotationKey::id).toList());
+            if (table == AnnotationTable.WORDS) {
+                purgeJob.setWordsDeleted(purgeJob.getWordsDeleted() + deletedCount);
+                deletedWordsCounter.increment(deletedCount);
+            } else {
+                purgeJob.setQuotesDeleted(purgeJob.getQuotesDeleted() + deletedCount);
+                deletedQuotesCounter.increment(deletedCount);
+            }
+
+            after = keys.getLast();
+            saveProgress(purgeJob);
+            pause();
+        } while (keys.size() == chunkSize);
+    }
+
+    private void purgeReaderBooks(PurgeJob purgeJob) {
+        Long afterBookId = 0L;
+        List<Long> bookIds;
+        do {
+            bookIds = readerDataPurgeRepository.findBookIdsAfter(purgeJob.getReaderId(), afterBookId, chunkSize);
+            if (bookIds.isEmpty()) {
+                break;
+            }
+
+            int deletedCount = readerDataPurgeRepository.deleteReaderBooks(purgeJob.getReaderId(), bookIds);
+            purgeJob.setBooksDeleted(purgeJob.getBooksDeleted() + deletedCount);
+            deletedReaderBooksCounter.increment(deletedCount);
+            orphanCollector.markBooksIfUnreferenced(bookIds);
+
+            afterBookId = bookIds.getLast();
+            saveProgress(purgeJob);
+            pause();
+        } while (bookIds.size() == chunkSize);
+    }
+
+    // Also renews the lease, and stops if another node has taken the job over
+    private void saveProgress(PurgeJob purgeJob) {
+        if (!jobLeaseService.tryAcquire(JOB_NAME, leaseDuration)) {
+            throw new IllegalStateException("Lost the lease of the account purge to another node");
+        }
+        purgeJob.setUpdatedAt(LocalDateTime.now());
+        purgeJobRepository.save(purgeJob);
+    }
+
+    // Leaves the database to the other writers between two chunks
+    private void pause() {
+        try {
+            Thread.sleep(pauseBetweenChunks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while purging an account", e);
+        }
+    }
+
+    private static PurgeJobDtoResponse toDto(PurgeJob purgeJob) {
+        return new PurgeJobDtoResponse(purgeJob.getId(),
+                                       purgeJob.getStatus(),
+                                       purgeJob.getWordsDeleted(),
+                                       purgeJob.getQuotesDeleted(),
+                                       purgeJob.getBooksDeleted(),
+                                       purgeJob.getCreatedAt(),
+                                       purgeJob.getFinishedAt());
+    }
+}
@@ -5,18 +5,22 @@ import dev.bakr.library_manager.exceptions.InvalidInputsException;
 import dev.bakr.library_manager.exceptions.NotFoundException;
 import dev.bakr.library_manager.mappers.ReaderMapper;
 import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.repository.PurgeJobRepository;
 import dev.bakr.library_manager.repository.ReaderRepository;
 import dev.bakr.library_manager.requests.LoginReaderDtoRequest;
+import dev.bakr.library_manager.requests.RefreshTokenDtoRequest;
 import dev.bakr.library_manager.requests.RegisterReaderDtoRequest;
 import dev.bakr.library_manager.requests.VerifyReaderDtoRequest;
 import dev.bakr.library_manager.responses.LoginReaderDtoResponse;
 import dev.bakr.library_manager.responses.RegisterReaderDtoResponse;
 import dev.bakr.library_manager.utils.GenerateVerificationCode;
-import jakarta.mail.MessagingException;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -24,6 +28,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
@@ -37,22 +42,33 @@ public class AuthReaderService {
     private final EmailService emailService;
     private final JwtService jwtService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final LoginAdmissionService loginAdmissionService;
+    private final RefreshTokenService refreshTokenService;
+    private final PurgeJobRepository purgeJobRepository;
     private final ApplicationContext context;
 
     public AuthReaderService(AuthenticationManager authenticationManager,
             ReaderRepository readerRepository,
             ReaderMapper readerMapper,
             EmailService emailService,
-            JwtService jwtService, TokenBlacklistService tokenBlacklistService, ApplicationContext context) {
+            JwtService jwtService, TokenBlacklistService tokenBlacklistService,
+            LoginAdmissionService loginAdmissionService, RefreshTokenService refreshTokenService,
+            PurgeJobRepository purgeJobRepository,
+            ApplicationContext context) {
         this.authenticationManager = authenticationManager;
         this.readerRepository = readerRepository;
         this.readerMapper = readerMapper;
         this.emailService = emailService;
         this.jwtService = jwtService;
         this.tokenBlacklistService = tokenBlacklistService;
+        this.loginAdmissionService = loginAdmissionService;
+        this.refreshTokenService = refreshTokenService;
+        this.purgeJobRepository = purgeJobRepository;
         this.context = context;
     }
 
+    // Read-write transactions, so their checks read the primary (there's no reader yet for read-your-writes)
+    @Transactional
     public RegisterReaderDtoResponse registerReader(RegisterReaderDtoRequest registerReaderDtoRequest) {
         var readerUsername = registerReaderDtoRequest.username();
         Boolean isReaderExists = readerRepository.existsByUsername(readerUsername);
@@ -68,18 +84,24 @@ public class AuthReaderService {
         newReaderEntity.setVerificationExpiration(LocalDateTime.now().plusMinutes(10));
         newReaderEntity.setIsEnabled(false);
 
-        readerRepository.save(newReaderEntity);
+        try {
+            // Flushed right away, so that losing a race on the same username ends up here and not in the commit
+            readerRepository.saveAndFlush(newReaderEntity);
+        } catch (DataIntegrityViolationException e) {
+            throw new ExistsException("You are trying to register a user who is already registered");
+        }
 
         sendOTAC(newReaderEntity);
 
         return readerMapper.toDto(newReaderEntity);
     }
 
+    @Transactional
     public String verifyReader(VerifyReaderDtoRequest verifyReaderDtoRequest) {
         var readerEmail = verifyReaderDtoRequest.email();
         Reader neededReader = readerRepository.findByEmail(readerEmail);
 
-        if (neededReader == null) {
+        if (neededReader == null || isBeingDeleted(neededReader)) {
             throw new NotFoundException("You are trying to verify a user who doesn't even exist!");
         }
 
@@ -104,38 +126,67 @@ public class AuthReaderService {
         return "User verified successfully! Login to receive your JWT token...";
     }
 
-    public LoginReaderDtoResponse loginReader(LoginReaderDtoRequest loginReaderDtoRequest) {
+    public LoginReaderDtoResponse loginReader(LoginReaderDtoRequest loginReaderDtoRequest, String clientIp) {
         try {
-            Authentication authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+            // The BCrypt check runs on the login pool, behind the per-IP and per-username rate limits
+            Authentication authentication = loginAdmissionService.authenticate(
                     loginReaderDtoRequest.username(),
-                    loginReaderDtoRequest.password()
-            ));
+                    clientIp,
+                    () -> authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+                            loginReaderDtoRequest.username(),
+                            loginReaderDtoRequest.password()
+                    )));
 
             if (!authentication.isAuthenticated()) {
                 return null;
             }
 
-            String jwtToken = jwtService.generateToken(loginReaderDtoRequest);
-            Long jwtExpirationMs = jwtService.getExpirationTime();
-            String jwtExpirationText = "In " + String.valueOf(jwtService.getExpirationTime() / (1000 * 60 * 60)) + " Hours";
-
+            ReaderPrincipal readerPrincipal = (ReaderPrincipal) authentication.getPrincipal();
+            String refreshToken = refreshTokenService.issueRefreshToken(readerPrincipal.getId());
 
-            return new LoginReaderDtoResponse(jwtToken, jwtExpirationMs, jwtExpirationText);
+            return buildTokensResponse(readerPrincipal, refreshToken);
         } catch (BadCredentialsException e) {
             throw new InvalidInputsException(e.getMessage());
         }
     }
 
-    public String logoutReader(HttpServletRequest request) {
+    // A new access token (and the next refresh token) without the password, so no BCrypt check
+    public LoginReaderDtoResponse refreshTokens(RefreshTokenDtoRequest refreshTokenDtoRequest) {
+        RefreshTokenService.RotatedRefreshToken rotatedRefreshToken = refreshTokenService.rotate(refreshTokenDtoRequest.refreshToken());
+        return buildTokensResponse(rotatedRefreshToken.readerPrincipal(), rotatedRefreshToken.refreshToken());
+    }
+
+    private LoginReaderDtoResponse buildTokensResponse(ReaderPrincipal readerPrincipal, String refreshToken) {
+        String jwtToken = jwtService.generateToken(readerPrincipal);
+        Long jwtExpirationMs = jwtService.getExpirationTime();
+        // Access tokens can be shorter than an hour now that they can be refreshed
+        String jwtExpirationText = jwtExpirationMs >= 1000 * 60 * 60
+                ? "In " + jwtExpirationMs / (1000 * 60 * 60) + " Hours"
+                : "In " + jwtExpirationMs / (1000 * 60) + " Minutes";
+
+        return new LoginReaderDtoResponse(jwtToken,
+                                          jwtExpirationMs,
+                                          jwtExpirationText,
+                                          refreshToken,
+                                          refreshTokenService.getRefreshExpirationTime());
+    }
+
+    public String logoutReader(HttpServletRequest request, RefreshTokenDtoRequest refreshTokenDtoRequest) {
         try {
+            // The refresh token (if the client sent it) would outlive the logout otherwise
+            if (refreshTokenDtoRequest != null) {
+                refreshTokenService.revokeFamily(refreshTokenDtoRequest.refreshToken());
+            }
+
             String token = extractTokenFromRequest(request);
-            String username = jwtService.extractUsername(token);
+            Claims claims = jwtService.parseClaims(token);
+            String username = claims.getSubject();
             UserDetails userDetails = context.getBean(MyUserDetailsService.class).loadUserByUsername(username);
 
 
-            if (token != null && jwtService.isTokenValid(token, userDetails)) {
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 // Add token to blacklist
-                tokenBlacklistService.blacklistToken(token);
+                tokenBlacklistService.blacklistToken(claims, token);
                 // Optional: Log the logout event
                 logger.info("User {} logged out successfully", username);
             }
@@ -158,16 +209,13 @@ public class AuthReaderService {
 
     public void sendOTAC(Reader reader) {
         String verificationCode = reader.getVerificationCode();
-        try {
-            emailService.sendVerificationEmail(reader.getEmail(), verificationCode);
-        } catch (MessagingException e) {
-            logger.error("Error sending the email while signing up! {}", e.getMessage());
-        }
+        emailService.queueVerificationEmail(reader.getId(), reader.getEmail(), verificationCode);
     }
 
+    @Transactional
     public String reSendOTAC(String email) {
         Reader neededReader = readerRepository.findByEmail(email);
-        if (neededReader == null) {
+        if (neededReader == null || isBeingDeleted(neededReader)) {
             throw new NotFoundException("You are trying to resend the OTAC to a user who doesn't even exist!");
         }
         if (neededReader.getIsEnabled()) {
@@ -181,12 +229,13 @@ public class AuthReaderService {
 
         readerRepository.save(neededReader);
 
-        try {
-            emailService.sendVerificationEmail(neededReader.getEmail(), newVerificationOTAC);
-        } catch (MessagingException e) {
-            logger.error("Error resending email while verifying! {}", e.getMessage());
-        }
+        emailService.queueVerificationEmail(neededReader.getId(), neededReader.getEmail(), newVerificationOTAC);
 
         return "The verification code was successfully resent!";
     }
+
+    // A deleted account is disabled until its purge job removes it, it mustn't be verified (enabled) again meanwhile
+    private boolean isBeingDeleted(Reader reader) {
+        return !reader.getIsEnabled() && purgeJobRepository.existsByReaderId(reader.getId());
+    }
 }
@@ -2,22 +2,45 @@ package dev.bakr.library_manager.service;
 
 import dev.bakr.library_manager.model.Author;
 import dev.bakr.library_manager.repository.AuthorRepository;
+import dev.bakr.library_manager.service.NameInterner.NameTable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class AuthorService {
-    private final AuthorRepository authorRepository;
+    private final NameInterner nameInterner;
+    private final NameTable<Author> authorNameTable;
 
-    public AuthorService(AuthorRepository authorRepository) {
-        this.authorRepository = authorRepository;
+    public AuthorService(AuthorRepository authorRepository, NameInterner nameInterner) {
+        this.nameInterner = nameInterner;
+        this.authorNameTable = new NameTable<>(
+                "uk_authors_full_name",
+                authorRepository,
+                authorRepository::findIdByFullName,
+                authorRepository::findAllByFullNameIn,
+                Author::getFullName,
+                Author::getId,
+                AuthorService::newAuthor);
     }
 
     public Author findOrCreateAuthor(String authorFullName) {
-        return authorRepository.findByFullName(authorFullName)
-                .orElseGet(() -> {
-                    Author author = new Author();
-                    author.setFullName(authorFullName);
-                    return authorRepository.save(author);
-                });
+        return nameInterner.findOrCreate(authorNameTable, authorFullName);
+    }
+
+    public Map<String, Author> findOrCreateAuthors(Set<String> authorNames) {
+        return nameInterner.findOrCreateAll(authorNameTable, authorNames);
+    }
+
+    public void forgetAuthors(Collection<String> names) {
+        nameInterner.forget(authorNameTable, names);
+    }
+
+    private static Author newAuthor(String authorFullName) {
+        Author author = new Author();
+        author.setFullName(authorFullName);
+        return author;
     }
 }
@@ -0,0 +1,97 @@
+package dev.bakr.library_manager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import dev.bakr.library_manager.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/* An in-process ISBN -> book id cache in front of BookRepository, because the same popular ISBNs get looked up over and
+over when readers add books. ISBNs we don't have are cached too (as Optional.empty()), but only for a short while, since
+the next reader who adds that ISBN creates the book. Hit/miss/eviction counters are published as cache.* metrics under
+the name "isbnCatalog". */
+@Service
+public class BookCatalogCache {
+    private static final String CACHE_NAME = "isbnCatalog";
+    private final BookRepository bookRepository;
+    private final Cache<String, Optional<Long>> bookIdsByIsbn;
+
+    public BookCatalogCache(BookRepository bookRepository,
+            MeterRegistry meterRegistry,
+            @Value("${catalog.isbn-cache.maximum-size:10000}") long maximumSize,
+            @Value("${catalog.isbn-cache.ttl:10m}") Duration ttl,
+            @Value("${catalog.isbn-cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.bookRepository = bookRepository;
+        this.bookIdsByIsbn = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new FoundOrMissingExpiry(ttl, negativeTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bookIdsByIsbn, CACHE_NAME);
+    }
+
+    /* Not using bookIdsByIsbn.get(isbn, loader) on purpose: the loader would run the query while holding the map's bin
+    lock, which blocks other callers of the same key and pins the carrier when the caller is a virtual thread. Two
+    concurrent misses on one ISBN just both run the (cheap) query. */
+    public Optional<Long> findBookIdByIsbn(String isbn) {
+        Optional<Long> cachedBookId = bookIdsByIsbn.getIfPresent(isbn);
+        if (cachedBookId != null) {
+            return cachedBookId;
+        }
+
+        Optional<Long> bookId = bookRepository.findIdByIsbn(isbn);
+        bookIdsByIsbn.put(isbn, bookId);
+        return bookId;
+    }
+
+    // Replaces a (possibly negative) entry once the transaction that created the book has committed
+    public void cacheBookId(String isbn, Long bookId) {
+        afterCommit(() -> bookIdsByIsbn.put(isbn, Optional.of(bookId)));
+    }
+
+    public void evict(String isbn) {
+        bookIdsByIsbn.invalidate(isbn);
+        // Once more after the commit, in case a concurrent lookup re-read the row before the delete was visible
+        afterCommit(() -> bookIdsByIsbn.invalidate(isbn));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Found ISBNs live for the full ttl, missing ones only for the negative ttl
+    private record FoundOrMissingExpiry(Duration ttl, Duration negativeTtl) implements Expiry<String, Optional<Long>> {
+        @Override
+        public long expireAfterCreate(String isbn, Optional<Long> bookId, long currentTime) {
+            return (bookId.isPresent() ? ttl : negativeTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String isbn, Optional<Long> bookId, long currentTime, long currentDuration) {
+            return expireAfterCreate(isbn, bookId, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String isbn, Optional<Long> bookId, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -6,152 +6,294 @@ import dev.bakr.library_manager.exceptions.NotFoundException;
 import dev.bakr.library_manager.mappers.BookMapper;
 import dev.bakr.library_manager.model.*;
 import dev.bakr.library_manager.repository.BookRepository;
+import dev.bakr.library_manager.repository.QuoteRepository;
 import dev.bakr.library_manager.repository.ReaderBookRepository;
 import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.repository.WordRepository;
 import dev.bakr.library_manager.requests.BookDtoRequest;
+import dev.bakr.library_manager.requests.BooksBatchDtoRequest;
 import dev.bakr.library_manager.requests.ReaderBookDtoRequest;
+import dev.bakr.library_manager.responses.BooksBatchDtoResponse;
 import dev.bakr.library_manager.responses.ReaderBookDtoResponse;
+import dev.bakr.library_manager.responses.ReaderBooksPageDtoResponse;
+import dev.bakr.library_manager.utils.ConstraintViolations;
+import dev.bakr.library_manager.utils.ReaderBookCursor;
 import dev.bakr.library_manager.utils.SecurityCheck;
 import dev.bakr.library_manager.utils.StatusValidator;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
 public class BookService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_SEARCH_RESULTS = 20;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final String INCLUDE_QUOTES = "quotes";
+    private static final String INCLUDE_WORDS = "words";
+    private static final String BOOKS_ISBN_CONSTRAINT = "uk_books_isbn";
     private final AuthorService authorService;
     private final CategoryService categoryService;
     private final PublisherService publisherService;
     private final BookRepository bookRepository;
     private final ReaderRepository readerRepository;
     private final ReaderBookRepository readerBookRepository;
+    private final QuoteRepository quoteRepository;
+    private final WordRepository wordRepository;
     private final BookMapper bookMapper;
+    private final BookCatalogCache bookCatalogCache;
+    private final WordSuggestionIndex wordSuggestionIndex;
+    private final TransactionTemplate transactionTemplate;
 
     public BookService(AuthorService authorService,
             CategoryService categoryService,
             PublisherService publisherService,
             BookRepository bookRepository,
             ReaderRepository readerRepository, ReaderBookRepository readerBookRepository,
-            BookMapper bookMapper) {
+            QuoteRepository quoteRepository,
+            WordRepository wordRepository,
+            BookMapper bookMapper,
+            BookCatalogCache bookCatalogCache,
+            WordSuggestionIndex wordSuggestionIndex,
+            PlatformTransactionManager transactionManager) {
         this.authorService = authorService;
         this.categoryService = categoryService;
         this.publisherService = publisherService;
         this.bookRepository = bookRepository;
         this.readerRepository = readerRepository;
         this.readerBookRepository = readerBookRepository;
+        this.quoteRepository = quoteRepository;
+        this.wordRepository = wordRepository;
         this.bookMapper = bookMapper;
+        this.bookCatalogCache = bookCatalogCache;
+        this.wordSuggestionIndex = wordSuggestionIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    // The read-only methods run on the replica when there is one (see ReadReplicaRoutingDataSource)
+    @Transactional(readOnly = true)
     public List<ReaderBookDtoResponse> getReaderBooks() {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
 
-        Reader reader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+        readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
                 "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
 
-        return reader.getReaderBooks().stream().map(readerBook -> {
-            var theBookItself = readerBook.getBook();
-            return ReaderBookDtoResponse.builder()
-                    .id(theBookItself.getId())
-                    .title(theBookItself.getTitle())
-                    .subtitle(theBookItself.getSubtitle())
-                    .description(theBookItself.getDescription())
-                    .isbn(theBookItself.getIsbn())
-                    .pagesCount(theBookItself.getPagesCount())
-                    .imageLink(theBookItself.getImageLink())
-                    .printingType(theBookItself.getPrintingType())
-                    .publishingYear(theBookItself.getPublishingYear())
-                    .authorName(theBookItself.getAuthor().getFullName())
-                    .categoryName(theBookItself.getCategory().getName())
-                    .publisherName(theBookItself.getPublisher().getName())
-                    .readingStatus(readerBook.getStatus())
-                    .addingDate(readerBook.getAddingDate())
-                    .leftOffPage(readerBook.getLeftOffPage())
-                    .quotes(readerBook.getQuotes())
-                    .words(readerBook.getWords()).build();
-        }).toList();
+        List<ReaderBookDtoResponse> readerBooks = readerBookRepository.findAllViewsByReaderId(authenticatedReaderId);
+        if (readerBooks.isEmpty()) {
+            return readerBooks;
+        }
+
+        // Three queries in total no matter how big the collection is (books, then all the quotes, then all the words)
+        return attachQuotesAndWords(readerBooks,
+                                    quoteRepository.findAllByReaderId(authenticatedReaderId),
+                                    wordRepository.findAllByReaderId(authenticatedReaderId));
     }
 
-    public ReaderBookDtoResponse getReaderBook(Long bookId) {
+    @Transactional(readOnly = true)
+    public ReaderBooksPageDtoResponse getReaderBooksPage(Integer limit, String after) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
 
-        Reader reader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+        readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
                 "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
 
-        ReaderBookId readerBookToGetId = ReaderBook.createCompositeKey(reader.getId(), bookId);
-        var readerBookToGet = readerBookRepository.findById(readerBookToGetId).orElseThrow(() -> new NotFoundException(
-                "You don't have this book in your collection!"
-        ));
-
-        var theBookItself = readerBookToGet.getBook();
-
-        return new ReaderBookDtoResponse(theBookItself.getId(),
-                                         theBookItself.getTitle(),
-                                         theBookItself.getSubtitle(),
-                                         theBookItself.getDescription(),
-                                         theBookItself.getIsbn(),
-                                         theBookItself.getPagesCount(),
-                                         theBookItself.getImageLink(),
-                                         theBookItself.getPrintingType(),
-                                         theBookItself.getPublishingYear(),
-                                         theBookItself.getAuthor().getFullName(),
-                                         theBookItself.getCategory().getName(),
-                                         theBookItself.getPublisher().getName(),
-                                         readerBookToGet.getStatus(),
-                                         readerBookToGet.getAddingDate(),
-                                         readerBookToGet.getLeftOffPage(),
-                                         readerBookToGet.getQuotes(),
-                                         readerBookToGet.getWords()
-        );
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidInputsException("The limit must be between 1 and " + MAX_PAGE_SIZE + "!");
+        }
+
+        // Fetch one extra row to know whether there is a next page without running a COUNT query
+        Limit rowsToFetch = Limit.of(pageSize + 1);
+        List<ReaderBookDtoResponse> rows;
+        if (after == null || after.isBlank()) {
+            rows = readerBookRepository.findFirstViewsPageByReaderId(authenticatedReaderId, rowsToFetch);
+        } else {
+            ReaderBookCursor cursor = ReaderBookCursor.decode(after);
+            rows = readerBookRepository.findViewsPageByReaderIdAfter(authenticatedReaderId,
+                                                                     cursor.addingDate(),
+                                                                     cursor.bookId(),
+                                                                     rowsToFetch);
+        }
+
+        boolean hasNextPage = rows.size() > pageSize;
+        List<ReaderBookDtoResponse> pageRows = hasNextPage ? rows.subList(0, pageSize) : rows;
+        if (pageRows.isEmpty()) {
+            return new ReaderBooksPageDtoResponse(pageRows, null);
+        }
+
+        List<Long> pageBookIds = pageRows.stream().map(ReaderBookDtoResponse::id).toList();
+        List<ReaderBookDtoResponse> books = attachQuotesAndWords(
+                pageRows,
+                quoteRepository.findAllByReaderIdAndBookIdIn(authenticatedReaderId, pageBookIds),
+                wordRepository.findAllByReaderIdAndBookIdIn(authenticatedReaderId, pageBookIds));
+
+        ReaderBookDtoResponse lastBook = pageRows.getLast();
+        String nextCursor = hasNextPage ? new ReaderBookCursor(lastBook.addingDate(), lastBook.id()).encode() : null;
+
+        return new ReaderBooksPageDtoResponse(books, nextCursor);
     }
 
-    public String addReaderBook(BookDtoRequest bookDtoRequest) {
+    @Transactional(readOnly = true)
+    public ReaderBookDtoResponse getReaderBook(Long bookId, Set<String> include) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
 
-        // Still check to avoid NullPointerException if reader was deleted after token issued (Always prefer robustness over optimism)
-        Reader reader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+        readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
                 "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
 
-        Optional<Book> existingBookInDatabase = bookRepository.findByIsbn(bookDtoRequest.isbn());
+        var readerBookToGet = readerBookRepository.findViewByReaderIdAndBookId(authenticatedReaderId, bookId)
+                .orElseThrow(() -> new NotFoundException("You don't have this book in your collection!"));
 
-        ReaderBook readerBookToAdd;
+        return withRequestedCollections(authenticatedReaderId, readerBookToGet, include);
+    }
 
-        if (existingBookInDatabase.isEmpty()) {
-            Book newBookEntity = bookMapper.toEntity(bookDtoRequest);
-            newBookEntity.setAuthor(authorService.findOrCreateAuthor(bookDtoRequest.authorFullName()));
-            newBookEntity.setCategory(categoryService.findOrCreateCategory(bookDtoRequest.categoryName()));
-            newBookEntity.setPublisher(publisherService.findOrCreatePublisher(bookDtoRequest.publisherName()));
-            Book savedBook = bookRepository.save(newBookEntity);
+    @Transactional(readOnly = true)
+    public List<ReaderBookDtoResponse> searchReaderBooks(String query, Integer limit) {
+        ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
+        Long authenticatedReaderId = authenticatedReader.getId();
 
-            readerBookToAdd = new ReaderBook(reader, savedBook);
-            readerBookRepository.save(readerBookToAdd);
+        readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+                "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
 
-            reader.getReaderBooks().add(readerBookToAdd);
-            readerRepository.save(reader);
+        if (query == null || query.isBlank()) {
+            throw new InvalidInputsException("Enter something to search for!");
+        }
+        int maxResults = limit == null ? DEFAULT_SEARCH_RESULTS : limit;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_RESULTS) {
+            throw new InvalidInputsException("The limit must be between 1 and " + MAX_SEARCH_RESULTS + "!");
+        }
 
-            return "We've successfully created the book and added it to your books.";
-        } else {
-            var readerBookToAddId = ReaderBook.createCompositeKey(reader.getId(), existingBookInDatabase.get().getId());
-            boolean isBookExistsInReaderCollection = readerBookRepository.existsById(readerBookToAddId);
-            if (isBookExistsInReaderCollection) {
+        // The index gives back the ranked ids, then one projection query reads those books (in no particular order)
+        List<Long> rankedBookIds = readerBookRepository.searchBookIds(authenticatedReaderId, query.strip(), maxResults);
+        if (rankedBookIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ReaderBookDtoResponse> booksById = readerBookRepository
+                .findViewsByReaderIdAndBookIdIn(authenticatedReaderId, rankedBookIds)
+                .stream()
+                .collect(Collectors.toMap(ReaderBookDtoResponse::id, Function.identity()));
+
+        return rankedBookIds.stream().map(booksById::get).filter(Objects::nonNull).toList();
+    }
+
+    /* Two steps, not one transaction: the book and its author/category/publisher are created first, each INSERT in its
+    own short transaction (see NameInterner), and the reader's copy is added in a second one. A request so never holds
+    more than one connection, and a concurrent request that creates the same book or name first only costs a re-read,
+    the unique index rejects ours. If adding the copy fails, the new catalog rows are left to OrphanCollector. */
+    public String addReaderBook(BookDtoRequest bookDtoRequest) {
+        // The ISBN is the catalog key (and BookCatalogCache can't look up a null one)
+        if (bookDtoRequest.isbn() == null) {
+            throw new InvalidInputsException("The book should have an ISBN!");
+        }
+
+        ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
+        Long authenticatedReaderId = authenticatedReader.getId();
+
+        // Popular ISBNs are answered from memory (see BookCatalogCache)
+        Optional<Long> existingBookIdInDatabase = bookCatalogCache.findBookIdByIsbn(bookDtoRequest.isbn());
+        CatalogBook catalogBook = existingBookIdInDatabase
+                .map(existingBookId -> new CatalogBook(existingBookId, false))
+                .orElseGet(() -> saveBookOrGetExisting(toNewBook(bookDtoRequest,
+                                                                 authorService.findOrCreateAuthor(bookDtoRequest.authorFullName()),
+                                                                 categoryService.findOrCreateCategory(bookDtoRequest.categoryName()),
+                                                                 publisherService.findOrCreatePublisher(bookDtoRequest.publisherName()))));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Still check to avoid NullPointerException if reader was deleted after token issued (Always prefer robustness over optimism)
+            Reader reader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+                    "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
+
+            var readerBookToAddId = ReaderBook.createCompositeKey(reader.getId(), catalogBook.id());
+            if (!catalogBook.isCreated() && readerBookRepository.existsById(readerBookToAddId)) {
                 throw new ExistsException("You already have this book in your collection!");
             }
 
-            readerBookToAdd = new ReaderBook(reader, existingBookInDatabase.get());
+            // Only the id is needed for the new row, so the book itself is never loaded
+            ReaderBook readerBookToAdd = new ReaderBook(reader, bookRepository.getReferenceById(catalogBook.id()));
             readerBookRepository.save(readerBookToAdd);
 
             reader.getReaderBooks().add(readerBookToAdd);
             readerRepository.save(reader);
+        });
+
+        return catalogBook.isCreated()
+                ? "We've successfully created the book and added it to your books."
+                : "This book already exists in the database. We've added it to your books.";
+    }
+
+    /* The batch version of addReaderBook for onboarding hundreds of books at once. Instead of a lookup and a few saves per
+    book, it resolves all the ISBNs with one IN query, the authors/categories/publishers as sets, and saves the new rows
+    together so Hibernate sends them in JDBC batches (see hibernate.jdbc.batch_size). The same two steps as addReaderBook:
+    the catalog rows first, then the reader's copies in one transaction. */
+    public BooksBatchDtoResponse addReaderBooks(BooksBatchDtoRequest booksBatchDtoRequest) {
+        ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
+        Long authenticatedReaderId = authenticatedReader.getId();
 
-            return "This book already exists in the database. We've added it to your books.";
+        // Only the first request of a repeated ISBN counts
+        Map<String, BookDtoRequest> bookRequestsByIsbn = new LinkedHashMap<>();
+        List<String> skippedIsbns = new ArrayList<>();
+        for (BookDtoRequest bookDtoRequest : booksBatchDtoRequest.books()) {
+            if (bookDtoRequest.isbn() == null) {
+                throw new InvalidInputsException("Every book in the batch should have an ISBN!");
+            }
+            if (bookRequestsByIsbn.putIfAbsent(bookDtoRequest.isbn(), bookDtoRequest) != null) {
+                skippedIsbns.add(bookDtoRequest.isbn());
+            }
         }
+
+        Map<String, CatalogBook> catalogBooksByIsbn = new LinkedHashMap<>();
+        bookRepository.findAllByIsbnIn(bookRequestsByIsbn.keySet()).forEach(existingBook -> {
+            catalogBooksByIsbn.put(existingBook.getIsbn(), new CatalogBook(existingBook.getId(), false));
+            bookCatalogCache.cacheBookId(existingBook.getIsbn(), existingBook.getId());
+        });
+
+        List<BookDtoRequest> newBookRequests = bookRequestsByIsbn.values().stream()
+                .filter(bookDtoRequest -> !catalogBooksByIsbn.containsKey(bookDtoRequest.isbn()))
+                .toList();
+        catalogBooksByIsbn.putAll(createBooks(newBookRequests));
+
+        List<ReaderBook> readerBooksToAdd = transactionTemplate.execute(status -> {
+            Reader reader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+                    "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
+
+            List<Long> existingBookIds = catalogBooksByIsbn.values().stream()
+                    .filter(catalogBook -> !catalogBook.isCreated())
+                    .map(CatalogBook::id)
+                    .toList();
+            Set<Long> bookIdsInReaderCollection = existingBookIds.isEmpty() ? Set.of() : new HashSet<>(
+                    readerBookRepository.findBookIdsByReaderIdAndBookIdIn(authenticatedReaderId, existingBookIds));
+
+            List<ReaderBook> newReaderBooks = new ArrayList<>();
+            catalogBooksByIsbn.forEach((isbn, catalogBook) -> {
+                if (bookIdsInReaderCollection.contains(catalogBook.id())) {
+                    skippedIsbns.add(isbn);
+                } else {
+                    newReaderBooks.add(new ReaderBook(reader, bookRepository.getReferenceById(catalogBook.id())));
+                }
+            });
+            readerBookRepository.saveAll(newReaderBooks);
+            return newReaderBooks;
+        });
+
+        int createdBooksCount = (int) catalogBooksByIsbn.values().stream().filter(CatalogBook::isCreated).count();
+        return new BooksBatchDtoResponse(createdBooksCount, readerBooksToAdd.size(), skippedIsbns);
     }
 
-    public ReaderBookDtoResponse updateReaderBook(Long bookId, ReaderBookDtoRequest readerBookDtoRequest) {
+    @Transactional
+    public ReaderBookDtoResponse updateReaderBook(Long bookId,
+            ReaderBookDtoRequest readerBookDtoRequest,
+            Set<String> include) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
 
@@ -159,70 +301,161 @@ public class BookService {
         readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
                 "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
 
-        var readerBookToUpdateId = ReaderBook.createCompositeKey(authenticatedReaderId, bookId);
-
-        var readerBookToUpdate = readerBookRepository.findById(readerBookToUpdateId).orElseThrow(() -> new NotFoundException(
-                "Book not found in your collection."
-        ));
-
         boolean isStatusValid = StatusValidator.validateStatus(readerBookDtoRequest.status());
 
         if (!isStatusValid) {
             throw new InvalidInputsException("Enter a valid status (UNREAD, READING, READ)! Can be lowercase.");
         }
 
-        readerBookToUpdate.setStatus(readerBookDtoRequest.status());
-        readerBookToUpdate.setLeftOffPage(readerBookDtoRequest.leftOffPage());
-
-        var updatedReaderBook = readerBookRepository.save(readerBookToUpdate);
-
-        var theBookItself = updatedReaderBook.getBook();
-        
-        return new ReaderBookDtoResponse(theBookItself.getId(),
-                                         theBookItself.getTitle(),
-                                         theBookItself.getSubtitle(),
-                                         theBookItself.getDescription(),
-                                         theBookItself.getIsbn(),
-                                         theBookItself.getPagesCount(),
-                                         theBookItself.getImageLink(),
-                                         theBookItself.getPrintingType(),
-                                         theBookItself.getPublishingYear(),
-                                         theBookItself.getAuthor().getFullName(),
-                                         theBookItself.getCategory().getName(),
-                                         theBookItself.getPublisher().getName(),
-                                         updatedReaderBook.getStatus(),
-                                         updatedReaderBook.getAddingDate(),
-                                         updatedReaderBook.getLeftOffPage(),
-                                         updatedReaderBook.getQuotes(),
-                                         updatedReaderBook.getWords()
-        );
+        var readerBookToUpdateId = ReaderBook.createCompositeKey(authenticatedReaderId, bookId);
+
+        // A single UPDATE statement instead of loading the whole ReaderBook entity graph just to change two columns
+        int updatedRows = readerBookRepository.updateReadingProgress(readerBookToUpdateId,
+                                                                     readerBookDtoRequest.status(),
+                                                                     readerBookDtoRequest.leftOffPage());
+        if (updatedRows == 0) {
+            throw new NotFoundException("Book not found in your collection.");
+        }
+
+        var updatedReaderBook = readerBookRepository.findViewByReaderIdAndBookId(authenticatedReaderId, bookId)
+                .orElseThrow(() -> new NotFoundException("Book not found in your collection."));
+
+        return withRequestedCollections(authenticatedReaderId, updatedReaderBook, include);
     }
 
+    /* Three set-based deletes in one transaction, the words and quotes first (their foreign key points to readers_books).
+    Nothing is loaded, so a book with thousands of quotes and words costs a few range deletes, not one statement per row
+    plus the reader's whole collection. */
+    @Transactional
     public String deleteReaderBook(Long bookId) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
 
-        // in case it is authenticated but was deleted accidentally from the database
-        Reader reader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
-                "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
-
         ReaderBookId readerBookToDeleteId = ReaderBook.createCompositeKey(authenticatedReaderId, bookId);
 
-        var readerBookToDelete = readerBookRepository.findById(readerBookToDeleteId).orElseThrow(() -> new NotFoundException(
-                "Book not found in your collection."));
-        readerBookRepository.delete(readerBookToDelete);
+        int deletedWordsCount = wordRepository.deleteAllByReaderBookId(readerBookToDeleteId);
+        quoteRepository.deleteAllByReaderBookId(readerBookToDeleteId);
+        // 0 rows means it isn't in the reader's collection (and then there were no quotes/words to delete either)
+        if (readerBookRepository.deleteReaderBook(readerBookToDeleteId) == 0) {
+            throw new NotFoundException("Book not found in your collection.");
+        }
 
+        if (deletedWordsCount > 0) {
+            wordSuggestionIndex.evict(authenticatedReaderId);
+        }
 
-        Book bookToDeleteIfNoReaders = readerBookToDelete.getBook();
+        // The book itself stays in the catalog, OrphanCollector removes it later if no other reader has it
 
-        reader.getReaderBooks().removeIf(rb -> rb.getBook().equals(bookToDeleteIfNoReaders));
-        readerRepository.save(reader);
+        return "Book deleted successfully.";
+    }
 
-        // Optional: if no other readers have the book, delete it
-        if (readerBookRepository.countReadersByBookId(bookToDeleteIfNoReaders.getId()) == 0) {
-            bookRepository.delete(bookToDeleteIfNoReaders);
+    // The new books of a batch by ISBN, with the ones that a concurrent request created first
+    private Map<String, CatalogBook> createBooks(List<BookDtoRequest> newBookRequests) {
+        Map<String, CatalogBook> catalogBooksByIsbn = new LinkedHashMap<>();
+        if (newBookRequests.isEmpty()) {
+            return catalogBooksByIsbn;
         }
 
-        return "Book deleted successfully.";
+        Map<String, Author> authorsByName = authorService.findOrCreateAuthors(
+                newBookRequests.stream().map(BookDtoRequest::authorFullName).collect(Collectors.toSet()));
+        Map<String, Category> categoriesByName = categoryService.findOrCreateCategories(
+                newBookRequests.stream().map(BookDtoRequest::categoryName).collect(Collectors.toSet()));
+        Map<String, Publisher> publishersByName = publisherService.findOrCreatePublishers(
+                newBookRequests.stream().map(BookDtoRequest::publisherName).collect(Collectors.toSet()));
+        Function<BookDtoRequest, Book> toNewBook = bookDtoRequest -> toNewBook(
+                bookDtoRequest,
+                authorsByName.get(bookDtoRequest.authorFullName()),
+                categoriesByName.get(bookDtoRequest.categoryName()),
+                publishersByName.get(bookDtoRequest.publisherName()));
+
+        try {
+            // The ids come from the pooled sequence, so the INSERTs go out in JDBC batches when saveAll commits
+            bookRepository.saveAll(newBookRequests.stream().map(toNewBook).toList()).forEach(newBook -> {
+                catalogBooksByIsbn.put(newBook.getIsbn(), new CatalogBook(newBook.getId(), true));
+                bookCatalogCache.cacheBookId(newBook.getIsbn(), newBook.getId());
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolationOf(e, BOOKS_ISBN_CONSTRAINT)) {
+                throw e;
+            }
+            /* A concurrent request created one of the books first and the whole batch was rolled back, so one book at a
+            time now. New entities, the ids of the failed ones belong to the rolled back INSERTs. */
+            catalogBooksByIsbn.clear();
+            newBookRequests.forEach(bookDtoRequest -> catalogBooksByIsbn.put(
+                    bookDtoRequest.isbn(), saveBookOrGetExisting(toNewBook.apply(bookDtoRequest))));
+        }
+        return catalogBooksByIsbn;
+    }
+
+    /* Saves the book in a transaction of its own. If a concurrent request created a book with the same ISBN since our
+    lookup, the unique index rejects ours and the other one is read back, in a read-write transaction so that it runs on
+    the primary (the replica may not have the other request's row yet). */
+    private CatalogBook saveBookOrGetExisting(Book newBook) {
+        try {
+            Book savedBook = bookRepository.saveAndFlush(newBook);
+            bookCatalogCache.cacheBookId(savedBook.getIsbn(), savedBook.getId());
+            return new CatalogBook(savedBook.getId(), true);
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isViolationOf(e, BOOKS_ISBN_CONSTRAINT)) {
+                throw e;
+            }
+            Long existingBookId = transactionTemplate.execute(status -> bookRepository.findIdByIsbn(newBook.getIsbn()))
+                    .orElseThrow(() -> e);
+            bookCatalogCache.cacheBookId(newBook.getIsbn(), existingBookId);
+            return new CatalogBook(existingBookId, false);
+        }
+    }
+
+    private Book toNewBook(BookDtoRequest bookDtoRequest, Author author, Category category, Publisher publisher) {
+        Book newBookEntity = bookMapper.toEntity(bookDtoRequest);
+        newBookEntity.setAuthor(author);
+        newBookEntity.setCategory(category);
+        newBookEntity.setPublisher(publisher);
+        return newBookEntity;
+    }
+
+    /* Quotes and words are only read when the client asks for them (?include=quotes,words), each with a single query.
+    Without the include parameter the response carries the book and reading progress only. */
+    private ReaderBookDtoResponse withRequestedCollections(Long readerId,
+            ReaderBookDtoResponse readerBook,
+            Set<String> include) {
+        if (include == null || include.isEmpty()) {
+            return readerBook;
+        }
+
+        for (String collection : include) {
+            if (!INCLUDE_QUOTES.equalsIgnoreCase(collection) && !INCLUDE_WORDS.equalsIgnoreCase(collection)) {
+                throw new InvalidInputsException("You can only include 'quotes' and/or 'words'!");
+            }
+        }
+
+        var readerBookWithCollections = readerBook.toBuilder();
+        List<Long> bookIds = List.of(readerBook.id());
+        if (include.stream().anyMatch(INCLUDE_QUOTES::equalsIgnoreCase)) {
+            readerBookWithCollections.quotes(quoteRepository.findAllByReaderIdAndBookIdIn(readerId, bookIds));
+        }
+        if (include.stream().anyMatch(INCLUDE_WORDS::equalsIgnoreCase)) {
+            readerBookWithCollections.words(wordRepository.findAllByReaderIdAndBookIdIn(readerId, bookIds));
+        }
+        return readerBookWithCollections.build();
+    }
+
+    private List<ReaderBookDtoResponse> attachQuotesAndWords(List<ReaderBookDtoResponse> readerBooks,
+            List<Quote> quotes,
+            List<Word> words) {
+        // getReaderBook().getId() is read from the lazy proxy, so grouping doesn't load any ReaderBook
+        Map<Long, List<Quote>> quotesByBookId = quotes.stream()
+                .collect(Collectors.groupingBy(quote -> quote.getReaderBook().getId().getBookId()));
+        Map<Long, List<Word>> wordsByBookId = words.stream()
+                .collect(Collectors.groupingBy(word -> word.getReaderBook().getId().getBookId()));
+
+        return readerBooks.stream().map(readerBook -> readerBook.toBuilder()
+                .quotes(quotesByBookId.getOrDefault(readerBook.id(), List.of()))
+                .words(wordsByBookId.getOrDefault(readerBook.id(), List.of()))
+                .build()).toList();
+    }
+
+    // A book of the catalog, and whether this request created it
+    private record CatalogBook(Long id, boolean isCreated) {
     }
 }
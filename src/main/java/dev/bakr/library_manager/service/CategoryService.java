@@ -2,22 +2,45 @@ package dev.bakr.library_manager.service;
 
 import dev.bakr.library_manager.model.Category;
 import dev.bakr.library_manager.repository.CategoryRepository;
+import dev.bakr.library_manager.service.NameInterner.NameTable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class CategoryService {
-    private final CategoryRepository categoryRepository;
+    private final NameInterner nameInterner;
+    private final NameTable<Category> categoryNameTable;
 
-    public CategoryService(CategoryRepository categoryRepository) {
-        this.categoryRepository = categoryRepository;
+    public CategoryService(CategoryRepository categoryRepository, NameInterner nameInterner) {
+        this.nameInterner = nameInterner;
+        this.categoryNameTable = new NameTable<>(
+                "uk_categories_name",
+                categoryRepository,
+                categoryRepository::findIdByName,
+                categoryRepository::findAllByNameIn,
+                Category::getName,
+                Category::getId,
+                CategoryService::newCategory);
     }
 
     public Category findOrCreateCategory(String categoryName) {
-        return categoryRepository.findByName(categoryName)
-                .orElseGet(() -> {
-                    Category category = new Category();
-                    category.setName(categoryName);
-                    return categoryRepository.save(category);
-                });
+        return nameInterner.findOrCreate(categoryNameTable, categoryName);
+    }
+
+    public Map<String, Category> findOrCreateCategories(Set<String> categoryNames) {
+        return nameInterner.findOrCreateAll(categoryNameTable, categoryNames);
+    }
+
+    public void forgetCategories(Collection<String> names) {
+        nameInterner.forget(categoryNameTable, names);
+    }
+
+    private static Category newCategory(String categoryName) {
+        Category category = new Category();
+        category.setName(categoryName);
+        return category;
     }
 }
@@ -0,0 +1,235 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.model.OutboxEmail;
+import dev.bakr.library_manager.repository.OutboxEmailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sends the due emails of the outbox in batches, one SMTP connection per batch, and retries the failed ones with backoff
+@Service
+public class EmailOutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final JavaMailSender emailSender;
+    /* Platform threads on purpose: Jakarta Mail does its socket I/O inside synchronized methods, which would pin the
+    carrier of a virtual thread for the whole SMTP conversation (when spring.threads.virtual.enabled is on). */
+    private final ExecutorService drainer;
+    private final ExecutorService senders;
+    private final int batchSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration claimLease;
+    // Only one drain at a time on this node, a request that comes in meanwhile makes the running drain go another round
+    private final AtomicBoolean isDraining = new AtomicBoolean();
+    private final AtomicBoolean isDrainRequested = new AtomicBoolean();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final Timer batchSendTimer;
+    private final Timer deliveryDelayTimer;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+
+    public EmailOutboxDispatcher(OutboxEmailRepository outboxEmailRepository,
+            JavaMailSender emailSender,
+            MeterRegistry meterRegistry,
+            @Value("${mail.outbox.batch-size:20}") int batchSize,
+            @Value("${mail.outbox.concurrency:2}") int concurrency,
+            @Value("${mail.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${mail.outbox.initial-backoff:30s}") Duration initialBackoff,
+            @Value("${mail.outbox.max-backoff:1h}") Duration maxBackoff,
+            @Value("${mail.outbox.claim-lease:2m}") Duration claimLease) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.emailSender = emailSender;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.claimLease = claimLease;
+        this.drainer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("email-outbox-drainer").daemon().factory());
+        this.senders = Executors.newFixedThreadPool(concurrency,
+                                                    Thread.ofPlatform().name("email-outbox-sender-", 0).daemon().factory());
+
+        Gauge.builder("mail.outbox.pending", pendingCount, AtomicLong::get)
+                .description("Emails waiting in the outbox (as of the last poll)")
+                .register(meterRegistry);
+        this.batchSendTimer = Timer.builder("mail.outbox.send")
+                .description("Time to send one batch over one SMTP connection")
+                .register(meterRegistry);
+        this.deliveryDelayTimer = Timer.builder("mail.outbox.delivery.delay")
+                .description("Time from queueing an email to sending it")
+                .register(meterRegistry);
+        this.sentCounter = meterRegistry.counter("mail.outbox.emails", "outcome", "sent");
+        this.retriedCounter = meterRegistry.counter("mail.outbox.emails", "outcome", "retried");
+        this.failedCounter = meterRegistry.counter("mail.outbox.emails", "outcome", "failed");
+    }
+
+    public void dispatchSoon() {
+        drainer.execute(this::drain);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval:5s}")
+    public void poll() {
+        pendingCount.set(outboxEmailRepository.countByStatus(OutboxEmail.PENDING));
+        dispatchSoon();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Emails claimed by a batch that gets cut off here become due again when their lease runs out
+        drainer.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private void drain() {
+        isDrainRequested.set(true);
+        while (isDrainRequested.get() && isDraining.compareAndSet(false, true)) {
+            try {
+                isDrainRequested.set(false);
+                // A full page means there may be more due emails behind it
+                while (dispatchDueEmails() == batchSize * concurrency) {
+                    logger.debug("More emails are due, dispatching the next page");
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error dispatching the outbox emails! {}", e.getMessage());
+            } finally {
+                isDraining.set(false);
+            }
+        }
+    }
+
+    private int dispatchDueEmails() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = outboxEmailRepository.findDueIds(now, Limit.of(batchSize * concurrency));
+        if (dueIds.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime leaseEnd = now.plus(claimLease);
+        List<Long> claimedIds = dueIds.stream()
+                .filter(id -> outboxEmailRepository.claim(id, now, leaseEnd) == 1)
+                .toList();
+        List<OutboxEmail> claimedEmails = outboxEmailRepository.findAllById(claimedIds);
+
+        List<Future<?>> sendingBatches = new ArrayList<>();
+        for (int from = 0; from < claimedEmails.size(); from += batchSize) {
+            List<OutboxEmail> batch = claimedEmails.subList(from, Math.min(from + batchSize, claimedEmails.size()));
+            sendingBatches.add(senders.submit(() -> sendBatch(batch)));
+        }
+        for (Future<?> sendingBatch : sendingBatches) {
+            try {
+                sendingBatch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while sending the outbox emails", e);
+            } catch (ExecutionException e) {
+                logger.error("Error sending an outbox batch! {}", e.getCause().getMessage());
+            }
+        }
+
+        return dueIds.size();
+    }
+
+    private void sendBatch(List<OutboxEmail> batch) {
+        Map<MimeMessage, OutboxEmail> emailsByMessage = new IdentityHashMap<>();
+        Map<OutboxEmail, Exception> failures = new HashMap<>();
+
+        for (OutboxEmail email : batch) {
+            try {
+                emailsByMessage.put(toMimeMessage(email), email);
+            } catch (MessagingException e) {
+                failures.put(email, e);
+            }
+        }
+
+        if (!emailsByMessage.isEmpty()) {
+            Timer.Sample sample = Timer.start();
+            try {
+                emailSender.send(emailsByMessage.keySet().toArray(MimeMessage[]::new));
+            } catch (MailSendException e) {
+                // Only the emails in getFailedMessages() weren't sent (it's empty if e.g. only closing the connection failed)
+                e.getFailedMessages().forEach((message, exception) -> failures.put(emailsByMessage.get(message), exception));
+            } catch (MailException e) {
+                // e.g., the authentication failed, so nothing was sent
+                emailsByMessage.values().forEach(email -> failures.put(email, e));
+            } finally {
+                sample.stop(batchSendTimer);
+            }
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxEmail email : batch) {
+            Exception failure = failures.get(email);
+            if (failure == null) {
+                sentIds.add(email.getId());
+                deliveryDelayTimer.record(Duration.between(email.getCreatedAt(), now));
+            } else {
+                retryLater(email, failure, now);
+            }
+        }
+        outboxEmailRepository.deleteAllByIdInBatch(sentIds);
+        sentCounter.increment(sentIds.size());
+    }
+
+    // attempts was already incremented when the email was claimed
+    private void retryLater(OutboxEmail email, Exception failure, LocalDateTime now) {
+        String lastError = String.valueOf(failure.getMessage());
+        lastError = lastError.length() > 500 ? lastError.substring(0, 500) : lastError;
+
+        if (email.getAttempts() >= maxAttempts) {
+            outboxEmailRepository.markFailed(email.getId(), now, lastError);
+            failedCounter.increment();
+            logger.error("Giving up on the email {} to {} after {} attempts! {}",
+                         email.getId(), email.getToEmail(), email.getAttempts(), lastError);
+            return;
+        }
+
+        // 30s, 1m, 2m, 4m, ... up to the max backoff
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(email.getAttempts() - 1, 20));
+        backoff = backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+        outboxEmailRepository.reschedule(email.getId(), OutboxEmail.PENDING, now.plus(backoff), lastError);
+        retriedCounter.increment();
+        logger.warn("Error sending the email {}, retrying in {}! {}", email.getId(), backoff, lastError);
+    }
+
+    private MimeMessage toMimeMessage(OutboxEmail email) throws MessagingException {
+        MimeMessage message = emailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+        helper.setTo(email.getToEmail());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getHtmlBody(), true);
+        return message;
+    }
+}
@@ -1,23 +1,23 @@
 package dev.bakr.library_manager.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import dev.bakr.library_manager.model.OutboxEmail;
+import dev.bakr.library_manager.repository.OutboxEmailRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class EmailService {
-    // Injecting JavaMailSender to handle the process of sending emails
-    private final JavaMailSender emailSender;
+    // The emails are stored in the outbox, EmailOutboxDispatcher sends them
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
 
-    public EmailService(JavaMailSender emailSender) {
-        this.emailSender = emailSender;
+    public EmailService(OutboxEmailRepository outboxEmailRepository, EmailOutboxDispatcher emailOutboxDispatcher) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.emailOutboxDispatcher = emailOutboxDispatcher;
     }
 
-    public void sendVerificationEmail(String toEmail, String verificationOTAC) throws MessagingException {
-        MimeMessage message = emailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
+    public void queueVerificationEmail(Long readerId, String toEmail, String verificationOTAC) {
         String subject = "Your Readiction Account Verification Code";
         String messageBody = "<html>"
                 + "<body style=\"font-family: Arial, sans-serif;\">"
@@ -32,11 +32,18 @@ public class EmailService {
                 + "</body>"
                 + "</html>";
 
-        helper.setTo(toEmail);
-        helper.setSubject(subject);
-        helper.setText(messageBody, true);
+        outboxEmailRepository.save(new OutboxEmail(readerId, toEmail, subject, messageBody));
 
-        emailSender.send(message);
-        System.out.println("Message sent to: " + toEmail);
+        // The dispatcher reads the email from the table, so it can only see it once it's committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    emailOutboxDispatcher.dispatchSoon();
+                }
+            });
+        } else {
+            emailOutboxDispatcher.dispatchSoon();
+        }
     }
 }
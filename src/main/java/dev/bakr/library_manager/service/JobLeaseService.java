@@ -0,0 +1,55 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.model.JobLease;
+import dev.bakr.library_manager.repository.JobLeaseRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/* Makes sure a scheduled job that every node has runs on one node at a time: the node that holds the job's row in
+job_leases runs it, the others skip that run. A lease ends when it's released or when its duration has passed, so a node
+that dies in the middle of a run only blocks the job for that long. The duration should be well over the job's usual
+run time (and the clock differences between the nodes, lease_until is set with the owner's clock). */
+@Service
+public class JobLeaseService {
+    private final JobLeaseRepository jobLeaseRepository;
+    // Unique per running instance, the host name is only there to make it readable
+    private final String owner;
+
+    public JobLeaseService(JobLeaseRepository jobLeaseRepository) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.owner = hostName() + "/" + UUID.randomUUID();
+    }
+
+    public boolean tryAcquire(String jobName, Duration leaseDuration) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobLeaseRepository.takeOver(jobName, owner, now.plus(leaseDuration), now) == 1) {
+            return true;
+        }
+
+        // The job has never run, or another node holds it (then the insert fails on the primary key)
+        try {
+            jobLeaseRepository.saveAndFlush(new JobLease(jobName, owner, now.plus(leaseDuration)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    public void release(String jobName) {
+        jobLeaseRepository.release(jobName, owner, LocalDateTime.now());
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
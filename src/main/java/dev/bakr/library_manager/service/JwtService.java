@@ -1,10 +1,16 @@
 package dev.bakr.library_manager.service;
 
-import dev.bakr.library_manager.requests.LoginReaderDtoRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import dev.bakr.library_manager.model.ReaderPrincipal;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -13,30 +19,75 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
-    @Value("${security.jwt.secret-key}")
-    private String secretKey;
-    @Value("${security.jwt.expiration-time}")
-    private Long jwtExpiration;
+    private static final String READER_ID_CLAIM = "rid";
+    private static final String ENABLED_CLAIM = "enabled";
+    private final Long jwtExpiration;
+    // Decoding the secret and building the parser are done once, both are immutable and thread-safe
+    private final SecretKey signInKey;
+    private final JwtParser jwtParser;
+    /* Tokens that already passed the signature check, so a client sending the same token on every request gets its
+    claims without another HMAC verification. An entry never outlives its token (see TokenExpiry), and only tokens we
+    verified ourselves get in, so the cache can't be used to skip the check. */
+    private final Cache<String, Claims> verifiedClaimsByToken;
 
-    public String generateToken(LoginReaderDtoRequest loginReaderDtoRequest) {
+    public JwtService(@Value("${security.jwt.secret-key}") String secretKey,
+            @Value("${security.jwt.expiration-time}") Long jwtExpiration,
+            @Value("${security.jwt.claims-cache.maximum-size:10000}") long claimsCacheSize,
+            MeterRegistry meterRegistry) {
+        this.jwtExpiration = jwtExpiration;
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parser().verifyWith(signInKey).build();
+        this.verifiedClaimsByToken = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaimsByToken, "jwtClaims");
+    }
+
+    public String generateToken(ReaderPrincipal readerPrincipal) {
+        // The id and enabled state travel in the token, so authenticated requests don't have to look the reader up
         Map<String, Object> extraClaims = new HashMap<>();
+        extraClaims.put(READER_ID_CLAIM, readerPrincipal.getId());
+        extraClaims.put(ENABLED_CLAIM, readerPrincipal.isEnabled());
         return Jwts
                 .builder()
                 .claims(extraClaims)
-                .subject(loginReaderDtoRequest.username())
+                .subject(readerPrincipal.getUsername())
+                .id(UUID.randomUUID().toString()) // jti, what a logout revokes (see TokenBlacklistService)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /* Verifies the token (signature and expiration) and returns its claims. Throws the same JwtExceptions as before when
+    the token is invalid or expired. Call it once per request and read everything from the returned claims. */
+    public Claims parseClaims(String token) {
+        Claims cachedClaims = verifiedClaimsByToken.getIfPresent(token);
+        if (cachedClaims != null && !isExpired(cachedClaims)) {
+            return cachedClaims;
+        }
+
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        verifiedClaimsByToken.put(token, claims);
+        return claims;
+    }
+
+    // null for tokens issued before the rid/enabled claims were added
+    public ReaderPrincipal toPrincipal(Claims claims) {
+        Long readerId = claims.get(READER_ID_CLAIM, Long.class);
+        Boolean isEnabled = claims.get(ENABLED_CLAIM, Boolean.class);
+        if (readerId == null || isEnabled == null) {
+            return null;
+        }
+        return new ReaderPrincipal(readerId, claims.getSubject(), isEnabled);
     }
 
     public String extractUsername(String token) {
@@ -44,27 +95,22 @@ public class JwtService {
     }
 
     private <T> T extractClaim(String token, Function<Claims, T> claimResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseClaims(token);
         return claimResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        return isTokenValid(parseClaims(token), userDetails);
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername())) && !isExpired(claims);
     }
 
     public boolean isTokenExpired(String token) {
         // Returns true if the token's expiration date is before the current time (i.e., the token is expired)
-        return extractExpiration(token).before(new Date());
+        return isExpired(parseClaims(token));
     }
 
     public Date extractExpiration(String token) {
@@ -74,4 +120,29 @@ public class JwtService {
     public Long getExpirationTime() {
         return jwtExpiration;
     }
+
+    private static boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
+    }
+
+    // Each entry expires together with its token (tokens without an exp claim are kept for the default expiration time)
+    private final class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            long millisLeft = claims.getExpiration() == null
+                    ? jwtExpiration
+                    : claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millisLeft));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package dev.bakr.library_manager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.bakr.library_manager.exceptions.NotFoundException;
+import dev.bakr.library_manager.model.Quote;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.model.Word;
+import dev.bakr.library_manager.repository.QuoteRepository;
+import dev.bakr.library_manager.repository.ReaderBookRepository;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.repository.WordRepository;
+import dev.bakr.library_manager.responses.ReaderBookDtoResponse;
+import dev.bakr.library_manager.utils.SecurityCheck;
+import jakarta.persistence.EntityManager;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/* Streams the whole collection of a reader as NDJSON (one ReaderBookDtoResponse with its quotes and words per line).
+Nothing is collected in memory: the books are read through a forward-only cursor, and every CHUNK_SIZE books we fetch
+their quotes/words in one query each, write them out, flush, and clear the persistence context. So the memory used
+stays the same whether the reader has 10 books or 100k.
+NOTE: MySQL Connector/J only streams with a fetch size when the JDBC URL has useCursorFetch=true, otherwise it reads
+the whole result set into memory first. */
+@Service
+public class LibraryExportService {
+    private static final int FETCH_SIZE = 500;
+    private static final int CHUNK_SIZE = 100;
+    private static final byte[] NEW_LINE = {'\n'};
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReaderRepository readerRepository;
+    private final QuoteRepository quoteRepository;
+    private final WordRepository wordRepository;
+    private final ObjectMapper objectMapper;
+
+    public LibraryExportService(EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            ReaderRepository readerRepository,
+            QuoteRepository quoteRepository,
+            WordRepository wordRepository,
+            ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readerRepository = readerRepository;
+        this.quoteRepository = quoteRepository;
+        this.wordRepository = wordRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public StreamingResponseBody exportReaderBooks() {
+        ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
+        Long authenticatedReaderId = authenticatedReader.getId();
+
+        readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+                "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
+
+        // The body is written later on an async thread, that's why the reader id is resolved up here
+        return outputStream -> readOnlyTransaction.executeWithoutResult(
+                status -> writeReaderBooks(authenticatedReaderId, outputStream));
+    }
+
+    private void writeReaderBooks(Long readerId, OutputStream outputStream) {
+        Session session = entityManager.unwrap(Session.class);
+
+        try (ScrollableResults<ReaderBookDtoResponse> readerBooks = session
+                .createSelectionQuery(ReaderBookRepository.READER_BOOK_VIEW + "WHERE rb.id.readerId = :readerId " +
+                                              "ORDER BY rb.id.bookId", ReaderBookDtoResponse.class)
+                .setParameter("readerId", readerId)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+
+            List<ReaderBookDtoResponse> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (readerBooks.next()) {
+                chunk.add(readerBooks.get());
+                if (chunk.size() == CHUNK_SIZE) {
+                    writeChunk(readerId, chunk, outputStream);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(readerId, chunk, outputStream);
+            }
+        } catch (IOException e) {
+            // Mostly the client went away in the middle of the download
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeChunk(Long readerId, List<ReaderBookDtoResponse> chunk, OutputStream outputStream)
+            throws IOException {
+        List<Long> bookIds = chunk.stream().map(ReaderBookDtoResponse::id).toList();
+        Map<Long, List<Quote>> quotesByBookId = quoteRepository.findAllByReaderIdAndBookIdIn(readerId, bookIds)
+                .stream()
+                .collect(Collectors.groupingBy(quote -> quote.getReaderBook().getId().getBookId()));
+        Map<Long, List<Word>> wordsByBookId = wordRepository.findAllByReaderIdAndBookIdIn(readerId, bookIds)
+                .stream()
+                .collect(Collectors.groupingBy(word -> word.getReaderBook().getId().getBookId()));
+
+        for (ReaderBookDtoResponse readerBook : chunk) {
+            ReaderBookDtoResponse line = readerBook.toBuilder()
+                    .quotes(quotesByBookId.getOrDefault(readerBook.id(), List.of()))
+                    .words(wordsByBookId.getOrDefault(readerBook.id(), List.of()))
+                    .build();
+            outputStream.write(objectMapper.writeValueAsBytes(line));
+            outputStream.write(NEW_LINE);
+        }
+        outputStream.flush();
+
+        // Drop the quotes/words of this chunk from the persistence context so it doesn't grow with the export
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,175 @@
+package dev.bakr.library_manager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.bakr.library_manager.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/* Admission control in front of the password check of a login. A BCrypt verification takes tens of milliseconds of CPU,
+so a burst of login attempts (e.g., credential stuffing) used to take every Tomcat thread and starve the rest of the API.
+
+- Each client IP and each username has a token bucket, an attempt over either of them is rejected right away.
+- The verification itself runs on a small dedicated pool (sized for the CPU, BCrypt is CPU bound) with a bounded queue.
+When the queue is full, or the attempt waits too long, it's rejected with a 429 instead of piling up. */
+@Service
+public class LoginAdmissionService {
+    private final ThreadPoolExecutor verifiers;
+    private final Duration verificationTimeout;
+    private final Cache<String, TokenBucket> bucketsByClientIp;
+    private final Cache<String, TokenBucket> bucketsByUsername;
+    private final int ipBucketCapacity;
+    private final Duration ipRefillPeriod;
+    private final int usernameBucketCapacity;
+    private final Duration usernameRefillPeriod;
+    private final Timer verificationTimer;
+    private final Counter ipRejections;
+    private final Counter usernameRejections;
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+
+    public LoginAdmissionService(MeterRegistry meterRegistry,
+            @Value("${security.login.verification-threads:0}") int verificationThreads,
+            @Value("${security.login.queue-capacity:64}") int queueCapacity,
+            @Value("${security.login.verification-timeout:5s}") Duration verificationTimeout,
+            @Value("${security.login.ip-bucket.capacity:20}") int ipBucketCapacity,
+            @Value("${security.login.ip-bucket.refill-period:3s}") Duration ipRefillPeriod,
+            @Value("${security.login.username-bucket.capacity:5}") int usernameBucketCapacity,
+            @Value("${security.login.username-bucket.refill-period:12s}") Duration usernameRefillPeriod,
+            @Value("${security.login.buckets.maximum-size:100000}") long maximumBuckets) {
+        // 0 = one thread per CPU core
+        int threads = verificationThreads > 0 ? verificationThreads : Runtime.getRuntime().availableProcessors();
+        this.verifiers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                                new ArrayBlockingQueue<>(queueCapacity),
+                                                Thread.ofPlatform().name("login-verifier-", 0).daemon().factory(),
+                                                new ThreadPoolExecutor.AbortPolicy());
+        this.verificationTimeout = verificationTimeout;
+        this.ipBucketCapacity = ipBucketCapacity;
+        this.ipRefillPeriod = ipRefillPeriod;
+        this.usernameBucketCapacity = usernameBucketCapacity;
+        this.usernameRefillPeriod = usernameRefillPeriod;
+        // An idle bucket is full again after capacity * refill period, so dropping it after that changes nothing
+        this.bucketsByClientIp = Caffeine.newBuilder()
+                .maximumSize(maximumBuckets)
+                .expireAfterAccess(ipRefillPeriod.multipliedBy(ipBucketCapacity))
+                .build();
+        this.bucketsByUsername = Caffeine.newBuilder()
+                .maximumSize(maximumBuckets)
+                .expireAfterAccess(usernameRefillPeriod.multipliedBy(usernameBucketCapacity))
+                .build();
+
+        this.verificationTimer = Timer.builder("security.login.verification")
+                .description("Time spent verifying the password of a login (BCrypt)")
+                .register(meterRegistry);
+        Gauge.builder("security.login.queue", verifiers, executor -> executor.getQueue().size())
+                .description("Logins waiting for a verification thread")
+                .register(meterRegistry);
+        this.ipRejections = meterRegistry.counter("security.login.rejected", "reason", "ip_rate");
+        this.usernameRejections = meterRegistry.counter("security.login.rejected", "reason", "username_rate");
+        this.queueFullRejections = meterRegistry.counter("security.login.rejected", "reason", "queue_full");
+        this.timeoutRejections = meterRegistry.counter("security.login.rejected", "reason", "timeout");
+    }
+
+    public Authentication authenticate(String username, String clientIp, Supplier<Authentication> passwordVerification) {
+        TokenBucket ipBucket = bucketsByClientIp.get(clientIp, ip -> new TokenBucket(ipBucketCapacity, ipRefillPeriod));
+        if (!ipBucket.tryConsume()) {
+            ipRejections.increment();
+            throw new TooManyRequestsException("Too many login attempts from this address! Try again later.",
+                                               ipBucket.secondsUntilNextToken());
+        }
+
+        String usernameKey = username.toLowerCase(Locale.ROOT);
+        TokenBucket usernameBucket = bucketsByUsername.get(usernameKey,
+                                                           name -> new TokenBucket(usernameBucketCapacity,
+                                                                                   usernameRefillPeriod));
+        if (!usernameBucket.tryConsume()) {
+            usernameRejections.increment();
+            throw new TooManyRequestsException("Too many login attempts for this account! Try again later.",
+                                               usernameBucket.secondsUntilNextToken());
+        }
+
+        Future<Authentication> verification;
+        try {
+            verification = verifiers.submit(() -> verificationTimer.record(passwordVerification));
+        } catch (RejectedExecutionException e) {
+            queueFullRejections.increment();
+            throw new TooManyRequestsException("The server is busy logging in other readers! Try again in a moment.", 1);
+        }
+
+        try {
+            return verification.get(verificationTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            verification.cancel(true);
+            timeoutRejections.increment();
+            throw new TooManyRequestsException("The server is busy logging in other readers! Try again in a moment.", 1);
+        } catch (InterruptedException e) {
+            verification.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying the login", e);
+        } catch (ExecutionException e) {
+            // e.g., BadCredentialsException, the caller handles it as before
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        verifiers.shutdownNow();
+    }
+
+    // Starts full, and gets one token back every refill period (up to the capacity)
+    private static final class TokenBucket {
+        private final int capacity;
+        private final long refillPeriodNanos;
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(int capacity, Duration refillPeriod) {
+            this.capacity = capacity;
+            this.refillPeriodNanos = refillPeriod.toNanos();
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        private synchronized boolean tryConsume() {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private synchronized long secondsUntilNextToken() {
+            refill();
+            long nanosLeft = (long) ((1 - Math.min(tokens, 1)) * refillPeriodNanos);
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanosLeft + TimeUnit.SECONDS.toNanos(1) - 1));
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (double) (now - lastRefillNanos) / refillPeriodNanos);
+            lastRefillNanos = now;
+        }
+    }
+}
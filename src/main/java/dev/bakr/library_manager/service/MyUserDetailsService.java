@@ -1,22 +1,49 @@
 package dev.bakr.library_manager.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.bakr.library_manager.model.Reader;
 import dev.bakr.library_manager.model.ReaderPrincipal;
 import dev.bakr.library_manager.repository.ReaderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Optional;
 
 @Service
 public class MyUserDetailsService implements UserDetailsService {
     private final ReaderRepository readerRepository;
+    private final boolean isRevocationCheckEnabled;
+    /* The current state of recently seen readers, so a token of a reader that was removed (or disabled) since it was
+    issued stops working within the ttl, at the cost of one query per reader per ttl instead of one per request.
+    Empty Optional = the reader doesn't exist anymore. */
+    private final Cache<Long, Optional<ReaderPrincipal>> principalsById;
 
-    public MyUserDetailsService(ReaderRepository readerRepository) {
+    public MyUserDetailsService(ReaderRepository readerRepository,
+            MeterRegistry meterRegistry,
+            @Value("${security.principal-cache.enabled:true}") boolean isRevocationCheckEnabled,
+            @Value("${security.principal-cache.ttl:30s}") Duration principalCacheTtl,
+            @Value("${security.principal-cache.maximum-size:10000}") long principalCacheSize) {
         this.readerRepository = readerRepository;
+        this.isRevocationCheckEnabled = isRevocationCheckEnabled;
+        this.principalsById = Caffeine.newBuilder()
+                .maximumSize(principalCacheSize)
+                .expireAfterWrite(principalCacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principalsById, "readerPrincipals");
     }
 
+    // On the primary (read-write transaction), a reader who has just verified their email can log in right away
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         Reader reader = readerRepository.findByUsername(username);
 
@@ -26,4 +53,31 @@ public class MyUserDetailsService implements UserDetailsService {
 
         return new ReaderPrincipal(reader);
     }
+
+    /* Whether the reader behind a token (built from its claims) may still use it. With the revocation check turned off
+    the claims are trusted until the token expires, and this costs nothing. */
+    public boolean isStillActive(ReaderPrincipal tokenPrincipal) {
+        if (!isRevocationCheckEnabled) {
+            return tokenPrincipal.isEnabled();
+        }
+
+        Optional<ReaderPrincipal> currentPrincipal = principalsById.getIfPresent(tokenPrincipal.getId());
+        if (currentPrincipal == null) {
+            currentPrincipal = readerRepository.findById(tokenPrincipal.getId())
+                    .map(reader -> new ReaderPrincipal(reader.getId(),
+                                                       reader.getUsername(),
+                                                       Boolean.TRUE.equals(reader.getIsEnabled())));
+            principalsById.put(tokenPrincipal.getId(), currentPrincipal);
+        }
+
+        return currentPrincipal
+                .filter(ReaderPrincipal::isEnabled)
+                .filter(principal -> principal.getUsername().equals(tokenPrincipal.getUsername()))
+                .isPresent();
+    }
+
+    // For changes that should cut off the reader's tokens right away instead of within the ttl
+    public void evictPrincipal(Long readerId) {
+        principalsById.invalidate(readerId);
+    }
 }
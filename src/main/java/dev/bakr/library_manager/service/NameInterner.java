@@ -0,0 +1,155 @@
+package dev.bakr.library_manager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.bakr.library_manager.utils.ConstraintViolations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/* Find-or-create by name for the reference tables (authors, categories, publishers), shared by their services. Every book
+that gets added needs the three ids, and the same few thousand names come up again and again, so they're kept in memory.
+
+Creating a missing name relies on the unique index on the name column instead of locks: the INSERT runs in its own
+short transaction, and if a concurrent request inserted the same name first, the unique index rejects ours and we read
+the winner's id (again in a new transaction, so the read isn't served from an older snapshot). That is one INSERT and at
+most one extra SELECT per missing name, however many requests race on it.
+
+The caller must not be in a transaction itself: the INSERT would need a second connection while the caller's is held,
+and with every request doing that, a full pool waits on itself until the connection timeout. BookService resolves the
+names before it opens the transaction that adds the reader's copy. */
+@Service
+public class NameInterner {
+    private final TransactionTemplate newTransaction;
+    private final Cache<String, Long> idsByName;
+
+    public NameInterner(PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${catalog.name-cache.maximum-size:50000}") long maximumSize,
+            @Value("${catalog.name-cache.ttl:1h}") Duration ttl) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.idsByName = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                // Bounds how long another node can keep the id of a row that OrphanCollector removed
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByName, "referenceNames");
+    }
+
+    /* The id comes from the interning cache (or one insert-or-get), and the row is returned as a reference, so adding a
+    book by a known author/category/publisher doesn't touch its table at all. */
+    public <T> T findOrCreate(NameTable<T> table, String name) {
+        Long cachedId = idsByName.getIfPresent(table.key(name));
+        if (cachedId != null) {
+            return table.repository().getReferenceById(cachedId);
+        }
+
+        Long id = table.findIdByName().apply(name).orElseGet(() -> insertOrGet(table, name));
+        remember(table, name, id);
+        return table.repository().getReferenceById(id);
+    }
+
+    /* Resolves a whole set of names with one IN query, and inserts the missing ones together so they can go out in one
+    JDBC batch. The map ignores case because that's how MySQL compares the names in the IN query as well (so "anna
+    lembke" finds "Anna Lembke" instead of creating a second author). */
+    public <T> Map<String, T> findOrCreateAll(NameTable<T> table, Set<String> names) {
+        Map<String, T> rowsByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        table.findAllByNameIn().apply(names).forEach(row -> {
+            rowsByName.putIfAbsent(table.nameOf().apply(row), row);
+            remember(table, table.nameOf().apply(row), table.idOf().apply(row));
+        });
+
+        List<String> missingNames = names.stream()
+                .filter(name -> !rowsByName.containsKey(name))
+                .toList();
+        insertAll(table, missingNames).forEach((name, id) -> rowsByName.put(name, table.repository().getReferenceById(id)));
+
+        return rowsByName;
+    }
+
+    // If another request got in first, we fall back to one name at a time
+    private <T> Map<String, Long> insertAll(NameTable<T> table, List<String> missingNames) {
+        Map<String, Long> idsByMissingName = new HashMap<>();
+        if (missingNames.isEmpty()) {
+            return idsByMissingName;
+        }
+
+        checkNoTransaction();
+        try {
+            List<T> rows = newTransaction.execute(status -> table.repository().saveAll(
+                    missingNames.stream().map(table.newRow()).toList()));
+            for (int i = 0; i < missingNames.size(); i++) {
+                idsByMissingName.put(missingNames.get(i), table.idOf().apply(rows.get(i)));
+            }
+        } catch (DataIntegrityViolationException exception) {
+            if (!ConstraintViolations.isViolationOf(exception, table.uniqueConstraint())) {
+                throw exception;
+            }
+            missingNames.forEach(name -> idsByMissingName.put(name, insertOrGet(table, name)));
+        }
+
+        idsByMissingName.forEach((name, id) -> remember(table, name, id));
+        return idsByMissingName;
+    }
+
+    private void remember(NameTable<?> table, String name, Long id) {
+        idsByName.put(table.key(name), id);
+    }
+
+    // The names of removed rows (see OrphanCollector), so they aren't resolved to an id that doesn't exist anymore
+    public void forget(NameTable<?> table, Collection<String> names) {
+        idsByName.invalidateAll(names.stream().map(table::key).toList());
+    }
+
+    private <T> Long insertOrGet(NameTable<T> table, String name) {
+        checkNoTransaction();
+        try {
+            return newTransaction.execute(status -> table.idOf().apply(
+                    table.repository().saveAndFlush(table.newRow().apply(name))));
+        } catch (DataIntegrityViolationException exception) {
+            if (!ConstraintViolations.isViolationOf(exception, table.uniqueConstraint())) {
+                throw exception;
+            }
+            return newTransaction.execute(status -> table.findIdByName().apply(name)).orElseThrow(() -> exception);
+        }
+    }
+
+    private static void checkNoTransaction() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Names are created in a transaction of their own, resolve them before "
+                                                    + "starting the caller's transaction");
+        }
+    }
+
+    /* How to read and write the names of one reference table. The unique constraint name also namespaces the cache keys,
+    and the keys are lowercased because MySQL compares the names case-insensitively (so does the unique index). */
+    public record NameTable<T>(String uniqueConstraint,
+                               JpaRepository<T, Long> repository,
+                               Function<String, Optional<Long>> findIdByName,
+                               Function<Collection<String>, List<T>> findAllByNameIn,
+                               Function<T, String> nameOf,
+                               Function<T, Long> idOf,
+                               Function<String, T> newRow) {
+        private String key(String name) {
+            return uniqueConstraint + ':' + name.toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.model.Author;
+import dev.bakr.library_manager.model.Book;
+import dev.bakr.library_manager.model.Category;
+import dev.bakr.library_manager.model.Publisher;
+import dev.bakr.library_manager.repository.OrphanedCatalogRepository;
+import dev.bakr.library_manager.repository.OrphanedCatalogRepository.CatalogTable;
+import dev.bakr.library_manager.repository.OrphanedCatalogRepository.Orphan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/* Removes the catalog rows nobody uses anymore: books that are in no reader's collection, then authors, categories and
+publishers that no book points to. DELETE /books/{id} only removes the reader's copy and leaves this to the collector.
+
+Mark and sweep, one chunk of ids per statement: a run stamps the unreferenced rows with orphaned_at (and clears it on the
+ones that are referenced again), and deletes the rows stamped more than grace-period ago, checking once more that
+nothing points to them. The grace period has to be longer than the ttl of the caches that can hand out an id without
+reading the row (catalog.isbn-cache.ttl, catalog.name-cache.ttl), so no other node is still using the id of a row it
+deletes. A row that becomes an orphan because of this run (e.g., the author of a deleted book) is removed a grace
+period later.
+
+Only one node runs it at a time (JobLeaseService). Metrics: catalog.orphans.marked / catalog.orphans.reclaimed per
+table, catalog.orphans.collection for the run time. */
+@Service
+public class OrphanCollector {
+    private static final Logger logger = LoggerFactory.getLogger(OrphanCollector.class);
+    private static final String JOB_NAME = "orphan-collector";
+    private final OrphanedCatalogRepository orphanedCatalogRepository;
+    private final JobLeaseService jobLeaseService;
+    private final BookCatalogCache bookCatalogCache;
+    private final AuthorService authorService;
+    private final CategoryService categoryService;
+    private final PublisherService publisherService;
+    private final SessionFactory sessionFactory;
+    private final Duration gracePeriod;
+    private final int chunkSize;
+    private final Duration leaseDuration;
+    private final Map<CatalogTable, Counter> markedCounters = new EnumMap<>(CatalogTable.class);
+    private final Map<CatalogTable, Counter> reclaimedCounters = new EnumMap<>(CatalogTable.class);
+    private final Timer collectionTimer;
+
+    public OrphanCollector(OrphanedCatalogRepository orphanedCatalogRepository,
+            JobLeaseService jobLeaseService,
+            BookCatalogCache bookCatalogCache,
+            AuthorService authorService,
+            CategoryService categoryService,
+            PublisherService publisherService,
+            EntityManagerFactory entityManagerFactory,
+            MeterRegistry meterRegistry,
+            @Value("${catalog.orphan-collector.grace-period:24h}") Duration gracePeriod,
+            @Value("${catalog.orphan-collector.chunk-size:1000}") int chunkSize,
+            @Value("${catalog.orphan-collector.lease:30m}") Duration leaseDuration) {
+        this.orphanedCatalogRepository = orphanedCatalogRepository;
+        this.jobLeaseService = jobLeaseService;
+        this.bookCatalogCache = bookCatalogCache;
+        this.authorService = authorService;
+        this.categoryService = categoryService;
+        this.publisherService = publisherService;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.gracePeriod = gracePeriod;
+        this.chunkSize = chunkSize;
+        this.leaseDuration = leaseDuration;
+
+        for (CatalogTable table : CatalogTable.values()) {
+            markedCounters.put(table, meterRegistry.counter("catalog.orphans.marked", "table", table.tableName()));
+            reclaimedCounters.put(table, meterRegistry.counter("catalog.orphans.reclaimed", "table", table.tableName()));
+        }
+        this.collectionTimer = Timer.builder("catalog.orphans.collection")
+                .description("Time of one orphan collection run (on the node that held the lease)")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${catalog.orphan-collector.initial-delay:10m}",
+            fixedDelayString = "${catalog.orphan-collector.interval:1h}")
+    public void collect() {
+        if (!jobLeaseService.tryAcquire(JOB_NAME, leaseDuration)) {
+            logger.debug("The orphan collector is running on another node");
+            return;
+        }
+
+        try {
+            collectionTimer.record(this::collectOnce);
+        } catch (RuntimeException e) {
+            logger.error("Error collecting the orphaned catalog rows! {}", e.getMessage());
+        } finally {
+            jobLeaseService.release(JOB_NAME);
+        }
+    }
+
+    // Starts the grace period of the books of a deleted account right away
+    public void markBooksIfUnreferenced(Collection<Long> bookIds) {
+        int markedCount = orphanedCatalogRepository.markUnreferenced(CatalogTable.BOOKS, bookIds, LocalDateTime.now());
+        markedCounters.get(CatalogTable.BOOKS).increment(markedCount);
+    }
+
+    private void collectOnce() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(gracePeriod);
+        int reclaimedCount = 0;
+
+        for (CatalogTable table : CatalogTable.values()) {
+            int markedCount = mark(table, now);
+            int tableReclaimedCount = sweep(table, cutoff);
+            if (markedCount > 0 || tableReclaimedCount > 0) {
+                logger.info("Orphaned {}: {} newly marked, {} removed", table.tableName(), markedCount,
+                            tableReclaimedCount);
+            }
+            reclaimedCount += tableReclaimedCount;
+        }
+
+        // Cached query results (findByIsbn, findByName, ...) may hold the ids of removed rows
+        if (reclaimedCount > 0) {
+            sessionFactory.getCache().evictDefaultQueryRegion();
+        }
+    }
+
+    private int mark(CatalogTable table, LocalDateTime now) {
+        long maxId = orphanedCatalogRepository.findMaxId(table);
+        int markedCount = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+            long toId = fromId + chunkSize - 1;
+            orphanedCatalogRepository.unmarkReferenced(table, fromId, toId);
+            markedCount += orphanedCatalogRepository.markUnreferenced(table, fromId, toId, now);
+        }
+        markedCounters.get(table).increment(markedCount);
+        return markedCount;
+    }
+
+    /* Every orphan a chunk returns is either deleted or, when something points to it again, unmarked, so the next chunk
+    doesn't return it twice */
+    private int sweep(CatalogTable table, LocalDateTime cutoff) {
+        int reclaimedCount = 0;
+        List<Orphan> orphans;
+        do {
+            orphans = orphanedCatalogRepository.findOrphanedBefore(table, cutoff, chunkSize);
+            if (orphans.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = orphans.stream().map(Orphan::id).toList();
+            try {
+                reclaimedCount += orphanedCatalogRepository.deleteOrphans(table, ids, cutoff);
+            } catch (DataIntegrityViolationException e) {
+                // A row got referenced between the check and the delete (its foreign key stopped the delete)
+                logger.debug("Skipping a chunk of orphaned {} that is in use again", table.tableName());
+            }
+            orphanedCatalogRepository.unmarkReferenced(table, ids);
+            forget(table, orphans);
+        } while (orphans.size() == chunkSize);
+
+        reclaimedCounters.get(table).increment(reclaimedCount);
+        return reclaimedCount;
+    }
+
+    // Local caches only, the other nodes' entries run out within their ttl (see the grace period above)
+    private void forget(CatalogTable table, List<Orphan> orphans) {
+        List<String> keys = orphans.stream().map(Orphan::key).toList();
+        Class<?> entityClass = switch (table) {
+            case BOOKS -> {
+                keys.forEach(bookCatalogCache::evict);
+                yield Book.class;
+            }
+            case AUTHORS -> {
+                authorService.forgetAuthors(keys);
+                yield Author.class;
+            }
+            case CATEGORIES -> {
+                categoryService.forgetCategories(keys);
+                yield Category.class;
+            }
+            case PUBLISHERS -> {
+                publisherService.forgetPublishers(keys);
+                yield Publisher.class;
+            }
+        };
+        orphans.forEach(orphan -> sessionFactory.getCache().evictEntityData(entityClass, orphan.id()));
+    }
+}
@@ -2,22 +2,45 @@ package dev.bakr.library_manager.service;
 
 import dev.bakr.library_manager.model.Publisher;
 import dev.bakr.library_manager.repository.PublisherRepository;
+import dev.bakr.library_manager.service.NameInterner.NameTable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class PublisherService {
-    private final PublisherRepository publisherRepository;
+    private final NameInterner nameInterner;
+    private final NameTable<Publisher> publisherNameTable;
 
-    public PublisherService(PublisherRepository publisherRepository) {
-        this.publisherRepository = publisherRepository;
+    public PublisherService(PublisherRepository publisherRepository, NameInterner nameInterner) {
+        this.nameInterner = nameInterner;
+        this.publisherNameTable = new NameTable<>(
+                "uk_publishers_name",
+                publisherRepository,
+                publisherRepository::findIdByName,
+                publisherRepository::findAllByNameIn,
+                Publisher::getName,
+                Publisher::getId,
+                PublisherService::newPublisher);
     }
 
     public Publisher findOrCreatePublisher(String publisherName) {
-        return publisherRepository.findByName(publisherName)
-                .orElseGet(() -> {
-                    Publisher publisher = new Publisher();
-                    publisher.setName(publisherName);
-                    return publisherRepository.save(publisher);
-                });
+        return nameInterner.findOrCreate(publisherNameTable, publisherName);
+    }
+
+    public Map<String, Publisher> findOrCreatePublishers(Set<String> publisherNames) {
+        return nameInterner.findOrCreateAll(publisherNameTable, publisherNames);
+    }
+
+    public void forgetPublishers(Collection<String> names) {
+        nameInterner.forget(publisherNameTable, names);
+    }
+
+    private static Publisher newPublisher(String publisherName) {
+        Publisher publisher = new Publisher();
+        publisher.setName(publisherName);
+        return publisher;
     }
 }
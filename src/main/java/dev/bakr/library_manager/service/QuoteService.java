@@ -1,8 +1,10 @@
 package dev.bakr.library_manager.service;
 
 import dev.bakr.library_manager.exceptions.ExistsException;
+import dev.bakr.library_manager.exceptions.InvalidInputsException;
 import dev.bakr.library_manager.exceptions.NotFoundException;
 import dev.bakr.library_manager.mappers.QuoteMapper;
+import dev.bakr.library_manager.model.Quote;
 import dev.bakr.library_manager.model.ReaderBook;
 import dev.bakr.library_manager.model.ReaderPrincipal;
 import dev.bakr.library_manager.repository.QuoteRepository;
@@ -10,13 +12,22 @@ import dev.bakr.library_manager.repository.ReaderBookRepository;
 import dev.bakr.library_manager.repository.ReaderRepository;
 import dev.bakr.library_manager.requests.QuoteDtoRequest;
 import dev.bakr.library_manager.responses.QuoteDtoResponse;
+import dev.bakr.library_manager.responses.QuoteSearchResultDtoResponse;
+import dev.bakr.library_manager.utils.ConstraintViolations;
+import dev.bakr.library_manager.utils.SearchQuery;
 import dev.bakr.library_manager.utils.SecurityCheck;
+import dev.bakr.library_manager.utils.SnippetHighlighter;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
 public class QuoteService {
+    private static final String DUPLICATE_QUOTE_CONSTRAINT = "uk_quotes_text_hash";
+    private static final int DEFAULT_SEARCH_RESULTS = 20;
+    private static final int MAX_SEARCH_RESULTS = 100;
     private final QuoteRepository quoteRepository;
     private final ReaderRepository readerRepository;
     private final ReaderBookRepository readerBookRepository;
@@ -44,16 +55,9 @@ public class QuoteService {
                 "Book not found in your collection to add the quote!"
         ));
 
-        boolean isQuoteExistsInReaderBook = quoteRepository.existsByTextAndReaderBookId(quoteDtoRequest.text(),
-                                                                                        readerBookId
-        );
-        if (isQuoteExistsInReaderBook) {
-            throw new ExistsException("You already have this quote in this book copy!");
-        }
-
         var newQuote = quoteMapper.toEntity(quoteDtoRequest);
         newQuote.setReaderBook(readerBook);
-        var savedQuote = quoteRepository.save(newQuote);
+        var savedQuote = saveUnlessDuplicate(newQuote, "You already have this quote in this book copy!");
 
         readerBook.getQuotes().add(savedQuote);
         readerBookRepository.save(readerBook);
@@ -82,7 +86,7 @@ public class QuoteService {
 
         theQuoteToUpdate.setText(quoteDtoRequest.text());
         theQuoteToUpdate.setPageNumber(quoteDtoRequest.pageNumber());
-        quoteRepository.save(theQuoteToUpdate);
+        saveUnlessDuplicate(theQuoteToUpdate, "You already have another quote with this text in this book copy!");
 
         return quoteMapper.toDto(theQuoteToUpdate);
     }
@@ -112,6 +116,7 @@ public class QuoteService {
         return "You've successfully deleted the quote.";
     }
 
+    @Transactional(readOnly = true)
     public QuoteDtoResponse getQuote(Long bookId, Long quoteId) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
@@ -134,6 +139,7 @@ public class QuoteService {
         return quoteMapper.toDto(theQuoteToGet);
     }
 
+    @Transactional(readOnly = true)
     public List<QuoteDtoResponse> getQuotes(Long bookId) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
@@ -149,4 +155,46 @@ public class QuoteService {
 
         return readerBook.getQuotes().stream().map(quoteMapper::toDto).toList();
     }
+
+    @Transactional(readOnly = true)
+    public List<QuoteSearchResultDtoResponse> searchQuotes(String query, Integer limit) {
+        ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
+        Long authenticatedReaderId = authenticatedReader.getId();
+
+        readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+                "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
+
+        SearchQuery searchQuery = SearchQuery.parse(query == null ? "" : query);
+        if (searchQuery.isEmpty()) {
+            throw new InvalidInputsException("Enter a word or a \"phrase\" to search your quotes for!");
+        }
+        int maxResults = limit == null ? DEFAULT_SEARCH_RESULTS : limit;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_RESULTS) {
+            throw new InvalidInputsException("The limit must be between 1 and " + MAX_SEARCH_RESULTS + "!");
+        }
+
+        // Only the returned page gets highlighted, so the cost doesn't grow with the number of quotes the reader has
+        List<String> fragments = searchQuery.fragments();
+        return quoteRepository.searchQuotes(authenticatedReaderId, searchQuery, maxResults)
+                .stream()
+                .map(hit -> new QuoteSearchResultDtoResponse(hit.quoteId(),
+                                                             hit.bookId(),
+                                                             hit.bookTitle(),
+                                                             hit.pageNumber(),
+                                                             SnippetHighlighter.highlight(hit.text(), fragments)))
+                .toList();
+    }
+
+    /* No lookup before the write: the unique index on (reader, book, text hash) rejects a duplicate (the same text up to
+    case and whitespace, see TextNormalizer), also when two requests add it at the same time */
+    private Quote saveUnlessDuplicate(Quote quote, String duplicateMessage) {
+        try {
+            return quoteRepository.saveAndFlush(quote);
+        } catch (DataIntegrityViolationException exception) {
+            if (!ConstraintViolations.isViolationOf(exception, DUPLICATE_QUOTE_CONSTRAINT)) {
+                throw exception;
+            }
+            throw new ExistsException(duplicateMessage);
+        }
+    }
 }
@@ -20,11 +20,10 @@ public class ReaderService {
         ReaderPrincipal readerPrincipal = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = readerPrincipal.getId();
 
-        readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
+        // The principal only carries what's in the token, the rest comes from the database
+        Reader authenticatedReader = readerRepository.findById(authenticatedReaderId).orElseThrow(() -> new NotFoundException(
                 "Looks like the reader with id: " + authenticatedReaderId + " has been removed from the database!"));
 
-        Reader authenticatedReader = readerPrincipal.getReader();
-
         return new ReaderDtoResponse(authenticatedReaderId,
                                      authenticatedReader.getUsername(),
                                      authenticatedReader.getEmail(),
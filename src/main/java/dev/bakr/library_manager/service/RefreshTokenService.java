@@ -0,0 +1,114 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.exceptions.InvalidInputsException;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.model.RefreshToken;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.repository.RefreshTokenRepository;
+import dev.bakr.library_manager.repository.RefreshTokenRepository.RefreshTokenView;
+import dev.bakr.library_manager.utils.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/* Refresh tokens let a client get a new (short-lived) access token without logging in again, i.e., without another
+BCrypt check. A refresh costs one primary key lookup and the HMAC of the new access token.
+
+Tokens rotate: each refresh marks the presented token as replaced and hands out a new one of the same family. A replaced
+token showing up again means that two parties have it (e.g., it was stolen), so the whole family is revoked and the
+reader has to log in again. */
+@Service
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final SecureRandom secureRandom = new SecureRandom();
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final ReaderRepository readerRepository;
+    private final Long refreshExpiration;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+            ReaderRepository readerRepository,
+            @Value("${security.jwt.refresh-expiration-time}") Long refreshExpiration) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.readerRepository = readerRepository;
+        this.refreshExpiration = refreshExpiration;
+    }
+
+    // The first token of a new family (on login)
+    @Transactional
+    public String issueRefreshToken(Long readerId) {
+        return saveNewToken(readerId, UUID.randomUUID().toString());
+    }
+
+    /* noRollbackFor: revoking the family on reuse has to be committed even though the refresh itself fails */
+    @Transactional(noRollbackFor = InvalidInputsException.class)
+    public RotatedRefreshToken rotate(String refreshToken) {
+        RefreshTokenView presentedToken = refreshTokenRepository.findViewByTokenHash(Hashing.sha256Hex(refreshToken))
+                .orElseThrow(() -> new InvalidInputsException("Invalid refresh token! Login again."));
+        LocalDateTime now = LocalDateTime.now();
+
+        if (presentedToken.expiresAt().isBefore(now)) {
+            throw new InvalidInputsException("The refresh token has expired! Login again.");
+        }
+
+        // Already replaced (or being replaced right now by a concurrent request with the same token)
+        if (presentedToken.replacedAt() != null || refreshTokenRepository.markReplaced(presentedToken.tokenHash(), now) == 0) {
+            refreshTokenRepository.deleteByFamilyId(presentedToken.familyId());
+            logger.warn("A used refresh token of the reader {} was presented again, revoked its family",
+                        presentedToken.readerId());
+            throw new InvalidInputsException("The refresh token was already used! Login again.");
+        }
+
+        if (!Boolean.TRUE.equals(presentedToken.isEnabled())) {
+            throw new InvalidInputsException("This account is no longer active! Login again.");
+        }
+
+        String newRefreshToken = saveNewToken(presentedToken.readerId(), presentedToken.familyId());
+        ReaderPrincipal readerPrincipal = new ReaderPrincipal(presentedToken.readerId(), presentedToken.username(), true);
+        return new RotatedRefreshToken(readerPrincipal, newRefreshToken);
+    }
+
+    // On logout, the token and every token that came from the same login
+    @Transactional
+    public void revokeFamily(String refreshToken) {
+        refreshTokenRepository.findViewByTokenHash(Hashing.sha256Hex(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.deleteByFamilyId(token.familyId()));
+    }
+
+    public Long getRefreshExpirationTime() {
+        return refreshExpiration;
+    }
+
+    // Like the revoked tokens, expired rows are removed by one periodic range delete
+    @Scheduled(fixedDelayString = "${security.jwt.refresh-sweep-interval:1h}")
+    public void sweepExpired() {
+        int sweptCount = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (sweptCount > 0) {
+            logger.info("Removed {} expired refresh tokens", sweptCount);
+        }
+    }
+
+    // 256 random bits, only its hash is stored
+    private String saveNewToken(Long readerId, String familyId) {
+        byte[] randomBytes = new byte[32];
+        secureRandom.nextBytes(randomBytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+
+        refreshTokenRepository.save(new RefreshToken(Hashing.sha256Hex(refreshToken),
+                                                     readerRepository.getReferenceById(readerId),
+                                                     familyId,
+                                                     LocalDateTime.now().plus(Duration.ofMillis(refreshExpiration))));
+        return refreshToken;
+    }
+
+    public record RotatedRefreshToken(ReaderPrincipal readerPrincipal, String refreshToken) {
+    }
+}
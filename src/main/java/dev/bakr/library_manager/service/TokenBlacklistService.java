@@ -1,61 +1,119 @@
 package dev.bakr.library_manager.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import dev.bakr.library_manager.model.RevokedToken;
+import dev.bakr.library_manager.repository.RevokedTokenRepository;
+import dev.bakr.library_manager.utils.Hashing;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Date;
-import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
+/* Logged out tokens live in the revoked_tokens table, so every node sees them and they survive a restart. Each node keeps
+a read-through cache in front of it: a revoked token stays cached (revoking can't be undone), and a "not revoked" answer
+is only trusted for the propagation delay, which is how long a logout on one node can take to reach the others.
+Expired rows are removed by one periodic range delete instead of a timer per token. */
 @Service
 public class TokenBlacklistService {
-    // Thread-safe set to store blacklisted tokens (to handle concurrent operation when multiple readers sign out at the same time)
-    private final Set<String> blacklistedTokens = ConcurrentHashMap.newKeySet();
-    private final JwtService jwtService;
+    private static final Logger logger = LoggerFactory.getLogger(TokenBlacklistService.class);
+    // For a token without an exp claim, keep it revoked for a day (the same as before)
+    private static final Duration NO_EXPIRATION_RETENTION = Duration.ofHours(24);
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Duration propagationDelay;
+    private final Cache<String, Boolean> isRevokedByTokenKey;
 
-    public TokenBlacklistService(JwtService jwtService) {
-        this.jwtService = jwtService;
+    public TokenBlacklistService(RevokedTokenRepository revokedTokenRepository,
+            MeterRegistry meterRegistry,
+            @Value("${security.token-blacklist.propagation-delay:10s}") Duration propagationDelay,
+            @Value("${security.token-blacklist.cache.maximum-size:100000}") long maximumSize) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.propagationDelay = propagationDelay;
+        this.isRevokedByTokenKey = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new RevocationExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, isRevokedByTokenKey, "revokedTokens");
     }
 
-    public void blacklistToken(String token) {
-        blacklistedTokens.add(token);
-        // Optional: Schedule automatic removal when token expires
-        scheduleTokenCleanup(token);
+    // The claims have to come from JwtService.parseClaims, i.e., the token is already verified
+    public void blacklistToken(Claims claims, String token) {
+        String tokenKey = tokenKey(claims, token);
+        LocalDateTime expiresAt = claims.getExpiration() == null
+                ? LocalDateTime.now().plus(NO_EXPIRATION_RETENTION)
+                : LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+
+        try {
+            revokedTokenRepository.save(new RevokedToken(tokenKey, expiresAt));
+        } catch (DataIntegrityViolationException e) {
+            // The same token was logged out twice, it's already there
+        }
+        isRevokedByTokenKey.put(tokenKey, true);
     }
 
-    public boolean isTokenBlacklisted(String token) {
-        return blacklistedTokens.contains(token);
+    public boolean isTokenBlacklisted(Claims claims, String token) {
+        String tokenKey = tokenKey(claims, token);
+        Boolean cachedIsRevoked = isRevokedByTokenKey.getIfPresent(tokenKey);
+        if (cachedIsRevoked != null) {
+            return cachedIsRevoked;
+        }
+
+        boolean isRevoked = revokedTokenRepository.existsById(tokenKey);
+        isRevokedByTokenKey.put(tokenKey, isRevoked);
+        return isRevoked;
     }
 
-    private void scheduleTokenCleanup(String blackListedToken) {
-        try {
-            // Get token expiration time
-            Date expiration = jwtService.extractExpiration(blackListedToken);
-            long delayMs = expiration.getTime() - System.currentTimeMillis();
-
-            if (delayMs > 0) {
-                /* Delay the garbage collecting until the JWT expires naturally, and do it automatically. Gives you an
-                executor that waits delayMs before running the task (removing the expired token from the list). */
-                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS)
-                        .execute(() -> {
-                            blacklistedTokens.remove(blackListedToken);
-                            System.out.println("Removed expired token from blacklist");
-                        });
-            }
-        } catch (Exception e) {
-            /* If we can't parse expiration (Maybe the token was malformed or had no exp claim.), so schedule cleanup 24
-            hours later just to avoid memory leaks. */
-            CompletableFuture.delayedExecutor(24, TimeUnit.HOURS)
-                    .execute(() -> blacklistedTokens.remove(blackListedToken));
+    /* Every node runs it, which is harmless (the delete is idempotent). A row is only useful until its token expires,
+    after that the token is rejected by the signature/expiration check before the blacklist is even asked. */
+    @Scheduled(fixedDelayString = "${security.token-blacklist.sweep-interval:10m}")
+    public void sweepExpired() {
+        int sweptCount = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (sweptCount > 0) {
+            logger.info("Removed {} expired tokens from the blacklist", sweptCount);
         }
     }
 
-    public int getBlacklistSize() {
-        return blacklistedTokens.size();
+    public long getBlacklistSize() {
+        return revokedTokenRepository.count();
     }
 
     public void clearBlacklist() {
-        blacklistedTokens.clear();
+        revokedTokenRepository.deleteAllInBatch();
+        isRevokedByTokenKey.invalidateAll();
+    }
+
+    /* The jti claim is enough to identify a token of ours. Tokens issued before it was added are keyed by their hash,
+    which has the same fixed size and doesn't put a usable token in the database. */
+    private static String tokenKey(Claims claims, String token) {
+        return claims.getId() != null ? claims.getId() : Hashing.sha256Hex(token);
+    }
+
+    private final class RevocationExpiry implements Expiry<String, Boolean> {
+        @Override
+        public long expireAfterCreate(String tokenKey, Boolean isRevoked, long currentTime) {
+            // Revoked entries only leave through the size bound, by the time they'd be stale the token has expired
+            return isRevoked ? Long.MAX_VALUE : propagationDelay.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenKey, Boolean isRevoked, long currentTime, long currentDuration) {
+            return expireAfterCreate(tokenKey, isRevoked, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenKey, Boolean isRevoked, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -1,34 +1,46 @@
 package dev.bakr.library_manager.service;
 
 import dev.bakr.library_manager.exceptions.ExistsException;
+import dev.bakr.library_manager.exceptions.InvalidInputsException;
 import dev.bakr.library_manager.exceptions.NotFoundException;
 import dev.bakr.library_manager.mappers.WordMapper;
 import dev.bakr.library_manager.model.ReaderBook;
 import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.model.Word;
 import dev.bakr.library_manager.repository.ReaderBookRepository;
 import dev.bakr.library_manager.repository.ReaderRepository;
 import dev.bakr.library_manager.repository.WordRepository;
 import dev.bakr.library_manager.requests.WordDtoRequest;
 import dev.bakr.library_manager.responses.WordDtoResponse;
+import dev.bakr.library_manager.responses.WordSuggestionDtoResponse;
+import dev.bakr.library_manager.utils.ConstraintViolations;
 import dev.bakr.library_manager.utils.SecurityCheck;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
 public class WordService {
+    private static final String DUPLICATE_WORD_CONSTRAINT = "uk_words_word_key";
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 50;
     private final WordRepository wordRepository;
     private final ReaderRepository readerRepository;
     private final ReaderBookRepository readerBookRepository;
     private final WordMapper wordMapper;
+    private final WordSuggestionIndex wordSuggestionIndex;
 
     public WordService(WordRepository wordRepository,
             ReaderRepository readerRepository,
-            ReaderBookRepository readerBookRepository, WordMapper wordMapper) {
+            ReaderBookRepository readerBookRepository, WordMapper wordMapper,
+            WordSuggestionIndex wordSuggestionIndex) {
         this.wordRepository = wordRepository;
         this.readerRepository = readerRepository;
         this.readerBookRepository = readerBookRepository;
         this.wordMapper = wordMapper;
+        this.wordSuggestionIndex = wordSuggestionIndex;
     }
 
     public WordDtoResponse addWord(Long bookId, WordDtoRequest wordDtoRequest) {
@@ -44,16 +56,10 @@ public class WordService {
                 "Book not found in your collection to add the word!"
         ));
 
-        boolean isWordExistsInReaderBook = wordRepository.existsByWordContentAndReaderBookId(wordDtoRequest.wordContent(),
-                                                                                             readerBookId
-        );
-        if (isWordExistsInReaderBook) {
-            throw new ExistsException("You already have this word in this book copy!");
-        }
-
         var newWord = wordMapper.toEntity(wordDtoRequest);
         newWord.setReaderBook(readerBook);
-        var savedWord = wordRepository.save(newWord);
+        var savedWord = saveUnlessDuplicate(newWord, "You already have this word in this book copy!");
+        wordSuggestionIndex.wordSaved(authenticatedReaderId, toSuggestion(bookId, savedWord));
 
         readerBook.getWords().add(savedWord);
         readerBookRepository.save(readerBook);
@@ -84,7 +90,8 @@ public class WordService {
         theWordToUpdate.setTranslation(wordDtoRequest.translation());
         theWordToUpdate.setRelatedSentence(wordDtoRequest.relatedSentence());
         theWordToUpdate.setPageNumber(wordDtoRequest.pageNumber());
-        wordRepository.save(theWordToUpdate);
+        saveUnlessDuplicate(theWordToUpdate, "You already have this word in this book copy!");
+        wordSuggestionIndex.wordSaved(authenticatedReaderId, toSuggestion(bookId, theWordToUpdate));
 
         return wordMapper.toDto(theWordToUpdate);
     }
@@ -107,6 +114,7 @@ public class WordService {
             throw new ExistsException("This word isn't found in this book copy to delete it!");
         }
         wordRepository.delete(theWordToDelete);
+        wordSuggestionIndex.wordDeleted(authenticatedReaderId, theWordToDelete.getId());
 
         readerBook.getWords().removeIf((word) -> word.equals(theWordToDelete));
         readerBookRepository.save(readerBook);
@@ -114,6 +122,7 @@ public class WordService {
         return "You've successfully deleted the word.";
     }
 
+    @Transactional(readOnly = true)
     public WordDtoResponse getWord(Long bookId, Long wordId) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
@@ -136,6 +145,7 @@ public class WordService {
         return wordMapper.toDto(theWordToGet);
     }
 
+    @Transactional(readOnly = true)
     public List<WordDtoResponse> getWords(Long bookId) {
         ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
         Long authenticatedReaderId = authenticatedReader.getId();
@@ -151,4 +161,37 @@ public class WordService {
 
         return readerBook.getWords().stream().map(wordMapper::toDto).toList();
     }
+
+    // Served from memory (see WordSuggestionIndex), across all the books of the reader
+    public List<WordSuggestionDtoResponse> suggestWords(String prefix, Integer limit) {
+        ReaderPrincipal authenticatedReader = SecurityCheck.getAuthenticatedReader();
+        Long authenticatedReaderId = authenticatedReader.getId();
+
+        if (prefix == null || prefix.isBlank()) {
+            throw new InvalidInputsException("Enter the first letters of the word!");
+        }
+        int maxSuggestions = limit == null ? DEFAULT_SUGGESTIONS : limit;
+        if (maxSuggestions < 1 || maxSuggestions > MAX_SUGGESTIONS) {
+            throw new InvalidInputsException("The limit must be between 1 and " + MAX_SUGGESTIONS + "!");
+        }
+
+        return wordSuggestionIndex.suggest(authenticatedReaderId, prefix, maxSuggestions);
+    }
+
+    /* One insert/update, no lookup first: the unique index on (reader, book, word key) rejects the same word in another
+    case, with extra spaces or in another Unicode form (see TextNormalizer.wordKey) */
+    private Word saveUnlessDuplicate(Word word, String duplicateMessage) {
+        try {
+            return wordRepository.saveAndFlush(word);
+        } catch (DataIntegrityViolationException exception) {
+            if (!ConstraintViolations.isViolationOf(exception, DUPLICATE_WORD_CONSTRAINT)) {
+                throw exception;
+            }
+            throw new ExistsException(duplicateMessage);
+        }
+    }
+
+    private static WordSuggestionDtoResponse toSuggestion(Long bookId, Word word) {
+        return new WordSuggestionDtoResponse(word.getId(), bookId, word.getWordContent(), word.getTranslation());
+    }
 }
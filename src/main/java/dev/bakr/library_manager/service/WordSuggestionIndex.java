@@ -0,0 +1,169 @@
+package dev.bakr.library_manager.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.bakr.library_manager.repository.WordRepository;
+import dev.bakr.library_manager.responses.WordSuggestionDtoResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/* In-memory prefix index over the words (wordContent and translation) of each reader, for GET /words/suggest. Built on
+the first request, then kept up to date by WordService. */
+@Service
+public class WordSuggestionIndex {
+    private static final char KEY_SEPARATOR = '\0';
+    private static final int CHANGE_STRIPES = 1024;
+    private final WordRepository wordRepository;
+    private final Cache<Long, ReaderWordIndex> indexesByReaderId;
+    // Word changes per reader (striped), an index loaded while one happened isn't cached
+    private final AtomicLongArray changesByStripe = new AtomicLongArray(CHANGE_STRIPES);
+
+    public WordSuggestionIndex(WordRepository wordRepository,
+            MeterRegistry meterRegistry,
+            @Value("${words.suggestion-index.maximum-readers:10000}") long maximumReaders,
+            @Value("${words.suggestion-index.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.wordRepository = wordRepository;
+        this.indexesByReaderId = Caffeine.newBuilder()
+                .maximumSize(maximumReaders)
+                .expireAfterAccess(expireAfterAccess)
+                .softValues()
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, indexesByReaderId, "wordSuggestions");
+    }
+
+    public List<WordSuggestionDtoResponse> suggest(Long readerId, String prefix, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        ConcurrentNavigableMap<String, WordSuggestionDtoResponse> matches = getOrBuildIndex(readerId).wordsByKey
+                .subMap(normalizedPrefix, true, normalizedPrefix + Character.MAX_VALUE, false);
+
+        // The same word can match through both its content and its translation
+        Map<Long, WordSuggestionDtoResponse> suggestionsById = new LinkedHashMap<>();
+        for (WordSuggestionDtoResponse word : matches.values()) {
+            suggestionsById.putIfAbsent(word.id(), word);
+            if (suggestionsById.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(suggestionsById.values());
+    }
+
+    public void wordSaved(Long readerId, WordSuggestionDtoResponse word) {
+        afterCommit(readerId, index -> index.put(word));
+    }
+
+    public void wordDeleted(Long readerId, Long wordId) {
+        afterCommit(readerId, index -> index.remove(wordId));
+    }
+
+    public void evict(Long readerId) {
+        afterCommit(readerId, index -> indexesByReaderId.invalidate(readerId));
+    }
+
+    // No loader on purpose (see BookCatalogCache.findBookIdByIsbn), two concurrent first requests just both build it
+    private ReaderWordIndex getOrBuildIndex(Long readerId) {
+        ReaderWordIndex cachedIndex = indexesByReaderId.getIfPresent(readerId);
+        if (cachedIndex != null) {
+            return cachedIndex;
+        }
+
+        int stripe = stripeOf(readerId);
+        long changesBeforeLoading = changesByStripe.get(stripe);
+        ReaderWordIndex index = new ReaderWordIndex();
+        wordRepository.findAllSuggestionsByReaderId(readerId).forEach(index::put);
+        if (changesByStripe.get(stripe) == changesBeforeLoading) {
+            indexesByReaderId.asMap().putIfAbsent(readerId, index);
+            // A change between the check and the put wasn't applied to this index
+            if (changesByStripe.get(stripe) != changesBeforeLoading) {
+                indexesByReaderId.asMap().remove(readerId, index);
+            }
+        }
+        return index;
+    }
+
+    private void afterCommit(Long readerId, Consumer<ReaderWordIndex> change) {
+        Runnable applyChange = () -> {
+            changesByStripe.incrementAndGet(stripeOf(readerId));
+            ReaderWordIndex index = indexesByReaderId.getIfPresent(readerId);
+            if (index != null) {
+                change.accept(index);
+            }
+        };
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyChange.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applyChange.run();
+            }
+        });
+    }
+
+    private static int stripeOf(Long readerId) {
+        return (int) Math.floorMod(readerId, (long) CHANGE_STRIPES);
+    }
+
+    // Accents are kept (they change the meaning in many languages), but case and compatibility forms are folded
+    private static String normalize(String value) {
+        return Normalizer.normalize(value, Normalizer.Form.NFKC).strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class ReaderWordIndex {
+        private final ConcurrentSkipListMap<String, WordSuggestionDtoResponse> wordsByKey = new ConcurrentSkipListMap<>();
+        private final Map<Long, Set<String>> keysByWordId = new ConcurrentHashMap<>();
+
+        private void put(WordSuggestionDtoResponse word) {
+            remove(word.id());
+            Set<String> keys = ConcurrentHashMap.newKeySet();
+            for (String term : termsOf(word)) {
+                String key = term + KEY_SEPARATOR + word.id();
+                keys.add(key);
+                wordsByKey.put(key, word);
+            }
+            keysByWordId.put(word.id(), keys);
+        }
+
+        private void remove(Long wordId) {
+            Set<String> keys = keysByWordId.remove(wordId);
+            if (keys != null) {
+                keys.forEach(wordsByKey::remove);
+            }
+        }
+
+        // The whole content/translation, plus each of their words so that "off" finds "take off"
+        private static Set<String> termsOf(WordSuggestionDtoResponse word) {
+            Set<String> terms = new HashSet<>();
+            for (String value : new String[]{word.wordContent(), word.translation()}) {
+                if (value == null || value.isBlank()) {
+                    continue;
+                }
+                String normalizedValue = normalize(value);
+                terms.add(normalizedValue);
+                terms.addAll(List.of(normalizedValue.split("\\s+")));
+            }
+            return terms;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package dev.bakr.library_manager.utils;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+public abstract class ConstraintViolations {
+    /* MySQL reports the violated key as "table.constraint" and H2 as "PUBLIC.CONSTRAINT_INDEX_x ON ...", so the name is
+    matched loosely instead of with equals(). When Hibernate couldn't extract the name (e.g., from a failed JDBC batch)
+    the driver's message is searched instead. */
+    public static boolean isViolationOf(DataIntegrityViolationException exception, String constraintName) {
+        Throwable cause = exception;
+        while (cause != null) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String violatedConstraint = violation.getConstraintName() != null
+                        ? violation.getConstraintName()
+                        : violation.getSQLException().getMessage();
+                return violatedConstraint.toLowerCase(Locale.ROOT).contains(constraintName.toLowerCase(Locale.ROOT));
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package dev.bakr.library_manager.utils;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+public abstract class DatabaseFeatures {
+    /* The tests run H2 with the MySQL dialect, so the Hibernate dialect can't tell us whether MATCH ... AGAINST is
+    available. The JDBC driver can. */
+    public static boolean isMySql(DataSource dataSource) throws MetaDataAccessException {
+        String databaseName = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        return "MySQL".equalsIgnoreCase(databaseName);
+    }
+
+    // For LIKE ... ESCAPE '!', so that a % or _ typed by the reader is matched literally
+    public static String escapeLikePattern(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
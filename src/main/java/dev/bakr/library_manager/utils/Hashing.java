@@ -0,0 +1,19 @@
+package dev.bakr.library_manager.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public abstract class Hashing {
+    // 64 hex chars, for storing a fixed-size key of a value instead of the value itself (e.g., a token)
+    public static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package dev.bakr.library_manager.utils;
+
+import dev.bakr.library_manager.exceptions.InvalidInputsException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/* Keyset cursor for walking a reader's collection page by page. It points at the last (addingDate, bookId) pair that
+the client has already seen, so the next page starts right after it no matter how many rows come before it. The value
+is opaque to the client (URL-safe Base64), which lets us change its content later without breaking anyone. */
+public record ReaderBookCursor(LocalDate addingDate, Long bookId) {
+    private static final String SEPARATOR = ":";
+
+    public String encode() {
+        String rawCursor = addingDate + SEPARATOR + bookId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(rawCursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ReaderBookCursor decode(String encodedCursor) {
+        try {
+            String rawCursor = new String(Base64.getUrlDecoder().decode(encodedCursor), StandardCharsets.UTF_8);
+            String[] parts = rawCursor.split(SEPARATOR);
+            if (parts.length != 2) {
+                throw new InvalidInputsException("The 'after' cursor is malformed!");
+            }
+            return new ReaderBookCursor(LocalDate.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // NumberFormatException is an IllegalArgumentException, so a bad book id lands here as well
+            throw new InvalidInputsException("The 'after' cursor is malformed!");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.bakr.library_manager.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/* A search box input split into "quoted phrases" and single words. Characters that mean something to MySQL's boolean
+full-text syntax (+ - < > ( ) ~ * @ ") are dropped, so readers can't break (or widen) the query by typing them. */
+public record SearchQuery(List<String> phrases, List<String> words) {
+    private static final Pattern PHRASE_OR_WORD = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+    private static final Pattern BOOLEAN_OPERATORS = Pattern.compile("[+\\-<>()~*@\"]");
+    // InnoDB's default stopwords (INFORMATION_SCHEMA.INNODB_FT_DEFAULT_STOPWORD) and innodb_ft_min_token_size
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "about", "an", "are", "as", "at", "be", "by", "com", "de", "en", "for", "from", "how", "i", "in", "is",
+            "it", "la", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where", "who", "will",
+            "with", "und", "www");
+    private static final int MIN_TOKEN_SIZE = 3;
+
+    public static SearchQuery parse(String input) {
+        List<String> phrases = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        Matcher matcher = PHRASE_OR_WORD.matcher(input);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                String phrase = clean(matcher.group(1));
+                if (phrase.contains(" ")) {
+                    phrases.add(phrase);
+                } else if (!phrase.isEmpty()) {
+                    words.add(phrase);
+                }
+            } else {
+                words.addAll(List.of(clean(matcher.group(2)).split(" ")));
+            }
+        }
+        words.removeIf(String::isEmpty);
+        return new SearchQuery(List.copyOf(phrases), List.copyOf(words));
+    }
+
+    public boolean isEmpty() {
+        return phrases.isEmpty() && words.isEmpty();
+    }
+
+    /* Every phrase and word is required, e.g. +"not all those who wander" +lost, except the ones the index has no token
+    for (they'd match nothing). Empty when no term is left. */
+    public String toBooleanMode() {
+        return Stream.concat(phrases.stream()
+                                     .filter(phrase -> Stream.of(phrase.split(" ")).anyMatch(SearchQuery::isIndexed))
+                                     .map(phrase -> "+\"" + phrase + "\""),
+                             words.stream().filter(SearchQuery::isIndexed).map(word -> "+" + word))
+                .reduce((left, right) -> left + " " + right)
+                .orElse("");
+    }
+
+    public List<String> fragments() {
+        return Stream.concat(phrases.stream(), words.stream()).toList();
+    }
+
+    private static boolean isIndexed(String word) {
+        return word.length() >= MIN_TOKEN_SIZE && !STOPWORDS.contains(word.toLowerCase(Locale.ROOT));
+    }
+
+    private static String clean(String value) {
+        return BOOLEAN_OPERATORS.matcher(value).replaceAll(" ").strip().replaceAll("\\s+", " ");
+    }
+}
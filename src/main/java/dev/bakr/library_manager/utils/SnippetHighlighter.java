@@ -0,0 +1,76 @@
+package dev.bakr.library_manager.utils;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/* Cuts a window of the text around the first match and wraps every match inside it in <mark></mark>. The rest of the
+text is HTML-escaped, so the client can render the snippet as HTML without trusting what the reader typed in. */
+public abstract class SnippetHighlighter {
+    private static final int SNIPPET_LENGTH = 200;
+    private static final String ELLIPSIS = "...";
+
+    public static String highlight(String text, List<String> fragments) {
+        List<int[]> matches = findMatches(text, fragments);
+
+        int firstMatchStart = matches.isEmpty() ? 0 : matches.getFirst()[0];
+        int snippetStart = Math.max(0, Math.min(firstMatchStart - SNIPPET_LENGTH / 4, text.length() - SNIPPET_LENGTH));
+        int snippetEnd = Math.min(text.length(), snippetStart + SNIPPET_LENGTH);
+
+        StringBuilder snippet = new StringBuilder();
+        if (snippetStart > 0) {
+            snippet.append(ELLIPSIS);
+        }
+        int position = snippetStart;
+        for (int[] match : matches) {
+            if (match[0] < position || match[1] > snippetEnd) {
+                continue;
+            }
+            snippet.append(HtmlUtils.htmlEscape(text.substring(position, match[0])))
+                    .append("<mark>")
+                    .append(HtmlUtils.htmlEscape(text.substring(match[0], match[1])))
+                    .append("</mark>");
+            position = match[1];
+        }
+        snippet.append(HtmlUtils.htmlEscape(text.substring(position, snippetEnd)));
+        if (snippetEnd < text.length()) {
+            snippet.append(ELLIPSIS);
+        }
+        return snippet.toString();
+    }
+
+    // [start, end) of every match of the fragments, in text order and without overlaps (the longer one wins)
+    private static List<int[]> findMatches(String text, List<String> fragments) {
+        List<int[]> matches = new ArrayList<>();
+        if (fragments.isEmpty()) {
+            return matches;
+        }
+
+        Matcher matcher = fragmentsPattern(fragments).matcher(text);
+        while (matcher.find()) {
+            matches.add(new int[]{matcher.start(), matcher.end()});
+        }
+        return matches;
+    }
+
+    /* Matched on the text itself (case-insensitively) so the offsets are the text's own, lowercasing it first can change
+    its length (e.g., "İ" becomes two chars). Whole words only, like the full-text index matches them, so "cat" doesn't
+    light up "education", and the words of a phrase can be apart by any whitespace. The longer fragments come first in
+    the alternation, so they win where two start at the same place. */
+    private static Pattern fragmentsPattern(List<String> fragments) {
+        String alternation = fragments.stream()
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .map(fragment -> Arrays.stream(fragment.split(" "))
+                        .map(Pattern::quote)
+                        .collect(Collectors.joining("\\s+")))
+                .collect(Collectors.joining("|"));
+        return Pattern.compile("(?<!\\w)(?:" + alternation + ")(?!\\w)",
+                               Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS);
+    }
+}
@@ -0,0 +1,33 @@
+package dev.bakr.library_manager.utils;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/* What counts as "the same text" for the duplicate checks: case and whitespace don't matter. Every run of whitespace
+(Unicode whitespace too, like MySQL's regex \s) becomes one space, the ends are trimmed and the rest is lowercased.
+The backfill migrations do the same in SQL, LOWER(TRIM(REGEXP_REPLACE(col, '\\s+', ' '))), keep them in sync. */
+public abstract class TextNormalizer {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+", Pattern.UNICODE_CHARACTER_CLASS);
+
+    /* Lowercased one code point at a time, like LOWER() does. String.toLowerCase() also applies the special cases of
+    Unicode, "İ" becomes "i" + a combining dot and a Σ at the end of a word becomes ς, so the same text got another hash
+    in Java than in the migrations (see V17). */
+    public static String normalize(String text) {
+        String collapsedText = WHITESPACE.matcher(text).replaceAll(" ").strip();
+        StringBuilder normalizedText = new StringBuilder(collapsedText.length());
+        collapsedText.codePoints().map(Character::toLowerCase).forEach(normalizedText::appendCodePoint);
+        return normalizedText.toString();
+    }
+
+    // Fixed size, so it can go in a unique index where the (TEXT) column itself can't
+    public static String contentHash(String text) {
+        return Hashing.sha256Hex(normalize(text));
+    }
+
+    /* A word as typed can also differ in how it's encoded: "é" as one code point or as "e" + a combining accent, a
+    full-width "Ｗ", a "ﬁ" ligature. NFKC turns those into one form first. MySQL has no NFKC, so the backfill of the
+    existing words (V13) only does the rest, a word that was saved in another form gets the right key when it's updated. */
+    public static String wordKey(String word) {
+        return normalize(Normalizer.normalize(word, Normalizer.Form.NFKC));
+    }
+}
@@ -0,0 +1,51 @@
+-- The indexes the repository queries need (QueryPlanTest runs EXPLAIN on every one of them and fails on a full scan).
+-- Authors/categories/publishers by name already have their unique indexes (V3), readers by email theirs (V6), and the
+-- token/outbox tables were created with the ones they need.
+
+-- books.isbn: findByIsbn/findIdByIsbn/findAllByIsbnIn, and the rest of the app assumes one book per ISBN (see
+-- BookCatalogCache). A book added twice by concurrent requests is merged into the one with the lowest id first: the
+-- readers (with their quotes and words) move over, unless they already have the kept book.
+INSERT IGNORE INTO readers_books (book_id, reader_id, adding_date, left_off_page, status)
+SELECT kept.kept_id, rb.reader_id, rb.adding_date, rb.left_off_page, rb.status
+FROM readers_books rb
+JOIN books b ON b.book_id = rb.book_id
+JOIN (SELECT isbn, MIN(book_id) AS kept_id FROM books GROUP BY isbn) kept ON kept.isbn = b.isbn
+WHERE rb.book_id <> kept.kept_id;
+
+UPDATE quotes q
+JOIN books b ON b.book_id = q.book_id
+JOIN (SELECT isbn, MIN(book_id) AS kept_id FROM books GROUP BY isbn) kept ON kept.isbn = b.isbn
+SET q.book_id = kept.kept_id
+WHERE q.book_id <> kept.kept_id;
+
+UPDATE words w
+JOIN books b ON b.book_id = w.book_id
+JOIN (SELECT isbn, MIN(book_id) AS kept_id FROM books GROUP BY isbn) kept ON kept.isbn = b.isbn
+SET w.book_id = kept.kept_id
+WHERE w.book_id <> kept.kept_id;
+
+DELETE rb FROM readers_books rb
+JOIN books b ON b.book_id = rb.book_id
+JOIN (SELECT isbn, MIN(book_id) AS kept_id FROM books GROUP BY isbn) kept ON kept.isbn = b.isbn
+WHERE rb.book_id <> kept.kept_id;
+
+DELETE b FROM books b
+JOIN (SELECT isbn, MIN(book_id) AS kept_id FROM books GROUP BY isbn) kept ON kept.isbn = b.isbn
+WHERE b.book_id <> kept.kept_id;
+
+ALTER TABLE books ADD CONSTRAINT uk_books_isbn UNIQUE (isbn);
+
+-- readers.username: login and registration (findByUsername/existsByUsername). Two readers with the same username can't
+-- log in anyway (findByUsername fails on two rows), but they are separate accounts, so they aren't merged here: if this
+-- fails on a duplicate, rename one of them by hand and run it again. readers.email stays non-unique, registration has
+-- always allowed several accounts per email.
+ALTER TABLE readers DROP INDEX idx_readers_username, ADD CONSTRAINT uk_readers_username UNIQUE (username);
+
+-- readers_books is keyed (book_id, reader_id), so a lookup by reader can't use the primary key. This one serves all the
+-- per-reader queries, including the collection in (adding_date, book_id) order for the keyset pages.
+CREATE INDEX idx_readers_books_reader ON readers_books (reader_id, adding_date, book_id);
+
+-- Same for the quotes/words of a reader (the foreign key indexes start with book_id). The words one also covers the
+-- duplicate check of addWord (existsByWordContentAndReaderBookId).
+CREATE INDEX idx_quotes_reader_book ON quotes (reader_id, book_id);
+CREATE INDEX idx_words_reader_book ON words (reader_id, book_id, word_content);
@@ -0,0 +1,42 @@
+-- Every query on these tables is scoped to one reader, but InnoDB stores the rows in primary key order: readers_books by
+-- (book_id, reader_id) and quotes/words by their auto-increment id, i.e., in the order they were added. A reader's rows
+-- were spread over the whole table and reading them took about one page per row. With reader_id leading the primary
+-- keys they're next to each other, a reader's books/quotes/words are a short range scan over a few pages
+-- (see ReaderRangeScanBenchmark).
+
+-- The foreign keys to readers_books have to go while its key changes, they're added back in the new column order below
+ALTER TABLE quotes DROP FOREIGN KEY fk_reader_book_quote;
+ALTER TABLE words DROP FOREIGN KEY fk_reader_book_word;
+
+-- fk_reader_book (and countReadersByBookId) used the old primary key to find the readers of a book, so book_id gets its
+-- own index. The index MySQL created for fk_book_reader is already gone: it was dropped on its own when V10 added
+-- idx_readers_books_reader, which starts with reader_id too.
+CREATE INDEX idx_readers_books_book ON readers_books (book_id);
+ALTER TABLE readers_books
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (reader_id, book_id);
+
+-- quote_id/word_id stay the ids the application uses (unique, and still the auto-increment), they're only the last part
+-- of the clustering key. Rows without a reader_book can't be reached by any query and couldn't be in the new key.
+DELETE FROM quotes WHERE reader_id IS NULL OR book_id IS NULL;
+ALTER TABLE quotes
+  MODIFY reader_id bigint NOT NULL,
+  MODIFY book_id bigint NOT NULL,
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (reader_id, book_id, quote_id),
+  ADD CONSTRAINT uk_quotes_quote_id UNIQUE (quote_id),
+  DROP INDEX fk_reader_book_quote,
+  DROP INDEX idx_quotes_reader_book;
+ALTER TABLE quotes
+  ADD CONSTRAINT fk_reader_book_quote FOREIGN KEY (reader_id, book_id) REFERENCES readers_books (reader_id, book_id);
+
+DELETE FROM words WHERE reader_id IS NULL OR book_id IS NULL;
+ALTER TABLE words
+  MODIFY reader_id bigint NOT NULL,
+  MODIFY book_id bigint NOT NULL,
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (reader_id, book_id, word_id),
+  ADD CONSTRAINT uk_words_word_id UNIQUE (word_id),
+  DROP INDEX fk_reader_book_word;
+ALTER TABLE words
+  ADD CONSTRAINT fk_reader_book_word FOREIGN KEY (reader_id, book_id) REFERENCES readers_books (reader_id, book_id);
@@ -0,0 +1,17 @@
+-- addQuote compared the whole text (a TEXT column, not indexable as is) with every quote of the reader's book. The hash
+-- of the normalized text (see TextNormalizer, the expression below must stay the same) gets a unique index instead, so
+-- the insert itself rejects a duplicate.
+ALTER TABLE quotes ADD COLUMN text_hash char(64) DEFAULT NULL;
+
+UPDATE quotes SET text_hash = SHA2(LOWER(TRIM(REGEXP_REPLACE(text, '\\s+', ' '))), 256);
+
+-- Quotes that were only different in case or whitespace are duplicates now, the first one added is kept
+DELETE q FROM quotes q
+JOIN quotes kept ON kept.reader_id = q.reader_id
+  AND kept.book_id = q.book_id
+  AND kept.text_hash = q.text_hash
+  AND kept.quote_id < q.quote_id;
+
+ALTER TABLE quotes
+  MODIFY text_hash char(64) NOT NULL,
+  ADD CONSTRAINT uk_quotes_text_hash UNIQUE (reader_id, book_id, text_hash);
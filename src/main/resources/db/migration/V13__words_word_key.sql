@@ -0,0 +1,21 @@
+-- addWord/updateWord looked the word up by exact word_content before saving it, so "Serendipity" and "serendipity " were
+-- two different words. word_key is the normalized word (see TextNormalizer.wordKey) and the unique index on it is the
+-- duplicate check. It's compared byte for byte: the key is lowercased already, and the default collation would also
+-- make "resume" and "résumé" the same word.
+ALTER TABLE words ADD COLUMN word_key varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin DEFAULT NULL;
+
+-- The same as TextNormalizer.normalize(), without the NFKC step that MySQL can't do
+UPDATE words SET word_key = LOWER(TRIM(REGEXP_REPLACE(word_content, '\\s+', ' ')));
+
+-- Words that were only different in case or whitespace are duplicates now, the first one added is kept
+DELETE w FROM words w
+JOIN words kept ON kept.reader_id = w.reader_id
+  AND kept.book_id = w.book_id
+  AND kept.word_key = w.word_key
+  AND kept.word_id < w.word_id;
+
+-- idx_words_reader_book (V10) was there for the old lookup by word_content, the unique index replaces it
+ALTER TABLE words
+  MODIFY word_key varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+  ADD CONSTRAINT uk_words_word_key UNIQUE (reader_id, book_id, word_key),
+  DROP INDEX idx_words_reader_book;
@@ -0,0 +1,22 @@
+-- Books nobody has in their collection anymore, and authors/categories/publishers no book points to, are removed by a
+-- scheduled collector (see OrphanCollector) instead of inline in DELETE /books/{id}. A run first marks the unreferenced
+-- rows (orphaned_at) and only removes the ones that have stayed unreferenced for a grace period, so a book that a reader
+-- is adding right now (its id may be in a cache already) isn't deleted under them.
+ALTER TABLE books ADD COLUMN orphaned_at datetime(6) DEFAULT NULL;
+ALTER TABLE authors ADD COLUMN orphaned_at datetime(6) DEFAULT NULL;
+ALTER TABLE categories ADD COLUMN orphaned_at datetime(6) DEFAULT NULL;
+ALTER TABLE publishers ADD COLUMN orphaned_at datetime(6) DEFAULT NULL;
+
+CREATE INDEX idx_books_orphaned_at ON books (orphaned_at);
+CREATE INDEX idx_authors_orphaned_at ON authors (orphaned_at);
+CREATE INDEX idx_categories_orphaned_at ON categories (orphaned_at);
+CREATE INDEX idx_publishers_orphaned_at ON publishers (orphaned_at);
+
+-- Which node runs a cluster-wide job (see JobLeaseService): the owner holds the row until lease_until, another node can
+-- only take it over after that, e.g., when the owner died in the middle of a run.
+CREATE TABLE job_leases (
+  job_name varchar(64) NOT NULL,
+  owner varchar(255) NOT NULL,
+  lease_until datetime(6) NOT NULL,
+  PRIMARY KEY (job_name)
+);
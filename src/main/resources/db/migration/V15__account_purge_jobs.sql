@@ -0,0 +1,17 @@
+-- Account deletions, see AccountPurgeService
+CREATE TABLE purge_jobs (
+  job_id varchar(36) NOT NULL,
+  reader_id bigint NOT NULL,
+  status varchar(255) NOT NULL,
+  words_deleted bigint NOT NULL,
+  quotes_deleted bigint NOT NULL,
+  books_deleted bigint NOT NULL,
+  last_error varchar(500) DEFAULT NULL,
+  created_at datetime(6) NOT NULL,
+  updated_at datetime(6) NOT NULL,
+  finished_at datetime(6) DEFAULT NULL,
+  PRIMARY KEY (job_id),
+  CONSTRAINT uk_purge_jobs_reader_id UNIQUE (reader_id)
+);
+
+CREATE INDEX idx_purge_jobs_status ON purge_jobs (status, updated_at);
@@ -0,0 +1,6 @@
+-- GET /readers/me/books walks the collection in (adding_date, book_id) order with a keyset cursor (see
+-- ReaderBookCursor), which can't step past a NULL date: `adding_date > ?` never matches one, and the cursor of a page
+-- ending on one doesn't parse. ReaderBook has always set the date on creation, only rows added by hand (or from before
+-- the entity did) can be NULL. They get the date of this migration, i.e., they sort as the most recently added.
+UPDATE readers_books SET adding_date = CURRENT_DATE WHERE adding_date IS NULL;
+ALTER TABLE readers_books MODIFY adding_date date NOT NULL;
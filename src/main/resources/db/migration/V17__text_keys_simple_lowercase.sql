@@ -0,0 +1,30 @@
+-- TextNormalizer lowercased "İ" into "i" + a combining dot and a Σ at the end of a word into ς, LOWER() into "i" and σ.
+-- It now lowercases like LOWER(), so the quotes and words added by the application since V12/V13 that have one of the
+-- two get their hash/key again here, with the same expressions as V12/V13 (the words without the NFKC step, as in V13).
+-- Quotes and words that only differed in that lowercasing are duplicates now, the first one added is kept.
+
+ALTER TABLE quotes DROP INDEX uk_quotes_text_hash;
+
+UPDATE quotes SET text_hash = SHA2(LOWER(TRIM(REGEXP_REPLACE(text, '\\s+', ' '))), 256)
+WHERE text COLLATE utf8mb4_bin LIKE '%İ%' OR text COLLATE utf8mb4_bin LIKE '%Σ%';
+
+DELETE q FROM quotes q
+JOIN quotes kept ON kept.reader_id = q.reader_id
+  AND kept.book_id = q.book_id
+  AND kept.text_hash = q.text_hash
+  AND kept.quote_id < q.quote_id;
+
+ALTER TABLE quotes ADD CONSTRAINT uk_quotes_text_hash UNIQUE (reader_id, book_id, text_hash);
+
+ALTER TABLE words DROP INDEX uk_words_word_key;
+
+UPDATE words SET word_key = LOWER(TRIM(REGEXP_REPLACE(word_content, '\\s+', ' ')))
+WHERE word_content COLLATE utf8mb4_bin LIKE '%İ%' OR word_content COLLATE utf8mb4_bin LIKE '%Σ%';
+
+DELETE w FROM words w
+JOIN words kept ON kept.reader_id = w.reader_id
+  AND kept.book_id = w.book_id
+  AND kept.word_key = w.word_key
+  AND kept.word_id < w.word_id;
+
+ALTER TABLE words ADD CONSTRAINT uk_words_word_key UNIQUE (reader_id, book_id, word_key);
@@ -0,0 +1,8 @@
+-- The reader an email was queued for, so an account purge deletes only that reader's emails (readers.email isn't unique)
+ALTER TABLE email_outbox ADD COLUMN reader_id bigint DEFAULT NULL;
+
+UPDATE email_outbox o
+SET o.reader_id = (SELECT MIN(r.reader_id) FROM readers r WHERE r.email = o.to_email)
+WHERE (SELECT COUNT(*) FROM readers r WHERE r.email = o.to_email) = 1;
+
+CREATE INDEX idx_email_outbox_reader_id ON email_outbox (reader_id);
@@ -0,0 +1,23 @@
+-- IDENTITY ids force Hibernate to send every INSERT on its own (it needs the generated id right away), which rules out
+-- JDBC batching. The catalog tables now use pooled sequences instead. MySQL has no sequences, so Hibernate emulates each
+-- one with a single-row table holding the next value and reserves 50 ids per round trip (allocationSize = 50).
+-- The pooled optimizer hands out the 50 ids *below* the stored value, so each counter starts 51 past the current max id.
+CREATE TABLE books_seq (
+  next_val bigint NOT NULL
+);
+INSERT INTO books_seq (next_val) SELECT COALESCE(MAX(book_id), 0) + 51 FROM books;
+
+CREATE TABLE authors_seq (
+  next_val bigint NOT NULL
+);
+INSERT INTO authors_seq (next_val) SELECT COALESCE(MAX(author_id), 0) + 51 FROM authors;
+
+CREATE TABLE categories_seq (
+  next_val bigint NOT NULL
+);
+INSERT INTO categories_seq (next_val) SELECT COALESCE(MAX(category_id), 0) + 51 FROM categories;
+
+CREATE TABLE publishers_seq (
+  next_val bigint NOT NULL
+);
+INSERT INTO publishers_seq (next_val) SELECT COALESCE(MAX(publisher_id), 0) + 51 FROM publishers;
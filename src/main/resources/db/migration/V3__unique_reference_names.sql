@@ -0,0 +1,41 @@
+-- Authors, categories and publishers are looked up by name and created when missing. Without a unique index two
+-- concurrent requests could both miss and both insert, so some names exist more than once. Merge those first (keeping
+-- the lowest id and pointing the books at it), then let the unique index reject any future duplicate; the application
+-- reads the existing row when its insert loses the race (see NameInterner).
+-- GROUP BY uses the column collation, so it merges exactly the names the unique index would consider equal.
+
+UPDATE books b
+JOIN authors a ON a.author_id = b.author_id
+JOIN (SELECT full_name, MIN(author_id) AS kept_id FROM authors GROUP BY full_name) kept ON kept.full_name = a.full_name
+SET b.author_id = kept.kept_id
+WHERE b.author_id <> kept.kept_id;
+
+DELETE a FROM authors a
+JOIN (SELECT full_name, MIN(author_id) AS kept_id FROM authors GROUP BY full_name) kept ON kept.full_name = a.full_name
+WHERE a.author_id <> kept.kept_id;
+
+ALTER TABLE authors ADD CONSTRAINT uk_authors_full_name UNIQUE (full_name);
+
+UPDATE books b
+JOIN categories c ON c.category_id = b.category_id
+JOIN (SELECT name, MIN(category_id) AS kept_id FROM categories GROUP BY name) kept ON kept.name = c.name
+SET b.category_id = kept.kept_id
+WHERE b.category_id <> kept.kept_id;
+
+DELETE c FROM categories c
+JOIN (SELECT name, MIN(category_id) AS kept_id FROM categories GROUP BY name) kept ON kept.name = c.name
+WHERE c.category_id <> kept.kept_id;
+
+ALTER TABLE categories ADD CONSTRAINT uk_categories_name UNIQUE (name);
+
+UPDATE books b
+JOIN publishers p ON p.publisher_id = b.publisher_id
+JOIN (SELECT name, MIN(publisher_id) AS kept_id FROM publishers GROUP BY name) kept ON kept.name = p.name
+SET b.publisher_id = kept.kept_id
+WHERE b.publisher_id <> kept.kept_id;
+
+DELETE p FROM publishers p
+JOIN (SELECT name, MIN(publisher_id) AS kept_id FROM publishers GROUP BY name) kept ON kept.name = p.name
+WHERE p.publisher_id <> kept.kept_id;
+
+ALTER TABLE publishers ADD CONSTRAINT uk_publishers_name UNIQUE (name);
@@ -0,0 +1,7 @@
+-- Full-text indexes for GET /books/search (see ReaderBookSearchRepositoryImpl). A LIKE '%q%' can't use a B-tree index,
+-- so it would scan every description (a TEXT column) of the reader's books on every search.
+-- MATCH (...) only works against an index on exactly the same column list, hence the separate title-only index, which is
+-- used to rank title hits higher.
+ALTER TABLE books ADD FULLTEXT INDEX ft_books_title (title);
+ALTER TABLE books ADD FULLTEXT INDEX ft_books_text (title, subtitle, description);
+ALTER TABLE authors ADD FULLTEXT INDEX ft_authors_full_name (full_name);
@@ -0,0 +1,3 @@
+-- Full-text index for GET /quotes/search (see QuoteSearchRepositoryImpl), searched in boolean mode so that
+-- "quoted phrases" match as phrases.
+ALTER TABLE quotes ADD FULLTEXT INDEX ft_quotes_text (text);
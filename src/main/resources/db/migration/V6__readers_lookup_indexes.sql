@@ -0,0 +1,4 @@
+-- Login (loadUserByUsername), registration (existsByUsername) and the verification/password reset flows (findByEmail)
+-- look readers up by these columns, which were full scans. Not unique, existing data may already have duplicates.
+CREATE INDEX idx_readers_username ON readers (username);
+CREATE INDEX idx_readers_email ON readers (email);
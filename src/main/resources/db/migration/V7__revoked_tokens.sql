@@ -0,0 +1,9 @@
+-- Logged out tokens (see TokenBlacklistService), shared by all the nodes. token_key is the token's jti claim, or the
+-- SHA-256 of the token for tokens issued before the claim was added. Rows are swept once expires_at has passed.
+CREATE TABLE revoked_tokens (
+  token_key varchar(64) NOT NULL,
+  expires_at datetime(6) NOT NULL,
+  PRIMARY KEY (token_key)
+);
+
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
@@ -0,0 +1,15 @@
+-- Emails waiting to be sent (see EmailOutboxDispatcher)
+CREATE TABLE email_outbox (
+  email_id bigint NOT NULL AUTO_INCREMENT,
+  to_email varchar(255) NOT NULL,
+  subject varchar(255) NOT NULL,
+  html_body text NOT NULL,
+  status varchar(255) NOT NULL,
+  attempts int NOT NULL,
+  next_attempt_at datetime(6) NOT NULL,
+  last_error varchar(500) DEFAULT NULL,
+  created_at datetime(6) NOT NULL,
+  PRIMARY KEY (email_id)
+);
+
+CREATE INDEX idx_email_outbox_due ON email_outbox (status, next_attempt_at);
@@ -0,0 +1,14 @@
+-- Refresh tokens (see RefreshTokenService), stored as SHA-256 hashes. Each refresh replaces the token with a new one of
+-- the same family, and using a replaced token again revokes the whole family.
+CREATE TABLE refresh_tokens (
+  token_hash varchar(64) NOT NULL,
+  reader_id bigint NOT NULL,
+  family_id varchar(36) NOT NULL,
+  expires_at datetime(6) NOT NULL,
+  replaced_at datetime(6) DEFAULT NULL,
+  PRIMARY KEY (token_hash),
+  CONSTRAINT fk_refresh_token_reader FOREIGN KEY (reader_id) REFERENCES readers (reader_id)
+);
+
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
@@ -0,0 +1,44 @@
+package dev.bakr.library_manager;
+
+import dev.bakr.library_manager.exceptions.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class GlobalExceptionHandlerTest {
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new ThrowingController())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void shouldAnswerTooManyRequestsWithA429AndRetryAfter() throws Exception {
+        // when/then
+        mockMvc.perform(post("/login"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "12"))
+                .andExpect(jsonPath("$.errorMessage").value("Too many login attempts for this account! Try again later."))
+                .andExpect(jsonPath("$.statusCode").value(429));
+    }
+
+    @RestController
+    static class ThrowingController {
+        @PostMapping("/login")
+        void login() {
+            throw new TooManyRequestsException("Too many login attempts for this account! Try again later.", 12);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package dev.bakr.library_manager.benchmark;
+
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/* What the JWT checks cost per authenticated request, before and after parsing the token once with a prebuilt parser
+and caching the verified claims.
+Run with: mvn test-compile exec:exec -Dexec.mainClass=dev.bakr.library_manager.benchmark.JwtServiceBenchmark */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+    private static final String SECRET_KEY = "Zm9yLWJlbmNobWFya3Mtb25seS1ub3QtdGhlLXJlYWwta2V5LWF0LWFsbC0xMjM0NTY3ODk=";
+    private static final long EXPIRATION_TIME = TimeUnit.HOURS.toMillis(1);
+    private JwtService jwtService;
+    private JwtParser sharedParser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET_KEY, EXPIRATION_TIME, 10_000, new SimpleMeterRegistry());
+        sharedParser = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY))).build();
+        token = jwtService.generateToken(new ReaderPrincipal(1L, "reader", true));
+    }
+
+    // The old path: extractUsername in the filter, then extractUsername + extractExpiration in isTokenValid
+    @Benchmark
+    public boolean threeParsesWithNewKeyAndParserEach() {
+        String username = parseTheOldWay(token).getSubject();
+        boolean isSameUser = parseTheOldWay(token).getSubject().equals(username);
+        return isSameUser && !parseTheOldWay(token).getExpiration().before(new Date());
+    }
+
+    // A token seen for the first time: one signature check with the parser JwtService keeps
+    @Benchmark
+    public Claims oneParseWithSharedParser() {
+        return sharedParser.parseSignedClaims(token).getPayload();
+    }
+
+    // A token seen again within its lifetime: served from the verified claims cache
+    @Benchmark
+    public Claims oneParseFromClaimsCache() {
+        return jwtService.parseClaims(token);
+    }
+
+    private static Claims parseTheOldWay(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,190 @@
+package dev.bakr.library_manager.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/* Reading one reader's books and quotes (the shape of every per-reader query) with the keys before V11, i.e., readers_books
+clustered by (book_id, reader_id) and quotes by quote_id, vs. the reader-first keys of V11. The schema comes from the real
+migrations, stopped at V10 or V11.
+
+The rows are inserted the way they arrive in production, interleaved across readers, so before V11 a reader's rows end up
+spread over the whole table. The buffer pool (128M) is a lot smaller than the 10M quotes, like on a real server, so the
+difference is in the pages read per reader: "Innodb_buffer_pool_reads per op" is printed after each iteration.
+Seeding 10M quotes takes a while per layout, -p quoteCount=1000000 for a quicker run. Needs Docker, or
+-p jdbcUrl=<url with user and password> for a database of its own (it's cleaned first).
+Run with: mvn test-compile exec:exec -Dexec.mainClass=dev.bakr.library_manager.benchmark.ReaderRangeScanBenchmark
+or, with options: -Dexec.args="-classpath %classpath dev.bakr.library_manager.benchmark.ReaderRangeScanBenchmark -p ..." */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class ReaderRangeScanBenchmark {
+    private static final int READER_COUNT = 100_000;
+    private static final int BOOKS_PER_READER = 10;
+    private static final int BOOK_COUNT = 50_000;
+    private static final int SEED_CHUNK = 1_000_000;
+
+    // V10 = the old keys (with the reader indexes of V10), V11 = reader_id first
+    @Param({"10", "11"})
+    public String migrationTarget;
+
+    @Param({"10000000"})
+    public int quoteCount;
+
+    // Empty for a MySQL container
+    @Param({""})
+    public String jdbcUrl;
+
+    private MySQLContainer<?> mysql;
+    private Connection connection;
+    private PreparedStatement readerBooksQuery;
+    private PreparedStatement readerQuotesQuery;
+    private long bufferPoolReadsAtStart;
+    private long operationCount;
+
+    @Setup(Level.Trial)
+    public void startAndSeedDatabase() throws SQLException {
+        if (jdbcUrl.isEmpty()) {
+            mysql = new MySQLContainer<>("mysql:8.4").withCommand("--innodb-buffer-pool-size=128M");
+            mysql.start();
+            connection = DriverManager.getConnection(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+        } else {
+            connection = DriverManager.getConnection(jdbcUrl);
+        }
+        Flyway flyway = Flyway.configure()
+                .dataSource(new SingleConnectionDataSource(connection, true))
+                .target(migrationTarget)
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+        seed();
+
+        // What findFirstViewsPageByReaderId and QuoteRepository.findAllByReaderId read, without the catalog joins
+        readerBooksQuery = connection.prepareStatement("""
+                SELECT book_id, status, left_off_page, adding_date FROM readers_books
+                WHERE reader_id = ? ORDER BY adding_date DESC, book_id DESC""");
+        readerQuotesQuery = connection.prepareStatement("""
+                SELECT quote_id, book_id, page_number, text FROM quotes WHERE reader_id = ? ORDER BY quote_id""");
+    }
+
+    @Setup(Level.Iteration)
+    public void countBufferPoolReads() throws SQLException {
+        bufferPoolReadsAtStart = bufferPoolReads();
+        operationCount = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printBufferPoolReads() throws SQLException {
+        System.out.printf("%nV%s: Innodb_buffer_pool_reads per op: %.1f%n", migrationTarget,
+                          (double) (bufferPoolReads() - bufferPoolReadsAtStart) / Math.max(operationCount, 1));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws SQLException {
+        connection.close();
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    @Benchmark
+    public int readOneReadersBooksAndQuotes() throws SQLException {
+        long readerId = 1 + ThreadLocalRandom.current().nextInt(READER_COUNT);
+        operationCount++;
+        return countRows(readerBooksQuery, readerId) + countRows(readerQuotesQuery, readerId);
+    }
+
+    private static int countRows(PreparedStatement query, long readerId) throws SQLException {
+        query.setLong(1, readerId);
+        int rowCount = 0;
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                rowCount++;
+            }
+        }
+        return rowCount;
+    }
+
+    // Pages that weren't in the buffer pool and were read from disk, since startup
+    private long bufferPoolReads() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SHOW GLOBAL STATUS LIKE 'Innodb_buffer_pool_reads'")) {
+            resultSet.next();
+            return resultSet.getLong(2);
+        }
+    }
+
+    /* Row n belongs to reader 1 + n % READER_COUNT, so consecutive inserts go to different readers. Only the tables being
+    read are filled, the foreign key checks are off for the (empty) readers/books. */
+    private void seed() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET SESSION foreign_key_checks = 0");
+            // Not a TEMPORARY table, MySQL can't join one with itself
+            statement.execute("CREATE TABLE benchmark_seq (n int PRIMARY KEY)");
+            statement.execute("""
+                    INSERT INTO benchmark_seq WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 999)
+                    SELECT i FROM n""");
+
+            long readerBookCount = (long) READER_COUNT * BOOKS_PER_READER;
+            for (long start = 0; start < readerBookCount; start += SEED_CHUNK) {
+                statement.execute("INSERT INTO readers_books (reader_id, book_id, adding_date, left_off_page, status) "
+                                          + "SELECT " + readerId() + ", " + bookId("n DIV " + READER_COUNT)
+                                          + ", DATE '2020-01-01' + INTERVAL n DIV " + READER_COUNT + " DAY, 1, 'reading' "
+                                          + numbers(start, readerBookCount));
+            }
+            for (long start = 0; start < quoteCount; start += SEED_CHUNK) {
+                statement.execute("INSERT INTO quotes (reader_id, book_id, page_number, text) "
+                                          + "SELECT " + readerId() + ", "
+                                          + bookId("(n DIV " + READER_COUNT + ") % " + BOOKS_PER_READER)
+                                          + ", 1 + n % 300, CONCAT('A quote of about the usual length, from page ', "
+                                          + "n % 300, ' of some book, number ', n) "
+                                          + numbers(start, quoteCount));
+            }
+
+            statement.execute("DROP TABLE benchmark_seq");
+            statement.execute("SET SESSION foreign_key_checks = 1");
+            statement.execute("ANALYZE TABLE readers_books, quotes");
+        }
+    }
+
+    private static String readerId() {
+        return "1 + n % " + READER_COUNT;
+    }
+
+    // The slot-th book (0 <= slot < BOOKS_PER_READER) of the reader, the same one in readers_books and quotes
+    private static String bookId(String slot) {
+        return "1 + ((n % " + READER_COUNT + ") * 7919 + " + slot + ") % " + BOOK_COUNT;
+    }
+
+    // The row numbers n of [start, min(start + SEED_CHUNK, end)), in insertion order
+    private static String numbers(long start, long end) {
+        return "FROM (SELECT " + start + " + a.n * 1000 + b.n AS n FROM benchmark_seq a CROSS JOIN benchmark_seq b) numbers "
+                + "WHERE n < " + end + " ORDER BY n";
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                           .parent(new CommandLineOptions(args))
+                           .include(ReaderRangeScanBenchmark.class.getSimpleName())
+                           .build()).run();
+    }
+}
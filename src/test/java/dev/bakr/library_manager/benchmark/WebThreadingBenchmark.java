@@ -0,0 +1,137 @@
+package dev.bakr.library_manager.benchmark;
+
+import dev.bakr.library_manager.LibraryManagerApplication;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Throughput and tail latency of the whole app (Tomcat -> Spring Security -> service -> JPA -> Hikari) with 1024
+concurrent clients, on the platform thread pool (Tomcat's 200 threads) vs. virtual threads.
+
+The app runs on H2, so every statement gets a simulated database round trip (STATEMENT_LATENCY_MS) to make the requests
+block on JDBC like they do against MySQL. The request is POST /auth/resend for an unknown email: public, one SELECT by
+email, no side effects (404). SampleTime gives the p50/p99/p99.9, and the status codes of every trial are printed at the
+end: anything but 404 (e.g., a 500 when no connection was free within the pool's connection-timeout) is a failed request
+that still counts as an operation, so a mode is only faster if it didn't get there by failing. The clients share the JVM (and the cores) with the app,
+so the numbers only mean something on a machine with a few cores to spare. Pinned virtual threads are printed to stdout.
+Run with: mvn test-compile exec:exec -Dexec.mainClass=dev.bakr.library_manager.benchmark.WebThreadingBenchmark */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1024)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djdk.tracePinnedThreads=short"})
+public class WebThreadingBenchmark {
+    private static final long STATEMENT_LATENCY_MS = 5;
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate", "executeBatch");
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext app;
+    private HttpClient httpClient;
+    private HttpRequest request;
+    private final Map<Integer, LongAdder> responseCountsByStatus = new ConcurrentHashMap<>();
+
+    @Setup(Level.Trial)
+    public void startApp() {
+        app = new SpringApplicationBuilder(LibraryManagerApplication.class)
+                .profiles("test")
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new SimulatedDatabaseLatency()))
+                // As command line arguments, so they win over application-test.properties
+                .run("--spring.threads.virtual.enabled=" + virtualThreads,
+                     "--server.port=0",
+                     "--spring.flyway.enabled=false",
+                     "--spring.jpa.hibernate.ddl-auto=create-drop",
+                     "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                     "--spring.jpa.show-sql=false",
+                     "--logging.level.root=WARN",
+                     "--security.jwt.secret-key=Zm9yLWJlbmNobWFya3Mtb25seS1ub3QtdGhlLXJlYWwta2V5LWF0LWFsbC0xMjM0NTY3ODk=",
+                     "--security.jwt.expiration-time=900000",
+                     "--spring.mail.username=benchmark",
+                     "--spring.mail.password=benchmark");
+
+        String port = app.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/auth/resend?email=nobody@example.com"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApp() {
+        Map<Integer, Long> responseCounts = new TreeMap<>();
+        responseCountsByStatus.forEach((status, count) -> responseCounts.put(status, count.sum()));
+        System.out.println("Responses by status (virtualThreads=" + virtualThreads + "): " + responseCounts);
+        httpClient.close();
+        app.close();
+    }
+
+    @Benchmark
+    public int lookUpReaderByEmail() throws Exception {
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        responseCountsByStatus.computeIfAbsent(status, key -> new LongAdder()).increment();
+        return status;
+    }
+
+    // Wraps the DataSource so that every executed statement sleeps first (the "network + MySQL" part of a query)
+    private static final class SimulatedDatabaseLatency implements BeanPostProcessor {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource)) {
+                return bean;
+            }
+            return proxy(DataSource.class, dataSource, (method, result) ->
+                    result instanceof Connection connection ? proxy(Connection.class, connection, (connectionMethod, statement) ->
+                            statement instanceof PreparedStatement preparedStatement
+                                    ? proxy(PreparedStatement.class, preparedStatement, (statementMethod, none) -> null)
+                                    : statement) : result);
+        }
+
+        private static <T> T proxy(Class<T> type, T target, ResultWrapper resultWrapper) {
+            Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+                if (type == PreparedStatement.class && EXECUTE_METHODS.contains(method.getName())) {
+                    Thread.sleep(STATEMENT_LATENCY_MS);
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    Object wrapped = resultWrapper.wrap(method, result);
+                    return wrapped != null ? wrapped : result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+            return type.cast(proxy);
+        }
+
+        private interface ResultWrapper {
+            Object wrap(Method method, Object result);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WebThreadingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
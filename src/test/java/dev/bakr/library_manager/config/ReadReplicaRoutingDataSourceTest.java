@@ -0,0 +1,221 @@
+package dev.bakr.library_manager.config;
+
+import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* Two H2 databases with the same reader row, renamed on the replica, so the username a query returns tells which
+database it ran on. There's no replication between them, the replica is a copy of the primary from before the test. */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.replica.url=jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.read-your-writes-window=1s",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReadReplicaDataSourceConfig.class, LazyConnectionConfig.class, ReadReplicaRoutingDataSourceTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadReplicaRoutingDataSourceTest {
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+    private Long readerId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+
+        Reader reader = new Reader();
+        reader.setUsername("onPrimary");
+        reader.setEmail("reader@example.com");
+        reader.setPassword("password");
+        reader.setIsEnabled(true);
+        readerId = readWriteTransaction.execute(status -> readerRepository.save(reader).getId());
+
+        Path script = Files.createTempFile("routing", ".sql");
+        try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement onPrimary = primary.createStatement();
+             Statement onReplica = replica.createStatement()) {
+            onPrimary.execute("SCRIPT TO '" + script + "'");
+            onReplica.execute("DROP ALL OBJECTS");
+            onReplica.execute("RUNSCRIPT FROM '" + script + "'");
+            onReplica.execute("UPDATE readers SET username = 'onReplica'");
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        readerRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldReadFromTheReplicaInAReadOnlyTransaction() {
+        // given
+        double replicaConnectionsBefore = routedConnections("replica");
+
+        // when
+        String username = readOnlyTransaction.execute(status -> usernameOfTheReader());
+
+        // then
+        assertEquals("onReplica", username);
+        assertEquals(replicaConnectionsBefore + 1, routedConnections("replica"));
+    }
+
+    @Test
+    void shouldUseThePrimaryInAReadWriteTransaction() {
+        // given
+        double replicaConnectionsBefore = routedConnections("replica");
+
+        // when
+        String username = readWriteTransaction.execute(status -> usernameOfTheReader());
+
+        // then
+        assertEquals("onPrimary", username);
+        assertEquals(replicaConnectionsBefore, routedConnections("replica"));
+    }
+
+    @Test
+    void shouldReadFromThePrimaryRightAfterTheReaderCommittedAWrite() {
+        // given
+        loggedInAs(readerId);
+        readWriteTransaction.executeWithoutResult(
+                status -> readerRepository.findById(readerId).orElseThrow().setEmail("new@example.com"));
+        double readYourWritesConnectionsBefore = routedConnections("primary_read_your_writes");
+
+        // when
+        String usernameRightAfterTheWrite = readOnlyTransaction.execute(status -> usernameOfTheReader());
+
+        // then: the primary until the window is over, then the replica again
+        assertEquals("onPrimary", usernameRightAfterTheWrite);
+        assertEquals(readYourWritesConnectionsBefore + 1, routedConnections("primary_read_your_writes"));
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> "onReplica".equals(readOnlyTransaction.execute(status -> usernameOfTheReader())));
+    }
+
+    @Test
+    void shouldKeepOtherReadersOnTheReplicaAfterAReaderCommittedAWrite() {
+        // given
+        loggedInAs(readerId);
+        readWriteTransaction.executeWithoutResult(
+                status -> readerRepository.findById(readerId).orElseThrow().setEmail("new@example.com"));
+
+        // when
+        loggedInAs(readerId + 1);
+        String username = readOnlyTransaction.execute(status -> usernameOfTheReader());
+
+        // then
+        assertEquals("onReplica", username);
+    }
+
+    @Test
+    void shouldNotStartTheWindowOnARolledBackWrite() {
+        // given
+        loggedInAs(readerId);
+        readWriteTransaction.executeWithoutResult(status -> {
+            readerRepository.findById(readerId).orElseThrow().setEmail("new@example.com");
+            status.setRollbackOnly();
+        });
+
+        // when
+        String username = readOnlyTransaction.execute(status -> usernameOfTheReader());
+
+        // then
+        assertEquals("onReplica", username);
+    }
+
+    @Test
+    void shouldRouteEveryTransactionOfAnOpenInViewRequestOnItsOwn() {
+        // given: one EntityManager for the whole request, like OpenEntityManagerInViewInterceptor binds it
+        EntityManager requestEntityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requestEntityManager));
+        try {
+            // when
+            String usernameOfTheReadOnlyLookup = readOnlyTransaction.execute(status -> usernameOfTheReader());
+            requestEntityManager.clear();
+            String usernameOfTheWrite = readWriteTransaction.execute(status -> usernameOfTheReader());
+
+            // then: the write doesn't reuse the replica connection of the lookup
+            assertEquals("onReplica", usernameOfTheReadOnlyLookup);
+            assertEquals("onPrimary", usernameOfTheWrite);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            requestEntityManager.close();
+        }
+    }
+
+    private String usernameOfTheReader() {
+        return readerRepository.findById(readerId).orElseThrow().getUsername();
+    }
+
+    private static void loggedInAs(Long readerId) {
+        var principal = new ReaderPrincipal(readerId, "reader" + readerId, true);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private double routedConnections(String target) {
+        // The counters live as long as the (shared) test context
+        return meterRegistry.get("db.routing.connections").tag("target", target).counter().count();
+    }
+}
@@ -0,0 +1,201 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.config.SecondLevelCacheConfig;
+import dev.bakr.library_manager.model.Author;
+import dev.bakr.library_manager.model.Book;
+import dev.bakr.library_manager.model.Category;
+import dev.bakr.library_manager.model.Publisher;
+import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.model.ReaderBook;
+import dev.bakr.library_manager.model.ReaderBookId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* The regions and cacheable queries of application.properties / hibernate-cache.conf, on H2. Each step runs in its own
+transaction (like a request), so what doesn't hit the database came from the second-level cache. */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:l2cache;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogSecondLevelCacheTest {
+    private static final String ISBN = "9781524746742";
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PublisherRepository publisherRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private ReaderBookRepository readerBookRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+    private ReaderBookId readerBookId;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        readerBookId = transaction.execute(status -> {
+            Author author = new Author();
+            author.setFullName("Anna Lembke");
+            authorRepository.save(author);
+            Category category = new Category();
+            category.setName("Psychology");
+            categoryRepository.save(category);
+            Publisher publisher = new Publisher();
+            publisher.setName("Dutton");
+            publisherRepository.save(publisher);
+            Book book = Book.builder()
+                    .title("Dopamine Nation")
+                    .isbn(ISBN)
+                    .pagesCount(290)
+                    .author(author)
+                    .category(category)
+                    .publisher(publisher)
+                    .build();
+            bookRepository.save(book);
+            Reader reader = readerRepository.save(Reader.builder()
+                                                          .username("reader")
+                                                          .email("reader@example.com")
+                                                          .password("password")
+                                                          .isEnabled(true)
+                                                          .build());
+            ReaderBook readerBook = new ReaderBook(reader, book);
+            readerBook.setStatus("unread");
+            readerBookRepository.save(readerBook);
+            return readerBook.getId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[]{"readers_books", "books", "authors", "categories", "publishers", "readers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+
+    @Test
+    void shouldLoadTheCatalogOfABookCopyFromTheCacheAfterTheFirstTime() {
+        // given: the first load puts the book and its author, category and publisher in their regions
+        entityManagerFactory.getCache().evictAll();
+        transaction.execute(status -> describe(readerBookRepository.findById(readerBookId).orElseThrow()));
+        statistics.clear();
+
+        // when
+        String description = transaction.execute(
+                status -> describe(readerBookRepository.findById(readerBookId).orElseThrow()));
+
+        // then: only the reader's copy is read (it isn't cached)
+        assertEquals("Dopamine Nation by Anna Lembke, Psychology, Dutton", description);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(4, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getSecondLevelCacheMissCount());
+        for (String region : new String[]{"books", "authors", "categories", "publishers"}) {
+            assertEquals(1, statistics.getCacheRegionStatistics(region).getHitCount(), region);
+        }
+    }
+
+    @Test
+    void shouldAnswerARepeatedLookupByIsbnFromTheQueryCache() {
+        // given
+        transaction.execute(status -> bookRepository.findByIsbn(ISBN).orElseThrow());
+        statistics.clear();
+
+        // when
+        Book book = transaction.execute(status -> bookRepository.findByIsbn(ISBN).orElseThrow());
+
+        // then
+        assertEquals("Dopamine Nation", book.getTitle());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void shouldNotAnswerFromACachedResultOnceItsTableWasWrittenTo() {
+        // given: the category isn't there yet, and the empty result is cached
+        assertTrue(transaction.execute(status -> categoryRepository.findByName("Neuroscience")).isEmpty());
+
+        // when
+        transaction.executeWithoutResult(status -> {
+            Category category = new Category();
+            category.setName("Neuroscience");
+            categoryRepository.save(category);
+        });
+
+        // then
+        assertEquals("Neuroscience", transaction.execute(
+                status -> categoryRepository.findByName("Neuroscience").orElseThrow().getName()));
+    }
+
+    @Test
+    void shouldPublishTheHitRatioOfEveryRegionAndOfTheQueryCache() {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new SecondLevelCacheConfig().secondLevelCacheHitRatios(entityManagerFactory).bindTo(meterRegistry);
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        statistics.clear();
+        Set<String> regions = meterRegistry.get("hibernate.second.level.cache.hit.ratio").gauges().stream()
+                .map(gauge -> gauge.getId().getTag("region"))
+                .collect(Collectors.toSet());
+        assertTrue(regions.containsAll(Set.of("books", "authors", "categories", "publishers")), "" + regions);
+        assertTrue(Double.isNaN(meterRegistry.get("hibernate.query.cache.hit.ratio").gauge().value()));
+
+        // when: the first lookup misses both caches, the second one hits them
+        Long bookId = transaction.execute(status -> bookRepository.findByIsbn(ISBN).orElseThrow().getId());
+        transaction.execute(status -> bookRepository.findByIsbn(ISBN).orElseThrow());
+        transaction.execute(status -> bookRepository.findById(bookId).orElseThrow());
+
+        // then
+        assertEquals(0.5, meterRegistry.get("hibernate.query.cache.hit.ratio").gauge().value());
+        assertEquals(statistics.getCacheRegionStatistics("books").getHitCount()
+                             / (double) (statistics.getCacheRegionStatistics("books").getHitCount()
+                             + statistics.getCacheRegionStatistics("books").getMissCount()),
+                     meterRegistry.get("hibernate.second.level.cache.hit.ratio").tag("region", "books").gauge().value());
+        assertTrue(meterRegistry.get("hibernate.second.level.cache.hit.ratio").tag("region", "books").gauge().value() > 0);
+    }
+
+    private static String describe(ReaderBook readerBook) {
+        Book book = readerBook.getBook();
+        return book.getTitle() + " by " + book.getAuthor().getFullName() + ", " + book.getCategory().getName() + ", "
+                + book.getPublisher().getName();
+    }
+}
@@ -0,0 +1,416 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.model.ReaderBook;
+import dev.bakr.library_manager.model.ReaderBookId;
+import dev.bakr.library_manager.repository.OrphanedCatalogRepository.CatalogTable;
+import dev.bakr.library_manager.repository.ReaderDataPurgeRepository.AnnotationKey;
+import dev.bakr.library_manager.repository.ReaderDataPurgeRepository.AnnotationTable;
+import dev.bakr.library_manager.utils.SearchQuery;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/* Runs every query method of the repositories (@Query and derived ones) against MySQL with the real migrations, records
+the SQL that Hibernate sends, and EXPLAINs each statement: a table read with type=ALL (a full scan) fails the test.
+A new query method is picked up on its own, it only needs a sample value for a new parameter type (see sampleValue).
+The plain JDBC repositories are called one by one (see jdbcCalls).
+
+Needs Docker for the MySQL container, it's skipped without it. */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrphanedCatalogRepository.class, ReaderDataPurgeRepository.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class QueryPlanTest {
+    // Seeded without any rows pointing to it, so it can be deleted
+    private static final Long READER_WITHOUT_DATA = 501L;
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.4");
+
+    // Collected from the PreparedStatements of the DataSource (see RecordingDataSource)
+    private static final List<RecordedStatement> recordedStatements = Collections.synchronizedList(new ArrayList<>());
+
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private OrphanedCatalogRepository orphanedCatalogRepository;
+    @Autowired
+    private ReaderDataPurgeRepository readerDataPurgeRepository;
+
+    @BeforeAll
+    static void seedOnce(@Autowired JdbcTemplate jdbcTemplate) {
+        /* Enough rows for the optimizer to prefer an index over reading a handful of rows, which it would do on an
+        almost empty table no matter what */
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                for (String seedStatement : SEED_STATEMENTS) {
+                    statement.execute(seedStatement);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void noRepositoryQueryShouldScanAWholeTable() {
+        // given
+        Repositories repositories = new Repositories(applicationContext);
+        List<String> fullScans = new ArrayList<>();
+        int explainedCount = 0;
+
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation repositoryInformation = repositories.getRepositoryInformationFor(domainType)
+                    .orElseThrow();
+            Object repository = repositories.getRepositoryFor(domainType).orElseThrow();
+
+            for (Method queryMethod : repositoryInformation.getQueryMethods()) {
+                // when
+                List<RecordedStatement> statements = run(() -> invoke(repository, queryMethod));
+
+                // then
+                explainedCount += explain(describe(queryMethod), statements, fullScans);
+            }
+        }
+
+        assertThat(explainedCount).isPositive();
+        assertThat(fullScans).as("Full table scans").isEmpty();
+    }
+
+    @Test
+    void noPlainJdbcStatementShouldScanAWholeTable() {
+        // given
+        Map<String, Runnable> jdbcCalls = jdbcCalls();
+        Set<String> calledMethods = jdbcCalls.keySet().stream()
+                .map(call -> call.substring(0, call.indexOf('(')))
+                .collect(Collectors.toSet());
+        for (Class<?> repositoryClass : List.of(OrphanedCatalogRepository.class, ReaderDataPurgeRepository.class)) {
+            Arrays.stream(repositoryClass.getDeclaredMethods())
+                    .filter(method -> Modifier.isPublic(method.getModifiers()))
+                    .forEach(method -> assertThat(calledMethods)
+                            .as("%s.%s has no call in jdbcCalls", repositoryClass.getSimpleName(), method.getName())
+                            .contains(method.getName()));
+        }
+        List<String> fullScans = new ArrayList<>();
+
+        jdbcCalls.forEach((call, runnable) -> {
+            // when
+            List<RecordedStatement> statements = run(runnable);
+
+            // then
+            explain(call, statements, fullScans);
+        });
+
+        assertThat(fullScans).as("Full table scans").isEmpty();
+    }
+
+    // Every statement of OrphanCollector and AccountPurgeService, for every table they run on
+    private Map<String, Runnable> jdbcCalls() {
+        Map<String, Runnable> jdbcCalls = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = List.of(1L, 2L);
+        for (CatalogTable table : CatalogTable.values()) {
+            jdbcCalls.put("findMaxId(" + table + ")", () -> orphanedCatalogRepository.findMaxId(table));
+            jdbcCalls.put("markUnreferenced(" + table + ", range)",
+                          () -> orphanedCatalogRepository.markUnreferenced(table, 1, 500, now));
+            jdbcCalls.put("markUnreferenced(" + table + ", ids)",
+                          () -> orphanedCatalogRepository.markUnreferenced(table, ids, now));
+            jdbcCalls.put("unmarkReferenced(" + table + ", range)",
+                          () -> orphanedCatalogRepository.unmarkReferenced(table, 1, 500));
+            jdbcCalls.put("unmarkReferenced(" + table + ", ids)",
+                          () -> orphanedCatalogRepository.unmarkReferenced(table, ids));
+            jdbcCalls.put("findOrphanedBefore(" + table + ")",
+                          () -> orphanedCatalogRepository.findOrphanedBefore(table, now, 500));
+            jdbcCalls.put("deleteOrphans(" + table + ")",
+                          () -> orphanedCatalogRepository.deleteOrphans(table, ids, now));
+        }
+        for (AnnotationTable table : AnnotationTable.values()) {
+            jdbcCalls.put("findAnnotationKeysAfter(" + table + ")",
+                          () -> readerDataPurgeRepository.findAnnotationKeysAfter(table, 1L, new AnnotationKey(1L, 1L),
+                                                                                  500));
+            jdbcCalls.put("deleteAnnotations(" + table + ")",
+                          () -> readerDataPurgeRepository.deleteAnnotations(table, 1L, ids));
+        }
+        jdbcCalls.put("findBookIdsAfter()", () -> readerDataPurgeRepository.findBookIdsAfter(1L, 1L, 500));
+        jdbcCalls.put("deleteReaderBooks()",
+                      () -> readerDataPurgeRepository.deleteReaderBooks(READER_WITHOUT_DATA, ids));
+        jdbcCalls.put("deleteRefreshTokens()", () -> readerDataPurgeRepository.deleteRefreshTokens(1L));
+        jdbcCalls.put("deleteQueuedEmails()", () -> readerDataPurgeRepository.deleteQueuedEmails(1L));
+        jdbcCalls.put("deleteReader()", () -> readerDataPurgeRepository.deleteReader(READER_WITHOUT_DATA));
+        return jdbcCalls;
+    }
+
+    private static void invoke(Object repository, Method queryMethod) {
+        Object[] arguments = new Object[queryMethod.getParameterCount()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = sampleValue(queryMethod, queryMethod.getParameterTypes()[i],
+                                       queryMethod.getGenericParameterTypes()[i]);
+        }
+        try {
+            queryMethod.invoke(repository, arguments);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Couldn't run " + describe(queryMethod), e);
+        }
+    }
+
+    // Inside a transaction that's rolled back, for the statements that write
+    private List<RecordedStatement> run(Runnable call) {
+        recordedStatements.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            call.run();
+            status.setRollbackOnly();
+        });
+
+        List<RecordedStatement> statements;
+        synchronized (recordedStatements) {
+            statements = List.copyOf(recordedStatements);
+        }
+        return statements.stream()
+                .filter(statement -> !statement.sql().toLowerCase(Locale.ROOT).startsWith("insert"))
+                .toList();
+    }
+
+    // Adds the tables that a statement reads in full to fullScans, returns how many statements were explained
+    private int explain(String description, List<RecordedStatement> statements, List<String> fullScans) {
+        assertThat(statements).as("SQL sent by %s", description).isNotEmpty();
+        for (RecordedStatement statement : statements) {
+            List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + statement.sql(),
+                                                                       statement.parameters().values().toArray());
+            for (Map<String, Object> planRow : plan) {
+                if ("ALL".equals(planRow.get("type"))) {
+                    fullScans.add(description + " scans " + planRow.get("table") + ":\n  " + statement.sql() + "\n  "
+                                          + plan);
+                }
+            }
+        }
+        return statements.size();
+    }
+
+    // The values don't matter much for the plan, the tables are big enough either way
+    private static Object sampleValue(Method queryMethod, Class<?> type, Type genericType) {
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 1;
+        }
+        if (type == String.class) {
+            return "sample";
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.of(2024, 6, 1);
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type == Limit.class) {
+            return Limit.of(20);
+        }
+        // Not one of reader 1's books, or deleteReaderBook would fail on the foreign keys of its quotes and words
+        if (type == ReaderBookId.class) {
+            return ReaderBook.createCompositeKey(1L, 2L);
+        }
+        if (type == SearchQuery.class) {
+            return SearchQuery.parse("quote");
+        }
+        if (Collection.class.isAssignableFrom(type) && genericType instanceof ParameterizedType parameterizedType) {
+            Type elementType = parameterizedType.getActualTypeArguments()[0];
+            return List.of(sampleValue(queryMethod, (Class<?>) elementType, elementType),
+                           sampleValue(queryMethod, (Class<?>) elementType, elementType));
+        }
+        throw new IllegalArgumentException("No sample value for a " + genericType + " parameter of "
+                                                   + describe(queryMethod) + ", add one to sampleValue");
+    }
+
+    private static String describe(Method queryMethod) {
+        return queryMethod.getDeclaringClass().getSimpleName() + "." + queryMethod.getName();
+    }
+
+    private record RecordedStatement(String sql, Map<Integer, Object> parameters) {
+    }
+
+    @TestConfiguration
+    static class RecordingDataSourceConfig {
+        @Bean
+        static BeanPostProcessor recordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? recording(dataSource) : bean;
+                }
+            };
+        }
+
+        /* DataSource -> Connection -> PreparedStatement, the statement keeps its SQL and the parameters set on it. A plain
+        Statement (JdbcTemplate without arguments) is recorded with the SQL it executes. */
+        private static DataSource recording(DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (method, arguments, result) ->
+                    result instanceof Connection connection ? recording(connection) : result);
+        }
+
+        private static Connection recording(Connection connection) {
+            return proxy(Connection.class, connection, (method, arguments, result) -> {
+                if (result instanceof PreparedStatement preparedStatement && method.getName().startsWith("prepare")) {
+                    return recording(preparedStatement, (String) arguments[0]);
+                }
+                if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                    return recording(statement);
+                }
+                return result;
+            });
+        }
+
+        private static Statement recording(Statement statement) {
+            return proxy(Statement.class, statement, (method, arguments, result) -> {
+                if (method.getName().startsWith("execute") && arguments != null && arguments[0] instanceof String sql) {
+                    recordedStatements.add(new RecordedStatement(sql, new TreeMap<>()));
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement recording(PreparedStatement preparedStatement, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return proxy(PreparedStatement.class, preparedStatement, (method, arguments, result) -> {
+                String methodName = method.getName();
+                // setLong(1, 42L), setObject(2, value, type), setNull(3, Types.BIGINT), ...
+                if (methodName.startsWith("set") && arguments != null && arguments.length >= 2
+                        && arguments[0] instanceof Integer index) {
+                    parameters.put(index, methodName.equals("setNull") ? null : arguments[1]);
+                } else if (methodName.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (methodName.startsWith("execute")) {
+                    recordedStatements.add(new RecordedStatement(sql, new TreeMap<>(parameters)));
+                }
+                return result;
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, T target, ResultWrapper resultWrapper) {
+            Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, arguments) -> {
+                try {
+                    return resultWrapper.wrap(method, arguments, method.invoke(target, arguments));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+            return type.cast(proxy);
+        }
+
+        private interface ResultWrapper {
+            Object wrap(Method method, Object[] arguments, Object result);
+        }
+    }
+
+    private static final List<String> SEED_STATEMENTS = List.of(
+            "SET SESSION cte_max_recursion_depth = 100000",
+            """
+            INSERT INTO readers (reader_id, email, is_enabled, password, username)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 501)
+            SELECT i, CONCAT('reader', i, '@example.com'), TRUE, 'x', CONCAT('reader', i) FROM n""",
+            """
+            INSERT INTO authors (author_id, full_name)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 300)
+            SELECT i, CONCAT('Author ', i) FROM n""",
+            """
+            INSERT INTO categories (category_id, name)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 50)
+            SELECT i, CONCAT('Category ', i) FROM n""",
+            """
+            INSERT INTO publishers (publisher_id, name)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 100)
+            SELECT i, CONCAT('Publisher ', i) FROM n""",
+            """
+            INSERT INTO books (book_id, title, isbn, pages_count, author_id, category_id, publisher_id)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 3000)
+            SELECT i, CONCAT('Book ', i), LPAD(i, 13, '0'), 100, 1 + i % 300, 1 + i % 50, 1 + i % 100 FROM n""",
+            // 20 books per reader
+            """
+            INSERT INTO readers_books (book_id, reader_id, adding_date, left_off_page, status)
+            WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < 9999)
+            SELECT 1 + (i * 37) % 3000, 1 + i DIV 20, DATE '2024-01-01' + INTERVAL i % 365 DAY, 1, 'READING' FROM n""",
+            """
+            INSERT INTO quotes (page_number, text, text_hash, book_id, reader_id)
+            SELECT copy, CONCAT('Quote ', copy, ' of ', book_id, ' by ', reader_id),
+                   SHA2(CONCAT('quote ', copy, ' of ', book_id, ' by ', reader_id), 256), book_id, reader_id
+            FROM readers_books JOIN (SELECT 1 AS copy UNION ALL SELECT 2) copies""",
+            """
+            INSERT INTO words (page_number, related_sentence, translation, word_content, word_key, book_id, reader_id)
+            SELECT copy, 'A sentence', 'A translation', CONCAT('word', copy, '-', book_id),
+                   CONCAT('word', copy, '-', book_id), book_id, reader_id
+            FROM readers_books JOIN (SELECT 1 AS copy UNION ALL SELECT 2) copies""",
+            """
+            INSERT INTO revoked_tokens (token_key, expires_at)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 1000)
+            SELECT SHA2(i, 256), NOW() + INTERVAL i MINUTE FROM n""",
+            """
+            INSERT INTO email_outbox (reader_id, to_email, subject, html_body, status, attempts, next_attempt_at,
+                                      created_at)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 1000)
+            SELECT 1 + i % 500, CONCAT('reader', i, '@example.com'), 'Subject', '<p>Body</p>',
+                   IF(i % 10 = 0, 'FAILED', 'PENDING'), 1, NOW() + INTERVAL i MINUTE, NOW() FROM n""",
+            """
+            INSERT INTO refresh_tokens (token_hash, reader_id, family_id, expires_at)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 1000)
+            SELECT SHA2(i, 256), 1 + i % 500, UUID(), NOW() + INTERVAL i MINUTE FROM n""",
+            // Mostly finished ones, like in production (the readers are gone, reader_id doesn't point anywhere)
+            """
+            INSERT INTO purge_jobs (job_id, reader_id, status, words_deleted, quotes_deleted, books_deleted, created_at,
+                                    updated_at)
+            WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 1000)
+            SELECT UUID(), 1000 + i, IF(i % 100 = 0, 'PENDING', 'DONE'), 0, 0, 0, NOW(), NOW() + INTERVAL i MINUTE
+            FROM n""",
+            "ANALYZE TABLE readers, authors, categories, publishers, books, readers_books, quotes, words, "
+                    + "revoked_tokens, email_outbox, refresh_tokens, purge_jobs");
+}
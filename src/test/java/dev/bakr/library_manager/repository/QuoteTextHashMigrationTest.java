@@ -0,0 +1,148 @@
+package dev.bakr.library_manager.repository;
+
+import dev.bakr.library_manager.utils.Hashing;
+import dev.bakr.library_manager.utils.TextNormalizer;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* V12 computes text_hash of the existing quotes in SQL, the application computes it in Java (TextNormalizer.contentHash)
+for the new ones. If the two disagree on some text, a quote and its duplicate added later get different hashes and the
+unique index doesn't catch it. The quotes are added before V12 runs, like the ones in production were, and one more is
+added between V12 and V17 with the hash that the application computed then (see V17).
+
+Needs Docker for the MySQL container, it's skipped without it (CI has it, see .github/workflows/ci.yml). */
+@Testcontainers(disabledWithoutDocker = true)
+class QuoteTextHashMigrationTest {
+    @Container
+    static MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.4");
+
+    // In book 1, all different once normalized
+    private static final List<String> DISTINCT_TEXTS = List.of(
+            "Plain ASCII text",
+            "  Café   Crème\tBrûlée  ",
+            "ÉCOLE\nÀ PARIS",
+            "Straße und Größe",
+            "Ünïcödé, ñandú, Łódź",
+            "ΣΟΦΊΑ and σοφία",
+            "Война и мир",
+            "漢字 かな カナ",
+            "Emoji 😀 outside the BMP",
+            "ＦＵＬＬ width",
+            "Tabs\t\tand\r\nline breaks",
+            "Non\u00A0breaking space",
+            "İstanbul",
+            "ΟΔΟΣ ΣΟΦΙΑΣ");
+
+    // Added by the application between V12 and V17
+    private static final String TEXT_HASHED_BEFORE_V17 = "İzmir'in ΚΌΣΜΟΣ";
+
+    // In book 2, only different in case and whitespace
+    private static final List<String> DUPLICATE_TEXTS = List.of(
+            "Être ou ne pas être",
+            "ÊTRE OU NE PAS ÊTRE",
+            "  être\tou ne   pas être\n");
+
+    @BeforeAll
+    static void migrateWithExistingQuotes() throws SQLException {
+        flywayUpTo("11").migrate();
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO readers (reader_id, email, is_enabled, password, username) "
+                                      + "VALUES (1, 'reader@example.com', true, 'password', 'reader')");
+            statement.execute("INSERT INTO books (book_id, title, isbn, pages_count) "
+                                      + "VALUES (1, 'Book 1', '9780000000001', 100), (2, 'Book 2', '9780000000002', 100)");
+            statement.execute("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                      + "VALUES (1, 1, 'unread', '2025-01-01'), (1, 2, 'unread', '2025-01-01')");
+            insertQuotes(connection, 1, DISTINCT_TEXTS);
+            insertQuotes(connection, 2, DUPLICATE_TEXTS);
+        }
+
+        flywayUpTo("16").migrate();
+
+        try (Connection connection = connect();
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO quotes (quote_id, page_number, text, book_id, reader_id, text_hash) "
+                             + "VALUES (1000, 1, ?, 1, 1, ?)")) {
+            insert.setString(1, TEXT_HASHED_BEFORE_V17);
+            insert.setString(2, Hashing.sha256Hex(TEXT_HASHED_BEFORE_V17.toLowerCase(Locale.ROOT)));
+            insert.executeUpdate();
+        }
+
+        flywayUpTo("latest").migrate();
+    }
+
+    @Test
+    void shouldBackfillTheSameHashAsTheApplication() throws SQLException {
+        // when
+        Map<String, String> hashesByText = new TreeMap<>();
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet quotes = statement.executeQuery("SELECT text, text_hash FROM quotes WHERE book_id = 1")) {
+            while (quotes.next()) {
+                hashesByText.put(quotes.getString("text"), quotes.getString("text_hash"));
+            }
+        }
+
+        // then
+        assertEquals(DISTINCT_TEXTS.size() + 1, hashesByText.size());
+        hashesByText.forEach((text, hash) -> assertEquals(TextNormalizer.contentHash(text), hash, text));
+    }
+
+    @Test
+    void shouldKeepOnlyTheFirstOfTheQuotesThatDifferInCaseOrWhitespace() throws SQLException {
+        // when
+        List<String> keptTexts = new ArrayList<>();
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet quotes = statement.executeQuery("SELECT text FROM quotes WHERE book_id = 2")) {
+            while (quotes.next()) {
+                keptTexts.add(quotes.getString("text"));
+            }
+        }
+
+        // then
+        assertEquals(List.of(DUPLICATE_TEXTS.getFirst()), keptTexts);
+    }
+
+    private static void insertQuotes(Connection connection, long bookId, List<String> texts) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO quotes (quote_id, page_number, text, book_id, reader_id) VALUES (?, 1, ?, ?, 1)")) {
+            for (String text : texts) {
+                insert.setLong(1, bookId * 100 + texts.indexOf(text));
+                insert.setString(2, text);
+                insert.setLong(3, bookId);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static Flyway flywayUpTo(String version) {
+        return Flyway.configure()
+                .dataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword())
+                .target(version)
+                .load();
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+    }
+}
@@ -0,0 +1,297 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.exceptions.ExistsException;
+import dev.bakr.library_manager.model.PurgeJob;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.repository.JobLeaseRepository;
+import dev.bakr.library_manager.repository.PurgeJobRepository;
+import dev.bakr.library_manager.repository.ReaderDataPurgeRepository;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.responses.PurgeJobDtoResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/* The reader 1 has 7 books with 3 quotes and 3 words each, and chunks are 4 rows, so every table takes a few chunks.
+The reader 2 shares one of the books and must keep everything. */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:purge;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReaderDataPurgeRepository.class, JobLeaseService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountPurgeServiceTest {
+    private static final int CHUNK_SIZE = 4;
+    private static final Long READER_ID = 1L;
+    private static final Long OTHER_READER_ID = 2L;
+
+    @Autowired
+    private PurgeJobRepository purgeJobRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private ReaderDataPurgeRepository readerDataPurgeRepository;
+    @Autowired
+    private JobLeaseService jobLeaseService;
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ReaderDataPurgeRepository purgeStatements;
+    private OrphanCollector orphanCollector;
+    private MyUserDetailsService myUserDetailsService;
+    private WordSuggestionIndex wordSuggestionIndex;
+    private AccountPurgeService underTestService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO readers (reader_id, email, is_enabled, password, username) VALUES "
+                                    + "(1, 'reader@example.com', true, 'password', 'reader'), "
+                                    + "(2, 'other@example.com', true, 'password', 'other')");
+        for (long bookId = 1; bookId <= 7; bookId++) {
+            jdbcTemplate.update("INSERT INTO books (book_id, title, isbn, pages_count) VALUES (?, 'Book', ?, 100)",
+                                bookId, "978000000000" + bookId);
+            jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                        + "VALUES (1, ?, 'unread', CURRENT_DATE)", bookId);
+            for (long i = 0; i < 3; i++) {
+                long id = bookId * 10 + i;
+                jdbcTemplate.update("INSERT INTO quotes (quote_id, reader_id, book_id, text, text_hash, page_number) "
+                                            + "VALUES (?, 1, ?, 'Quote', ?, 1)", id, bookId, "hash" + id);
+                jdbcTemplate.update("INSERT INTO words (word_id, reader_id, book_id, word_content, word_key, translation, "
+                                            + "related_sentence, page_number) VALUES (?, 1, ?, 'word', ?, 'mot', 'A word.', 1)",
+                                    id, bookId, "word" + id);
+            }
+        }
+        jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                    + "VALUES (2, 1, 'unread', CURRENT_DATE)");
+        jdbcTemplate.update("INSERT INTO quotes (quote_id, reader_id, book_id, text, text_hash, page_number) "
+                                    + "VALUES (1000, 2, 1, 'Quote', 'hash1000', 1)");
+        jdbcTemplate.update("INSERT INTO refresh_tokens (token_hash, reader_id, family_id, expires_at) VALUES "
+                                    + "('token1', 1, 'family1', ?), ('token2', 1, 'family2', ?), ('token3', 2, 'family3', ?)",
+                            LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(1));
+        insertQueuedEmail(1L, "reader@example.com");
+        insertQueuedEmail(2L, "other@example.com");
+
+        purgeStatements = spy(readerDataPurgeRepository);
+        orphanCollector = mock(OrphanCollector.class);
+        myUserDetailsService = mock(MyUserDetailsService.class);
+        wordSuggestionIndex = mock(WordSuggestionIndex.class);
+        underTestService = new AccountPurgeService(purgeJobRepository, readerRepository, purgeStatements, jobLeaseService,
+                                                   orphanCollector, myUserDetailsService, wordSuggestionIndex,
+                                                   new SimpleMeterRegistry(), CHUNK_SIZE, Duration.ZERO,
+                                                   Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        for (String table : new String[]{"words", "quotes", "readers_books", "books", "refresh_tokens", "email_outbox",
+                "purge_jobs", "job_leases", "readers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void shouldDisableTheReaderAndQueueTheJobOnlyOnce() {
+        // given
+        var principal = new ReaderPrincipal(READER_ID, "reader", true);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // when: the service is built by hand, the transaction is the one of the proxy in the application
+        PurgeJobDtoResponse purgeJob = inTransaction(() -> underTestService.requestPurge());
+
+        // then
+        assertEquals(PurgeJob.PENDING, purgeJob.status());
+        assertFalse(readerRepository.findById(READER_ID).orElseThrow().getIsEnabled());
+        verify(myUserDetailsService, times(1)).evictPrincipal(READER_ID);
+        ExistsException ex = assertThrows(ExistsException.class, () -> inTransaction(() -> underTestService.requestPurge()));
+        assertEquals("The deletion of this account has already been requested!", ex.getMessage());
+    }
+
+    @Test
+    void shouldDeleteEverythingOfTheReaderInChunks() {
+        // given
+        PurgeJob purgeJob = purgeJobRepository.save(new PurgeJob(READER_ID));
+
+        // when
+        underTestService.runPurges();
+
+        // then: 21 words and 21 quotes in chunks of 4, 7 books in 2 chunks
+        PurgeJob finishedJob = purgeJobRepository.findById(purgeJob.getId()).orElseThrow();
+        assertEquals(PurgeJob.DONE, finishedJob.getStatus());
+        assertEquals(21, finishedJob.getWordsDeleted());
+        assertEquals(21, finishedJob.getQuotesDeleted());
+        assertEquals(7, finishedJob.getBooksDeleted());
+        assertNull(finishedJob.getLastError());
+        verify(purgeStatements, times(12)).deleteAnnotations(any(), anyLong(), any());
+        verify(purgeStatements, times(2)).deleteReaderBooks(anyLong(), any());
+        verify(orphanCollector, times(2)).markBooksIfUnreferenced(any());
+        verify(wordSuggestionIndex, times(1)).evict(READER_ID);
+
+        assertEquals(0, countOf("readers WHERE reader_id = 1"));
+        assertEquals(0, countOf("words WHERE reader_id = 1"));
+        assertEquals(0, countOf("quotes WHERE reader_id = 1"));
+        assertEquals(0, countOf("readers_books WHERE reader_id = 1"));
+        assertEquals(0, countOf("refresh_tokens WHERE reader_id = 1"));
+        assertEquals(0, countOf("email_outbox WHERE reader_id = 1"));
+
+        // the other reader's rows, and the books themselves (left to the OrphanCollector)
+        assertEquals(1, countOf("readers_books WHERE reader_id = 2"));
+        assertEquals(1, countOf("quotes WHERE reader_id = 2"));
+        assertEquals(1, countOf("refresh_tokens WHERE reader_id = 2"));
+        assertEquals(1, countOf("email_outbox WHERE reader_id = 2"));
+        assertEquals(7, countOf("books"));
+    }
+
+    @Test
+    void shouldKeepTheQueuedEmailsOfAnotherAccountWithTheSameAddress() {
+        // given: the email of readers isn't unique, the other account is waiting for its verification code
+        jdbcTemplate.update("INSERT INTO readers (reader_id, email, is_enabled, password, username) "
+                                    + "VALUES (3, 'reader@example.com', false, 'password', 'same-address')");
+        insertQueuedEmail(3L, "reader@example.com");
+        purgeJobRepository.save(new PurgeJob(READER_ID));
+
+        // when
+        underTestService.runPurges();
+
+        // then
+        assertEquals(0, countOf("email_outbox WHERE reader_id = 1"));
+        assertEquals(1, countOf("email_outbox WHERE reader_id = 3 AND to_email = 'reader@example.com'"));
+        assertEquals(1, countOf("readers WHERE reader_id = 3"));
+    }
+
+    @Test
+    void shouldKeepTheProgressOfAFailedJobAndFinishItOnTheNextRun() {
+        // given: the first delete of readers_books fails, like it does on the foreign key of a quote added meanwhile
+        PurgeJob purgeJob = purgeJobRepository.save(new PurgeJob(READER_ID));
+        AtomicBoolean hasFailed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (hasFailed.compareAndSet(false, true)) {
+                throw new DataIntegrityViolationException("Cannot delete or update a parent row: fk_reader_book_quote");
+            }
+            return invocation.callRealMethod();
+        }).when(purgeStatements).deleteReaderBooks(anyLong(), any());
+
+        // when
+        underTestService.runPurges();
+
+        // then
+        PurgeJob failedJob = purgeJobRepository.findById(purgeJob.getId()).orElseThrow();
+        assertEquals(PurgeJob.RUNNING, failedJob.getStatus());
+        assertEquals("Cannot delete or update a parent row: fk_reader_book_quote", failedJob.getLastError());
+        assertEquals(21, failedJob.getWordsDeleted());
+        assertEquals(21, failedJob.getQuotesDeleted());
+        assertEquals(0, failedJob.getBooksDeleted());
+        assertEquals(1, countOf("readers WHERE reader_id = 1"));
+        verifyNoInteractions(wordSuggestionIndex);
+
+        // when: the next run starts over from the first key, the deleted rows aren't found (nor counted) again
+        underTestService.runPurges();
+
+        // then
+        PurgeJob finishedJob = purgeJobRepository.findById(purgeJob.getId()).orElseThrow();
+        assertEquals(PurgeJob.DONE, finishedJob.getStatus());
+        assertEquals(21, finishedJob.getWordsDeleted());
+        assertEquals(21, finishedJob.getQuotesDeleted());
+        assertEquals(7, finishedJob.getBooksDeleted());
+        assertNull(finishedJob.getLastError());
+        assertEquals(0, countOf("readers WHERE reader_id = 1"));
+    }
+
+    @Test
+    void shouldNotRunWhileAnotherNodeHoldsTheLease() {
+        // given
+        PurgeJob purgeJob = purgeJobRepository.save(new PurgeJob(READER_ID));
+        otherNodeTakesTheLease();
+
+        // when
+        underTestService.runPurges();
+
+        // then
+        assertEquals(PurgeJob.PENDING, purgeJobRepository.findById(purgeJob.getId()).orElseThrow().getStatus());
+        assertEquals(21, countOf("words WHERE reader_id = 1"));
+    }
+
+    @Test
+    void shouldStopWhenAnotherNodeTookTheLeaseOverInTheMiddleOfAJob() {
+        // given: the other node takes the lease over (e.g., this one stalled past the lease) after the first chunk
+        PurgeJob purgeJob = purgeJobRepository.save(new PurgeJob(READER_ID));
+        doAnswer(invocation -> {
+            Object deletedCount = invocation.callRealMethod();
+            otherNodeTakesTheLease();
+            return deletedCount;
+        }).when(purgeStatements).deleteAnnotations(any(), anyLong(), any());
+
+        // when
+        underTestService.runPurges();
+
+        // then: no chunk after the one that was running, and the other node's lease is left alone
+        PurgeJob stoppedJob = purgeJobRepository.findById(purgeJob.getId()).orElseThrow();
+        assertEquals(PurgeJob.RUNNING, stoppedJob.getStatus());
+        assertEquals("Lost the lease of the account purge to another node", stoppedJob.getLastError());
+        verify(purgeStatements, times(1)).deleteAnnotations(any(), anyLong(), any());
+        assertEquals(21 - CHUNK_SIZE, countOf("words WHERE reader_id = 1"));
+        assertEquals("other-node", jobLeaseRepository.findById("account-purge").orElseThrow().getOwner());
+        assertTrue(jobLeaseRepository.findById("account-purge").orElseThrow().getLeaseUntil().isAfter(LocalDateTime.now()));
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private void otherNodeTakesTheLease() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.update(
+                "MERGE INTO job_leases (job_name, owner, lease_until) KEY (job_name) VALUES ('account-purge', 'other-node', ?)",
+                LocalDateTime.now().plusMinutes(10)));
+    }
+
+    private void insertQueuedEmail(Long readerId, String toEmail) {
+        jdbcTemplate.update("INSERT INTO email_outbox (reader_id, to_email, subject, html_body, status, attempts, "
+                                    + "next_attempt_at, created_at) VALUES (?, ?, 'Code', '<p>123456</p>', 'PENDING', 0, ?, ?)",
+                            readerId, toEmail, LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    private int countOf(String tableAndCondition) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableAndCondition, Integer.class);
+    }
+}
@@ -0,0 +1,183 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.config.LazyConnectionConfig;
+import dev.bakr.library_manager.mappers.BookMapperImpl;
+import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.repository.AuthorRepository;
+import dev.bakr.library_manager.repository.BookRepository;
+import dev.bakr.library_manager.repository.CategoryRepository;
+import dev.bakr.library_manager.repository.PublisherRepository;
+import dev.bakr.library_manager.repository.ReaderBookRepository;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.requests.BookDtoRequest;
+import dev.bakr.library_manager.requests.BooksBatchDtoRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* Many requests adding books by the same new author/category/publisher at once, on a pool of 2 connections. A request
+that held its connection while the names were inserted on a second one would have the pool wait on itself until the
+connection timeout. */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:bookpool;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BookService.class, AuthorService.class, CategoryService.class, PublisherService.class, NameInterner.class,
+        BookCatalogCache.class, WordSuggestionIndex.class, BookMapperImpl.class, SimpleMeterRegistry.class,
+        LazyConnectionConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookServiceConcurrencyTest {
+    private static final int REQUEST_COUNT = 8;
+
+    @Autowired
+    private BookService underTestService;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ReaderBookRepository readerBookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PublisherRepository publisherRepository;
+
+    @AfterEach
+    void tearDown() {
+        readerBookRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+        authorRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+        publisherRepository.deleteAllInBatch();
+        readerRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldAddBooksByTheSameNewNamesConcurrentlyOnASmallPool() throws Exception {
+        // given
+        List<Callable<String>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            Reader reader = saveReader("reader" + i);
+            BookDtoRequest bookDtoRequest = bookRequest("978000000000" + i, "Anna Lembke", "Psychology", "Dutton");
+            requests.add(asReader(reader, () -> underTestService.addReaderBook(bookDtoRequest)));
+        }
+
+        // when
+        List<String> messages = runAllAtOnce(requests);
+
+        // then
+        assertEquals(REQUEST_COUNT, messages.size());
+        assertEquals(1, authorRepository.count());
+        assertEquals(1, categoryRepository.count());
+        assertEquals(1, publisherRepository.count());
+        assertEquals(REQUEST_COUNT, bookRepository.count());
+        assertEquals(REQUEST_COUNT, readerBookRepository.count());
+    }
+
+    @Test
+    void shouldAddBatchesByTheSameNewNamesConcurrentlyOnASmallPool() throws Exception {
+        // given
+        List<Callable<String>> requests = new ArrayList<>();
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            Reader reader = saveReader("reader" + i);
+            BooksBatchDtoRequest batchDtoRequest = new BooksBatchDtoRequest(List.of(
+                    bookRequest("978100000000" + i, "Anna Lembke", "Psychology", "Dutton"),
+                    bookRequest("978200000000" + i, "Cal Newport", "Productivity", "Grand Central")));
+            requests.add(asReader(reader, () -> underTestService.addReaderBooks(batchDtoRequest).toString()));
+        }
+
+        // when
+        runAllAtOnce(requests);
+
+        // then
+        assertEquals(2, authorRepository.count());
+        assertEquals(2, categoryRepository.count());
+        assertEquals(2, publisherRepository.count());
+        assertEquals(2 * REQUEST_COUNT, bookRepository.count());
+        assertEquals(2 * REQUEST_COUNT, readerBookRepository.count());
+    }
+
+    private Reader saveReader(String username) {
+        Reader reader = new Reader();
+        reader.setUsername(username);
+        reader.setEmail(username + "@example.com");
+        reader.setPassword("password");
+        reader.setIsEnabled(true);
+        return readerRepository.save(reader);
+    }
+
+    private static BookDtoRequest bookRequest(String isbn, String authorFullName, String categoryName, String publisherName) {
+        return BookDtoRequest.builder()
+                .title("Book " + isbn)
+                .isbn(isbn)
+                .pagesCount(100)
+                .imageLink("https://example.com/" + isbn + ".jpg")
+                .authorFullName(authorFullName)
+                .categoryName(categoryName)
+                .publisherName(publisherName)
+                .build();
+    }
+
+    // The request runs with the reader logged in, on whichever thread it ends up
+    private static Callable<String> asReader(Reader reader, Callable<String> request) {
+        return () -> {
+            var principal = new ReaderPrincipal(reader.getId(), reader.getUsername(), true);
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+            try {
+                return request.call();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        };
+    }
+
+    private static <T> List<T> runAllAtOnce(List<Callable<T>> requests) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(requests.size());
+        ExecutorService threads = Executors.newFixedThreadPool(requests.size());
+        try {
+            List<Future<T>> results = new ArrayList<>();
+            for (Callable<T> request : requests) {
+                results.add(threads.submit(() -> {
+                    barrier.await();
+                    return request.call();
+                }));
+            }
+
+            List<T> values = new ArrayList<>();
+            for (Future<T> result : results) {
+                values.add(result.get());
+            }
+            return values;
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
@@ -1,27 +1,44 @@
 package dev.bakr.library_manager.service;
 
 import dev.bakr.library_manager.exceptions.ExistsException;
+import dev.bakr.library_manager.exceptions.InvalidInputsException;
+import dev.bakr.library_manager.exceptions.NotFoundException;
 import dev.bakr.library_manager.mappers.BookMapper;
 import dev.bakr.library_manager.model.*;
 import dev.bakr.library_manager.repository.BookRepository;
+import dev.bakr.library_manager.repository.QuoteRepository;
 import dev.bakr.library_manager.repository.ReaderBookRepository;
 import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.repository.WordRepository;
 import dev.bakr.library_manager.requests.BookDtoRequest;
+import dev.bakr.library_manager.requests.BooksBatchDtoRequest;
+import dev.bakr.library_manager.requests.ReaderBookDtoRequest;
+import dev.bakr.library_manager.responses.BooksBatchDtoResponse;
 import dev.bakr.library_manager.responses.ReaderBookDtoResponse;
+import dev.bakr.library_manager.responses.ReaderBooksPageDtoResponse;
+import dev.bakr.library_manager.utils.ReaderBookCursor;
 import dev.bakr.library_manager.utils.SecurityCheck;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -43,6 +60,16 @@ class BookServiceTest {
     private CategoryService categoryService;
     @Mock
     private PublisherService publisherService;
+    @Mock
+    private QuoteRepository quoteRepository;
+    @Mock
+    private WordRepository wordRepository;
+    @Mock
+    private BookCatalogCache bookCatalogCache;
+    @Mock
+    private WordSuggestionIndex wordSuggestionIndex;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private BookService underTestService;
@@ -78,6 +105,7 @@ class BookServiceTest {
             // when
             mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
             when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
+            when(readerBookRepository.findAllViewsByReaderId(principal.getId())).thenReturn(List.of());
 
             // doing the test
             List<ReaderBookDtoResponse> underTestResult = underTestService.getReaderBooks();
@@ -85,41 +113,278 @@ class BookServiceTest {
             // then
             assertEquals(List.of(), underTestResult);
             verify(readerRepository, times(1)).findById(principal.getId());
+            verify(readerBookRepository, times(1)).findAllViewsByReaderId(principal.getId());
+        }
+    }
+
+    @Test
+    void shouldGetReaderBooksPageWithNextCursor() {
+        // given (two rows come back for a page of one, so there must be a next page)
+        LocalDate addingDate = LocalDate.of(2024, 5, 1);
+        ReaderBookDtoResponse firstRow = readerBookView(1L, addingDate);
+        ReaderBookDtoResponse secondRow = readerBookView(2L, addingDate);
+
+        ReaderBook inMemoryReaderBook = new ReaderBook();
+        inMemoryReaderBook.setId(new ReaderBookId(inMemoryReader.getId(), 1L));
+        Quote inMemoryQuote = new Quote(1L, "Quote text", 10, inMemoryReaderBook);
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
+            when(readerBookRepository.findFirstViewsPageByReaderId(principal.getId(), Limit.of(2)))
+                    .thenReturn(List.of(firstRow, secondRow));
+            when(quoteRepository.findAllByReaderIdAndBookIdIn(principal.getId(), List.of(1L)))
+                    .thenReturn(List.of(inMemoryQuote));
+            when(wordRepository.findAllByReaderIdAndBookIdIn(principal.getId(), List.of(1L))).thenReturn(List.of());
+
+            ReaderBooksPageDtoResponse underTestResult = underTestService.getReaderBooksPage(1, null);
+
+            assertEquals(1, underTestResult.books().size());
+            assertEquals(List.of(inMemoryQuote), underTestResult.books().getFirst().quotes());
+            assertEquals(new ReaderBookCursor(addingDate, 1L), ReaderBookCursor.decode(underTestResult.nextCursor()));
+        }
+    }
+
+    @Test
+    void shouldRejectAnOutOfRangePageLimit() {
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
+
+            assertThrows(InvalidInputsException.class, () -> underTestService.getReaderBooksPage(0, null));
+            verifyNoInteractions(quoteRepository, wordRepository);
         }
     }
 
+    private ReaderBookDtoResponse readerBookView(Long bookId, LocalDate addingDate) {
+        return new ReaderBookDtoResponse(bookId, "Title", null, null, "9781524746742", 100, null, null, null,
+                                         "Author", "Category", "Publisher", "unread", addingDate, null);
+    }
+
 
     @Test
     void shouldGetReaderBook() {
         // given
-        ReaderBook inMemoryReaderBook = new ReaderBook();
-        inMemoryReaderBook.setBook(inMemoryBook);
-
-        ReaderBookId readerBookId = new ReaderBookId(inMemoryReader.getId(), inMemoryBook.getId());
+        ReaderBookDtoResponse inMemoryView = readerBookView(inMemoryBook.getId(), LocalDate.now());
 
         try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
             mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
             when(readerRepository.findById(1L)).thenReturn(Optional.of(inMemoryReader));
 
-            when(readerBookRepository.findById(readerBookId)).thenReturn(Optional.of(inMemoryReaderBook));
+            when(readerBookRepository.findViewByReaderIdAndBookId(1L, inMemoryBook.getId()))
+                    .thenReturn(Optional.of(inMemoryView));
 
-            ReaderBookDtoResponse underTestResult = underTestService.getReaderBook(1L);
+            ReaderBookDtoResponse underTestResult = underTestService.getReaderBook(1L, null);
 
             assertThat(inMemoryBook.getId()).isEqualTo(underTestResult.id());
+            assertThat(underTestResult.quotes()).isNull();
 
             verify(readerRepository, times(1)).findById(principal.getId());
-            verify(readerBookRepository, times(1)).findById(readerBookId);
+            verify(readerBookRepository, times(1)).findViewByReaderIdAndBookId(1L, inMemoryBook.getId());
+            // the quotes and words weren't asked for, so they must not be read
+            verifyNoInteractions(quoteRepository, wordRepository);
+        }
+    }
+
+    @Test
+    void shouldGetReaderBookWithItsWordsOnly() {
+        ReaderBookDtoResponse inMemoryView = readerBookView(inMemoryBook.getId(), LocalDate.now());
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(1L)).thenReturn(Optional.of(inMemoryReader));
+            when(readerBookRepository.findViewByReaderIdAndBookId(1L, inMemoryBook.getId()))
+                    .thenReturn(Optional.of(inMemoryView));
+            when(wordRepository.findAllByReaderIdAndBookIdIn(1L, List.of(inMemoryBook.getId()))).thenReturn(List.of());
+
+            ReaderBookDtoResponse underTestResult = underTestService.getReaderBook(1L, Set.of("words"));
+
+            assertEquals(List.of(), underTestResult.words());
+            assertThat(underTestResult.quotes()).isNull();
+            verifyNoInteractions(quoteRepository);
+        }
+    }
+
+    @Test
+    void shouldUpdateReaderBook() {
+        ReaderBookDtoRequest readerBookDtoRequest = new ReaderBookDtoRequest("reading", 42);
+        ReaderBookId readerBookId = new ReaderBookId(inMemoryReader.getId(), inMemoryBook.getId());
+        ReaderBookDtoResponse inMemoryView = readerBookView(inMemoryBook.getId(), LocalDate.now());
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(1L)).thenReturn(Optional.of(inMemoryReader));
+            when(readerBookRepository.updateReadingProgress(readerBookId, "reading", 42)).thenReturn(1);
+            when(readerBookRepository.findViewByReaderIdAndBookId(1L, inMemoryBook.getId()))
+                    .thenReturn(Optional.of(inMemoryView));
+
+            ReaderBookDtoResponse underTestResult = underTestService.updateReaderBook(1L, readerBookDtoRequest, null);
+
+            assertEquals(inMemoryView, underTestResult);
+            verify(readerBookRepository, never()).findById(any(ReaderBookId.class));
+        }
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenUpdatingABookOutsideTheCollection() {
+        ReaderBookDtoRequest readerBookDtoRequest = new ReaderBookDtoRequest("read", null);
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(1L)).thenReturn(Optional.of(inMemoryReader));
+            when(readerBookRepository.updateReadingProgress(any(ReaderBookId.class), eq("read"), isNull())).thenReturn(0);
+
+            assertThrows(NotFoundException.class,
+                         () -> underTestService.updateReaderBook(1L, readerBookDtoRequest, null));
         }
     }
 
     @Test
-    @Disabled
-    void updateReaderBook() {
+    void shouldSearchReaderBooksInRelevanceOrder() {
+        LocalDate addingDate = LocalDate.of(2024, 5, 1);
+        ReaderBookDtoResponse lessRelevantBook = readerBookView(1L, addingDate);
+        ReaderBookDtoResponse moreRelevantBook = readerBookView(2L, addingDate);
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
+            when(readerBookRepository.searchBookIds(principal.getId(), "dopamine", 20)).thenReturn(List.of(2L, 1L));
+            when(readerBookRepository.findViewsByReaderIdAndBookIdIn(principal.getId(), List.of(2L, 1L)))
+                    .thenReturn(List.of(lessRelevantBook, moreRelevantBook));
+
+            List<ReaderBookDtoResponse> underTestResult = underTestService.searchReaderBooks("  dopamine ", null);
+
+            assertEquals(List.of(moreRelevantBook, lessRelevantBook), underTestResult);
+        }
     }
 
     @Test
-    @Disabled
-    void deleteReaderBook() {
+    void shouldRejectABlankSearchQuery() {
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
+
+            assertThrows(InvalidInputsException.class, () -> underTestService.searchReaderBooks(" ", null));
+            verify(readerBookRepository, never()).searchBookIds(any(), any(), anyInt());
+        }
+    }
+
+    @Test
+    void shouldDeleteTheReadersCopyWithItsWordsAndQuotesAndLeaveTheBookToTheOrphanCollector() {
+        ReaderBookId readerBookId = ReaderBook.createCompositeKey(principal.getId(), inMemoryBook.getId());
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(wordRepository.deleteAllByReaderBookId(readerBookId)).thenReturn(3);
+            when(quoteRepository.deleteAllByReaderBookId(readerBookId)).thenReturn(2);
+            when(readerBookRepository.deleteReaderBook(readerBookId)).thenReturn(1);
+
+            String actualMessage = underTestService.deleteReaderBook(inMemoryBook.getId());
+
+            assertEquals("Book deleted successfully.", actualMessage);
+            InOrder deleteOrder = inOrder(wordRepository, quoteRepository, readerBookRepository);
+            deleteOrder.verify(wordRepository).deleteAllByReaderBookId(readerBookId);
+            deleteOrder.verify(quoteRepository).deleteAllByReaderBookId(readerBookId);
+            deleteOrder.verify(readerBookRepository).deleteReaderBook(readerBookId);
+            verify(wordSuggestionIndex, times(1)).evict(principal.getId());
+            verify(readerBookRepository, never()).findById(any());
+            verify(readerRepository, never()).save(any());
+            verify(bookRepository, never()).delete(any());
+            verify(bookCatalogCache, never()).evict(any());
+        }
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenDeletingABookThatIsNotInTheCollection() {
+        ReaderBookId readerBookId = ReaderBook.createCompositeKey(principal.getId(), inMemoryBook.getId());
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerBookRepository.deleteReaderBook(readerBookId)).thenReturn(0);
+
+            assertThrows(NotFoundException.class, () -> underTestService.deleteReaderBook(inMemoryBook.getId()));
+            verify(wordSuggestionIndex, never()).evict(any());
+        }
+    }
+
+    @Test
+    void shouldAddReaderBooksInOneBatch() {
+        // given: one book already in the database, one new book, and the new book repeated in the same batch
+        BookDtoRequest existingBookRequest = BookDtoRequest.builder().isbn(inMemoryBook.getIsbn()).build();
+        BookDtoRequest newBookRequest = BookDtoRequest.builder()
+                .isbn("9780143127741")
+                .authorFullName("Anna Lembke")
+                .categoryName("Clinical Psychology")
+                .publisherName("Penguin Random House")
+                .build();
+        Book newBook = Book.builder().id(2L).isbn(newBookRequest.isbn()).build();
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(1L)).thenReturn(Optional.of(inMemoryReader));
+            when(bookRepository.findAllByIsbnIn(anyCollection())).thenReturn(List.of(inMemoryBook));
+            when(readerBookRepository.findBookIdsByReaderIdAndBookIdIn(1L, List.of(inMemoryBook.getId())))
+                    .thenReturn(List.of());
+            when(authorService.findOrCreateAuthors(Set.of("Anna Lembke")))
+                    .thenReturn(Map.of("Anna Lembke", new Author(1L, "Anna Lembke")));
+            when(categoryService.findOrCreateCategories(Set.of("Clinical Psychology")))
+                    .thenReturn(Map.of("Clinical Psychology", new Category(1L, "Clinical Psychology")));
+            when(publisherService.findOrCreatePublishers(Set.of("Penguin Random House")))
+                    .thenReturn(Map.of("Penguin Random House", new Publisher(1L, "Penguin Random House")));
+            when(bookMapper.toEntity(newBookRequest)).thenReturn(newBook);
+            when(bookRepository.saveAll(List.of(newBook))).thenReturn(List.of(newBook));
+            when(bookRepository.getReferenceById(inMemoryBook.getId())).thenReturn(inMemoryBook);
+            when(bookRepository.getReferenceById(newBook.getId())).thenReturn(newBook);
+
+            BooksBatchDtoResponse underTestResult = underTestService.addReaderBooks(
+                    new BooksBatchDtoRequest(List.of(existingBookRequest, newBookRequest, newBookRequest)));
+
+            assertEquals(new BooksBatchDtoResponse(1, 2, List.of(newBookRequest.isbn())), underTestResult);
+            verify(readerBookRepository, times(1)).saveAll(argThat(readerBooks -> readerBooks.spliterator()
+                    .getExactSizeIfKnown() == 2));
+            verify(bookRepository, never()).findByIsbn(any());
+        }
+    }
+
+    @Test
+    void shouldAddTheBooksOneByOneWhenAConcurrentRequestCreatedOneOfThemFirst() {
+        // given
+        BookDtoRequest newBookRequest = BookDtoRequest.builder()
+                .isbn("9780143127741")
+                .authorFullName("Anna Lembke")
+                .categoryName("Clinical Psychology")
+                .publisherName("Penguin Random House")
+                .build();
+        Book newBook = Book.builder().isbn(newBookRequest.isbn()).build();
+        Book concurrentlyCreatedBook = Book.builder().id(7L).isbn(newBookRequest.isbn()).build();
+
+        try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+            mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+            when(readerRepository.findById(1L)).thenReturn(Optional.of(inMemoryReader));
+            when(bookRepository.findAllByIsbnIn(anyCollection())).thenReturn(List.of());
+            when(bookMapper.toEntity(newBookRequest)).thenReturn(newBook);
+            when(bookRepository.saveAll(List.of(newBook))).thenThrow(isbnViolation());
+            when(bookRepository.saveAndFlush(newBook)).thenThrow(isbnViolation());
+            when(bookRepository.findIdByIsbn(newBookRequest.isbn())).thenReturn(Optional.of(7L));
+            when(readerBookRepository.findBookIdsByReaderIdAndBookIdIn(1L, List.of(7L))).thenReturn(List.of());
+            when(bookRepository.getReferenceById(7L)).thenReturn(concurrentlyCreatedBook);
+
+            // when
+            BooksBatchDtoResponse underTestResult = underTestService.addReaderBooks(
+                    new BooksBatchDtoRequest(List.of(newBookRequest)));
+
+            // then
+            assertEquals(new BooksBatchDtoResponse(0, 1, List.of()), underTestResult);
+            verify(readerBookRepository, times(1)).saveAll(argThat(readerBooks -> readerBooks.iterator().next()
+                    .getBook() == concurrentlyCreatedBook));
+            verify(bookCatalogCache, times(1)).cacheBookId(newBookRequest.isbn(), 7L);
+        }
+    }
+
+    // What the repositories throw when the unique index on books.isbn rejects an INSERT
+    private static DataIntegrityViolationException isbnViolation() {
+        return new DataIntegrityViolationException("could not execute statement", new ConstraintViolationException(
+                "could not execute statement", new SQLException("Duplicate entry"), "books.uk_books_isbn"));
     }
 
     @Nested
@@ -155,11 +420,12 @@ class BookServiceTest {
                 when(authorService.findOrCreateAuthor(bookDtoRequest.authorFullName())).thenReturn(new Author(1L, "Anna Lembke"));
                 when(categoryService.findOrCreateCategory(bookDtoRequest.categoryName())).thenReturn(new Category(1L, "Clinical Psychology"));
                 when(publisherService.findOrCreatePublisher(bookDtoRequest.publisherName())).thenReturn(new Publisher(1L, "Penguin Random House"));
-                when(bookRepository.save(inMemoryBook)).thenAnswer(invocation -> {
+                when(bookRepository.saveAndFlush(inMemoryBook)).thenAnswer(invocation -> {
                     Book savedBook = invocation.getArgument(0);
                     savedBook.setId(1L);
                     return savedBook;
                 });
+                when(bookRepository.getReferenceById(1L)).thenReturn(inMemoryBook);
 
                 String actualMessage = underTestService.addReaderBook(bookDtoRequest);
 
@@ -167,7 +433,8 @@ class BookServiceTest {
                 assertEquals("We've successfully created the book and added it to your books.", actualMessage);
                 assertFalse(inMemoryReader.getReaderBooks().isEmpty());
                 verify(readerRepository, times(1)).save(inMemoryReader);
-                verify(bookRepository, times(1)).save(inMemoryBook);
+                verify(bookRepository, times(1)).saveAndFlush(inMemoryBook);
+                verify(bookCatalogCache, times(1)).cacheBookId(inMemoryBook.getIsbn(), 1L);
             }
         }
 
@@ -179,7 +446,7 @@ class BookServiceTest {
                 // when
                 mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
                 when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
-                when(bookRepository.findByIsbn(bookDtoRequest.isbn())).thenReturn(Optional.of(inMemoryBook));
+                when(bookCatalogCache.findBookIdByIsbn(bookDtoRequest.isbn())).thenReturn(Optional.of(inMemoryBook.getId()));
                 // Argument value doesn’t matter in this test; we only need it to return true
                 when(readerBookRepository.existsById(any(ReaderBookId.class))).thenReturn(true);
 
@@ -187,8 +454,9 @@ class BookServiceTest {
                 ExistsException ex = assertThrows(ExistsException.class, () -> underTestService.addReaderBook(bookDtoRequest));
                 assertEquals("You already have this book in your collection!", ex.getMessage());
                 verify(readerRepository, times(1)).findById(principal.getId());
-                verify(bookRepository, times(1)).findByIsbn(bookDtoRequest.isbn());
+                verify(bookCatalogCache, times(1)).findBookIdByIsbn(bookDtoRequest.isbn());
                 verify(readerBookRepository, times(1)).existsById(any(ReaderBookId.class));
+                verify(bookRepository, never()).getReferenceById(any());
             }
         }
 
@@ -197,17 +465,64 @@ class BookServiceTest {
             try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
                 mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
                 when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
-                when(bookRepository.findByIsbn(bookDtoRequest.isbn())).thenReturn(Optional.of(inMemoryBook));
+                when(bookCatalogCache.findBookIdByIsbn(bookDtoRequest.isbn())).thenReturn(Optional.of(inMemoryBook.getId()));
+                when(bookRepository.getReferenceById(inMemoryBook.getId())).thenReturn(inMemoryBook);
 
                 String actualResult = underTestService.addReaderBook(bookDtoRequest);
 
                 assertEquals("This book already exists in the database. We've added it to your books.", actualResult);
                 assertFalse(inMemoryReader.getReaderBooks().isEmpty());
                 verify(readerRepository, times(1)).findById(principal.getId());
-                verify(bookRepository, times(1)).findByIsbn(bookDtoRequest.isbn());
+                verify(bookCatalogCache, times(1)).findBookIdByIsbn(bookDtoRequest.isbn());
+                verify(bookRepository, never()).findByIsbn(any());
                 verify(readerBookRepository, times(1)).save(any(ReaderBook.class));
                 verify(readerRepository, times(1)).save(inMemoryReader);
             }
         }
+
+        @Test
+        void shouldAddTheBookThatAConcurrentRequestCreatedFirst() {
+            // given
+            Book concurrentlyCreatedBook = Book.builder().id(7L).isbn(bookDtoRequest.isbn()).build();
+
+            try (MockedStatic<SecurityCheck> mockedSecurity = mockStatic(SecurityCheck.class)) {
+                mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(principal);
+                when(readerRepository.findById(principal.getId())).thenReturn(Optional.of(inMemoryReader));
+                when(bookMapper.toEntity(bookDtoRequest)).thenReturn(inMemoryBook);
+                when(bookRepository.saveAndFlush(inMemoryBook)).thenThrow(isbnViolation());
+                when(bookRepository.findIdByIsbn(bookDtoRequest.isbn())).thenReturn(Optional.of(7L));
+                when(bookRepository.getReferenceById(7L)).thenReturn(concurrentlyCreatedBook);
+
+                // when
+                String actualResult = underTestService.addReaderBook(bookDtoRequest);
+
+                // then
+                assertEquals("This book already exists in the database. We've added it to your books.", actualResult);
+                assertEquals(concurrentlyCreatedBook, inMemoryReader.getReaderBooks().getFirst().getBook());
+                verify(readerBookRepository, times(1)).existsById(ReaderBook.createCompositeKey(1L, 7L));
+                verify(bookCatalogCache, times(1)).cacheBookId(bookDtoRequest.isbn(), 7L);
+            }
+        }
+
+        @Test
+        void shouldRejectABookWithoutAnIsbn() {
+            // given
+            BookDtoRequest bookWithoutIsbn = BookDtoRequest.builder()
+                    .title("Dopamine Nation")
+                    .pagesCount(290)
+                    .imageLink("vvvvvvvvvvvvvvvvvvvvvvvv")
+                    .authorFullName("Anna Lembke")
+                    .categoryName("Clinical Psychology")
+                    .publisherName("Penguin Random House")
+                    .build();
+
+            // when
+            InvalidInputsException ex = assertThrows(InvalidInputsException.class,
+                                                     () -> underTestService.addReaderBook(bookWithoutIsbn));
+
+            // then
+            assertEquals("The book should have an ISBN!", ex.getMessage());
+            verifyNoInteractions(bookCatalogCache, bookRepository);
+        }
     }
 }
\ No newline at end of file
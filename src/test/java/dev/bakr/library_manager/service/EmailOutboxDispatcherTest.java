@@ -0,0 +1,165 @@
+package dev.bakr.library_manager.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import dev.bakr.library_manager.model.OutboxEmail;
+import dev.bakr.library_manager.repository.OutboxEmailRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Sends through a real (in-memory) SMTP server, so the batches go over actual SMTP connections, and a stopped server is
+a real connection failure. */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailOutboxDispatcherTest {
+    @RegisterExtension
+    static GreenMailExtension smtpServer = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(30);
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+
+    private EmailOutboxDispatcher underTestDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl emailSender = new JavaMailSenderImpl();
+        emailSender.setHost("127.0.0.1");
+        emailSender.setPort(smtpServer.getSmtp().getPort());
+
+        // batches of 2, 2 at a time, and 2 attempts per email
+        underTestDispatcher = new EmailOutboxDispatcher(outboxEmailRepository, emailSender, new SimpleMeterRegistry(),
+                                                        2, 2, 2, INITIAL_BACKOFF, Duration.ofHours(1),
+                                                        Duration.ofMinutes(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTestDispatcher.shutdown();
+        outboxEmailRepository.deleteAll();
+    }
+
+    @Test
+    void shouldSendEveryDueEmailAndDeleteItsRow() throws Exception {
+        // given: more emails than one page (batch size * concurrency), so the drain goes another round
+        for (int i = 0; i < 7; i++) {
+            outboxEmailRepository.save(new OutboxEmail((long) i, "reader" + i + "@example.com", "Subject " + i, "<p>Body " + i + "</p>"));
+        }
+
+        // when
+        underTestDispatcher.dispatchSoon();
+
+        // then
+        await().atMost(Duration.ofSeconds(10)).until(() -> outboxEmailRepository.count() == 0);
+        MimeMessage[] receivedMessages = smtpServer.getReceivedMessages();
+        assertEquals(7, receivedMessages.length);
+        List<String> recipients = Arrays.stream(receivedMessages)
+                .map(message -> {
+                    try {
+                        return message.getAllRecipients()[0].toString();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .sorted()
+                .toList();
+        assertEquals(List.of("reader0@example.com", "reader1@example.com", "reader2@example.com",
+                             "reader3@example.com", "reader4@example.com", "reader5@example.com",
+                             "reader6@example.com"), recipients);
+    }
+
+    @Test
+    void shouldNotSendAnEmailBeforeItIsDue() {
+        // given
+        OutboxEmail laterEmail = new OutboxEmail(1L, "reader@example.com", "Subject", "<p>Body</p>");
+        laterEmail.setNextAttemptAt(LocalDateTime.now().plusMinutes(5));
+        outboxEmailRepository.save(laterEmail);
+        OutboxEmail dueEmail = outboxEmailRepository.save(new OutboxEmail(2L, "other@example.com", "Subject", "<p>Body</p>"));
+
+        // when
+        underTestDispatcher.dispatchSoon();
+
+        // then
+        await().atMost(Duration.ofSeconds(10)).until(() -> !outboxEmailRepository.existsById(dueEmail.getId()));
+        assertEquals(1, smtpServer.getReceivedMessages().length);
+        assertTrue(outboxEmailRepository.existsById(laterEmail.getId()));
+    }
+
+    @Test
+    void shouldLetOnlyOneWorkerClaimAnEmail() {
+        // given
+        OutboxEmail email = outboxEmailRepository.save(new OutboxEmail(1L, "reader@example.com", "Subject", "<p>Body</p>"));
+        LocalDateTime now = LocalDateTime.now();
+
+        // when
+        int firstClaim = outboxEmailRepository.claim(email.getId(), now, now.plusMinutes(2));
+        int secondClaim = outboxEmailRepository.claim(email.getId(), now, now.plusMinutes(2));
+
+        // then: the first claim pushed the email past `now`, so it isn't due for the second worker
+        assertEquals(1, firstClaim);
+        assertEquals(0, secondClaim);
+        assertEquals(1, outboxEmailRepository.findById(email.getId()).orElseThrow().getAttempts());
+    }
+
+    @Test
+    void shouldRetryWithBackoffAndThenGiveUpWithoutKeepingTheBody() {
+        // given
+        smtpServer.stop();
+        OutboxEmail email = outboxEmailRepository.save(new OutboxEmail(1L, "reader@example.com", "Reset your password",
+                                                                       "<a href=\"https://example.com/reset?code=secret\">Reset</a>"));
+        LocalDateTime beforeFirstAttempt = LocalDateTime.now();
+
+        // when: the first attempt fails
+        underTestDispatcher.dispatchSoon();
+
+        // then: it's due again after the initial backoff
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> outboxEmailRepository.findById(email.getId()).orElseThrow().getLastError() != null);
+        OutboxEmail retriedEmail = outboxEmailRepository.findById(email.getId()).orElseThrow();
+        assertEquals(OutboxEmail.PENDING, retriedEmail.getStatus());
+        assertEquals(1, retriedEmail.getAttempts());
+        assertTrue(!retriedEmail.getNextAttemptAt().isBefore(beforeFirstAttempt.plus(INITIAL_BACKOFF)));
+        assertTrue(retriedEmail.getHtmlBody().contains("code=secret"));
+
+        // when: the second (and last) attempt fails too
+        outboxEmailRepository.reschedule(email.getId(), OutboxEmail.PENDING, LocalDateTime.now(), retriedEmail.getLastError());
+        underTestDispatcher.dispatchSoon();
+
+        // then
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> outboxEmailRepository.findById(email.getId()).orElseThrow().getStatus().equals(OutboxEmail.FAILED));
+        OutboxEmail failedEmail = outboxEmailRepository.findById(email.getId()).orElseThrow();
+        assertEquals(2, failedEmail.getAttempts());
+        assertEquals("", failedEmail.getHtmlBody());
+        assertEquals("reader@example.com", failedEmail.getToEmail());
+        assertNotNull(failedEmail.getLastError());
+    }
+}
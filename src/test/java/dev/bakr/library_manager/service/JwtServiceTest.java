@@ -0,0 +1,109 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtServiceTest {
+    private static final String SECRET_KEY = "Zm9yLXRlc3RzLW9ubHktbm90LXRoZS1yZWFsLWtleS1hdC1hbGwtMTIzNDU2Nzg5MDEy";
+    private static final long EXPIRATION_TIME = TimeUnit.HOURS.toMillis(1);
+
+    private final JwtService underTestService = new JwtService(SECRET_KEY, EXPIRATION_TIME, 100, new SimpleMeterRegistry());
+
+    @Test
+    void shouldBuildThePrincipalFromTheClaimsOfTheToken() {
+        // given
+        String token = underTestService.generateToken(new ReaderPrincipal(7L, "reader", true));
+
+        // when
+        ReaderPrincipal principal = underTestService.toPrincipal(underTestService.parseClaims(token));
+
+        // then
+        assertEquals(7L, principal.getId());
+        assertEquals("reader", principal.getUsername());
+        assertEquals(true, principal.isEnabled());
+    }
+
+    @Test
+    void shouldCarryTheDisabledStateOfTheReader() {
+        // given
+        String token = underTestService.generateToken(new ReaderPrincipal(7L, "reader", false));
+
+        // when
+        ReaderPrincipal principal = underTestService.toPrincipal(underTestService.parseClaims(token));
+
+        // then
+        assertFalse(principal.isEnabled());
+    }
+
+    @Test
+    void shouldGiveNoPrincipalForATokenWithoutTheReaderClaims() {
+        // given: a token issued before the rid/enabled claims, it still gets the lookup by username
+        String legacyToken = Jwts.builder()
+                .subject("reader")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .compact();
+
+        // when
+        ReaderPrincipal principal = underTestService.toPrincipal(underTestService.parseClaims(legacyToken));
+
+        // then
+        assertNull(principal);
+    }
+
+    @Test
+    void shouldReturnTheSameClaimsForTheSameTokenWithoutVerifyingItAgain() {
+        // given
+        String token = underTestService.generateToken(new ReaderPrincipal(7L, "reader", true));
+
+        // when
+        Claims firstClaims = underTestService.parseClaims(token);
+        Claims secondClaims = underTestService.parseClaims(token);
+
+        // then
+        assertSame(firstClaims, secondClaims);
+    }
+
+    @Test
+    void shouldRejectATokenSignedWithAnotherKey() {
+        // given: the same claims, so only the signature can tell them apart
+        String forgedToken = Jwts.builder()
+                .claim("rid", 7L)
+                .claim("enabled", true)
+                .subject("reader")
+                .expiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(
+                        "YW5vdGhlci1rZXktdGhhdC10aGUtc2VydmVyLWRvZXMtbm90LWtub3ctMTIzNDU2Nzg5MA==")))
+                .compact();
+
+        // when/then
+        assertThrows(SignatureException.class, () -> underTestService.parseClaims(forgedToken));
+    }
+
+    @Test
+    void shouldRejectAnExpiredToken() {
+        // given
+        JwtService shortLivedService = new JwtService(SECRET_KEY, -1000L, 100, new SimpleMeterRegistry());
+        String expiredToken = shortLivedService.generateToken(new ReaderPrincipal(7L, "reader", true));
+
+        // when/then
+        assertThrows(ExpiredJwtException.class, () -> underTestService.parseClaims(expiredToken));
+    }
+}
@@ -0,0 +1,187 @@
+package dev.bakr.library_manager.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.bakr.library_manager.exceptions.NotFoundException;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.utils.SecurityCheck;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mockStatic;
+
+/* The reader 1 has 250 books, so the export goes through 3 chunks (100, 100, 50). The reader 2 has a copy of the first
+book with its own quote. */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:export;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(LibraryExportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LibraryExportServiceTest {
+    private static final int BOOKS_COUNT = 250;
+
+    @Autowired
+    private LibraryExportService underTestService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockedStatic<SecurityCheck> mockedSecurity;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO readers (reader_id, email, is_enabled, password, username) VALUES "
+                                    + "(1, 'reader@example.com', true, 'password', 'reader'), "
+                                    + "(2, 'other@example.com', true, 'password', 'other')");
+        jdbcTemplate.update("INSERT INTO authors (author_id, full_name) VALUES (1, 'Some Author')");
+        List<Object[]> books = new ArrayList<>();
+        List<Object[]> readerBooks = new ArrayList<>();
+        for (long bookId = 1; bookId <= BOOKS_COUNT; bookId++) {
+            books.add(new Object[]{bookId, "Book " + bookId, "isbn" + bookId});
+            readerBooks.add(new Object[]{bookId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO books (book_id, title, isbn, pages_count, author_id) VALUES (?, ?, ?, 100, 1)",
+                                 books);
+        jdbcTemplate.batchUpdate("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                         + "VALUES (1, ?, 'unread', CURRENT_DATE)", readerBooks);
+        jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                    + "VALUES (2, 1, 'read', CURRENT_DATE)");
+        // A book of the first chunk and one of the last
+        jdbcTemplate.update("INSERT INTO quotes (quote_id, reader_id, book_id, text, text_hash, page_number) VALUES "
+                                    + "(1, 1, 1, 'First quote', 'hash1', 3), (2, 1, 1, 'Second quote', 'hash2', 5), "
+                                    + "(3, 1, 240, 'Late quote', 'hash3', 7), (4, 2, 1, 'Not mine', 'hash4', 1)");
+        jdbcTemplate.update("INSERT INTO words (word_id, reader_id, book_id, word_content, word_key, translation, "
+                                    + "related_sentence, page_number) VALUES (1, 1, 240, 'Ephemeral', 'ephemeral', "
+                                    + "'éphémère', 'An ephemeral thing.', 9)");
+
+        mockedSecurity = mockStatic(SecurityCheck.class);
+        mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(new ReaderPrincipal(1L, "reader", true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockedSecurity.close();
+        for (String table : new String[]{"words", "quotes", "readers_books", "books", "authors", "readers"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void shouldWriteOneLinePerBookCopyChunkByChunk() throws IOException {
+        // given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        FlushCountingOutputStream outputStream = new FlushCountingOutputStream();
+
+        // when
+        underTestService.exportReaderBooks().writeTo(outputStream);
+
+        // then: in the order of the book ids, with only this reader's quotes and words
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : outputStream.content().split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertEquals(BOOKS_COUNT, lines.size());
+        for (int i = 0; i < BOOKS_COUNT; i++) {
+            assertEquals(i + 1, lines.get(i).get("id").asLong());
+        }
+
+        JsonNode firstBook = lines.getFirst();
+        assertEquals("Book 1", firstBook.get("title").asText());
+        assertEquals("Some Author", firstBook.get("authorName").asText());
+        assertEquals("unread", firstBook.get("readingStatus").asText());
+        assertEquals(2, firstBook.get("quotes").size());
+        assertEquals("First quote", firstBook.get("quotes").get(0).get("text").asText());
+        assertEquals("Second quote", firstBook.get("quotes").get(1).get("text").asText());
+        assertEquals(0, firstBook.get("words").size());
+
+        JsonNode lateBook = lines.get(239);
+        assertEquals("Late quote", lateBook.get("quotes").get(0).get("text").asText());
+        assertEquals("Ephemeral", lateBook.get("words").get(0).get("wordContent").asText());
+        assertEquals(0, lines.get(1).get("quotes").size());
+
+        // one flush and one query for the quotes and the words per chunk, the books come through a single cursor (after
+        // the check of the reader)
+        assertEquals(3, outputStream.flushCount);
+        assertEquals(1 + 1 + 3 * 2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldWriteNothingForAnEmptyCollection() throws IOException {
+        // given
+        mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(new ReaderPrincipal(2L, "other", true));
+        jdbcTemplate.update("DELETE FROM quotes WHERE reader_id = 2");
+        jdbcTemplate.update("DELETE FROM readers_books WHERE reader_id = 2");
+        FlushCountingOutputStream outputStream = new FlushCountingOutputStream();
+
+        // when
+        underTestService.exportReaderBooks().writeTo(outputStream);
+
+        // then
+        assertEquals("", outputStream.content());
+        assertEquals(0, outputStream.flushCount);
+    }
+
+    @Test
+    void shouldRejectTheExportOfAReaderThatIsGone() {
+        // given
+        mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(new ReaderPrincipal(3L, "gone", true));
+
+        // when
+        NotFoundException ex = assertThrows(NotFoundException.class, () -> underTestService.exportReaderBooks());
+
+        // then
+        assertEquals("Looks like the reader with id: 3 has been removed from the database!", ex.getMessage());
+    }
+
+    private static class FlushCountingOutputStream extends FilterOutputStream {
+        private int flushCount;
+
+        FlushCountingOutputStream() {
+            super(new ByteArrayOutputStream());
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushCount++;
+            super.flush();
+        }
+
+        String content() {
+            return ((ByteArrayOutputStream) out).toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginAdmissionServiceTest {
+    private static final Authentication AUTHENTICATED = new UsernamePasswordAuthenticationToken("reader", null, List.of());
+    private static final Supplier<Authentication> CORRECT_PASSWORD = () -> AUTHENTICATED;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LoginAdmissionService underTestService;
+
+    @AfterEach
+    void tearDown() {
+        underTestService.shutdown();
+    }
+
+    @Test
+    void shouldRejectTheAttemptsOverTheBucketOfAnAddress() {
+        // given: 3 attempts per address, one more every 10s
+        underTestService = new LoginAdmissionService(meterRegistry, 2, 8, Duration.ofSeconds(5),
+                                                     3, Duration.ofSeconds(10), 100, Duration.ofSeconds(10), 1000);
+        for (int i = 0; i < 3; i++) {
+            assertSame(AUTHENTICATED, underTestService.authenticate("reader" + i, "10.0.0.1", CORRECT_PASSWORD));
+        }
+
+        // when
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                                                   () -> underTestService.authenticate("reader3", "10.0.0.1", CORRECT_PASSWORD));
+
+        // then: Retry-After is when the next attempt gets a token, another address has its own bucket
+        assertEquals("Too many login attempts from this address! Try again later.", ex.getMessage());
+        assertTrue(ex.getRetryAfterSeconds() >= 9 && ex.getRetryAfterSeconds() <= 10, "" + ex.getRetryAfterSeconds());
+        assertSame(AUTHENTICATED, underTestService.authenticate("reader3", "10.0.0.2", CORRECT_PASSWORD));
+        assertEquals(1.0, rejections("ip_rate"));
+    }
+
+    @Test
+    void shouldRejectTheAttemptsOverTheBucketOfAUsernameWhateverItsCase() {
+        // given: 2 attempts per username, from any address
+        underTestService = new LoginAdmissionService(meterRegistry, 2, 8, Duration.ofSeconds(5),
+                                                     100, Duration.ofSeconds(10), 2, Duration.ofSeconds(30), 1000);
+        underTestService.authenticate("reader", "10.0.0.1", CORRECT_PASSWORD);
+        underTestService.authenticate("READER", "10.0.0.2", CORRECT_PASSWORD);
+
+        // when
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                                                   () -> underTestService.authenticate("Reader", "10.0.0.3", CORRECT_PASSWORD));
+
+        // then
+        assertEquals("Too many login attempts for this account! Try again later.", ex.getMessage());
+        assertTrue(ex.getRetryAfterSeconds() >= 29 && ex.getRetryAfterSeconds() <= 30, "" + ex.getRetryAfterSeconds());
+        assertEquals(1.0, rejections("username_rate"));
+    }
+
+    @Test
+    void shouldGiveATokenBackEveryRefillPeriod() {
+        // given
+        underTestService = new LoginAdmissionService(meterRegistry, 2, 8, Duration.ofSeconds(5),
+                                                     1, Duration.ofMillis(200), 100, Duration.ofSeconds(10), 1000);
+        underTestService.authenticate("reader", "10.0.0.1", CORRECT_PASSWORD);
+        assertThrows(TooManyRequestsException.class,
+                     () -> underTestService.authenticate("reader", "10.0.0.1", CORRECT_PASSWORD));
+
+        // when/then
+        await().atMost(Duration.ofSeconds(2)).pollInterval(Duration.ofMillis(50)).ignoreExceptions()
+                .until(() -> underTestService.authenticate("reader", "10.0.0.1", CORRECT_PASSWORD) == AUTHENTICATED);
+    }
+
+    @Test
+    void shouldRejectAnAttemptWhenTheQueueIsFull() throws Exception {
+        // given: 1 verification thread busy and 1 attempt waiting in the queue of 1
+        underTestService = new LoginAdmissionService(meterRegistry, 1, 1, Duration.ofSeconds(5),
+                                                     100, Duration.ofSeconds(10), 100, Duration.ofSeconds(10), 1000);
+        CountDownLatch verificationStarted = new CountDownLatch(1);
+        CountDownLatch releaseVerification = new CountDownLatch(1);
+        Supplier<Authentication> slowVerification = () -> {
+            verificationStarted.countDown();
+            awaitQuietly(releaseVerification);
+            return AUTHENTICATED;
+        };
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<Authentication> running = clients.submit(
+                    () -> underTestService.authenticate("reader1", "10.0.0.1", slowVerification));
+            assertTrue(verificationStarted.await(5, TimeUnit.SECONDS));
+            Future<Authentication> queued = clients.submit(
+                    () -> underTestService.authenticate("reader2", "10.0.0.1", CORRECT_PASSWORD));
+            await().atMost(Duration.ofSeconds(5))
+                    .until(() -> meterRegistry.get("security.login.queue").gauge().value() == 1.0);
+
+            // when
+            TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                                                       () -> underTestService.authenticate("reader3", "10.0.0.1", CORRECT_PASSWORD));
+
+            // then: and the two others go through once the thread is free
+            assertEquals("The server is busy logging in other readers! Try again in a moment.", ex.getMessage());
+            assertEquals(1, ex.getRetryAfterSeconds());
+            assertEquals(1.0, rejections("queue_full"));
+            releaseVerification.countDown();
+            assertSame(AUTHENTICATED, running.get(5, TimeUnit.SECONDS));
+            assertSame(AUTHENTICATED, queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            releaseVerification.countDown();
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRejectAnAttemptThatWaitsLongerThanTheTimeout() {
+        // given
+        underTestService = new LoginAdmissionService(meterRegistry, 1, 8, Duration.ofMillis(200),
+                                                     100, Duration.ofSeconds(10), 100, Duration.ofSeconds(10), 1000);
+        CountDownLatch verificationInterrupted = new CountDownLatch(1);
+        Supplier<Authentication> stuckVerification = () -> {
+            try {
+                Thread.sleep(Duration.ofSeconds(30));
+            } catch (InterruptedException e) {
+                verificationInterrupted.countDown();
+            }
+            return AUTHENTICATED;
+        };
+
+        // when
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                                                   () -> underTestService.authenticate("reader", "10.0.0.1", stuckVerification));
+
+        // then: the verification is cancelled, so the thread is free for the next one
+        assertEquals(1, ex.getRetryAfterSeconds());
+        assertEquals(1.0, rejections("timeout"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> verificationInterrupted.getCount() == 0);
+        assertSame(AUTHENTICATED, underTestService.authenticate("reader", "10.0.0.1", CORRECT_PASSWORD));
+    }
+
+    @Test
+    void shouldRethrowTheFailureOfTheVerification() {
+        // given
+        underTestService = new LoginAdmissionService(meterRegistry, 1, 8, Duration.ofSeconds(5),
+                                                     100, Duration.ofSeconds(10), 100, Duration.ofSeconds(10), 1000);
+
+        // when/then: e.g., a wrong password, for the caller to handle as before
+        assertThrows(BadCredentialsException.class, () -> underTestService.authenticate("reader", "10.0.0.1", () -> {
+            throw new BadCredentialsException("Bad credentials");
+        }));
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("security.login.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MyUserDetailsServiceTest {
+    private static final ReaderPrincipal TOKEN_PRINCIPAL = new ReaderPrincipal(1L, "reader", true);
+
+    @Mock
+    private ReaderRepository readerRepository;
+
+    private MyUserDetailsService underTestService(boolean isRevocationCheckEnabled, Duration ttl) {
+        return new MyUserDetailsService(readerRepository, new SimpleMeterRegistry(), isRevocationCheckEnabled, ttl, 100);
+    }
+
+    @Test
+    void shouldLookTheReaderUpOncePerTtl() {
+        // given
+        MyUserDetailsService underTestService = underTestService(true, Duration.ofMinutes(1));
+        when(readerRepository.findById(1L)).thenReturn(Optional.of(reader("reader", true)));
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            assertTrue(underTestService.isStillActive(TOKEN_PRINCIPAL));
+        }
+
+        // then
+        verify(readerRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void shouldCutOffADisabledReaderOnceTheTtlIsOver() {
+        // given: the reader is disabled after their state was cached
+        MyUserDetailsService underTestService = underTestService(true, Duration.ofMillis(300));
+        when(readerRepository.findById(1L))
+                .thenReturn(Optional.of(reader("reader", true)))
+                .thenReturn(Optional.of(reader("reader", false)));
+        assertTrue(underTestService.isStillActive(TOKEN_PRINCIPAL));
+
+        // when/then: the token keeps working at most for the ttl (it's stale until then)
+        assertTrue(underTestService.isStillActive(TOKEN_PRINCIPAL));
+        await().atMost(Duration.ofSeconds(5)).pollInterval(Duration.ofMillis(50))
+                .until(() -> !underTestService.isStillActive(TOKEN_PRINCIPAL));
+        verify(readerRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldCutOffADisabledReaderRightAwayWhenEvicted() {
+        // given
+        MyUserDetailsService underTestService = underTestService(true, Duration.ofMinutes(1));
+        when(readerRepository.findById(1L))
+                .thenReturn(Optional.of(reader("reader", true)))
+                .thenReturn(Optional.of(reader("reader", false)));
+        assertTrue(underTestService.isStillActive(TOKEN_PRINCIPAL));
+
+        // when
+        underTestService.evictPrincipal(1L);
+
+        // then
+        assertFalse(underTestService.isStillActive(TOKEN_PRINCIPAL));
+    }
+
+    @Test
+    void shouldRejectTheTokenOfARemovedReaderAndRememberIt() {
+        // given
+        MyUserDetailsService underTestService = underTestService(true, Duration.ofMinutes(1));
+        when(readerRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // when/then
+        assertFalse(underTestService.isStillActive(TOKEN_PRINCIPAL));
+        assertFalse(underTestService.isStillActive(TOKEN_PRINCIPAL));
+        verify(readerRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void shouldRejectATokenIssuedForAnotherUsername() {
+        // given: the id was reused by another reader, or the username changed since
+        MyUserDetailsService underTestService = underTestService(true, Duration.ofMinutes(1));
+        when(readerRepository.findById(1L)).thenReturn(Optional.of(reader("renamed", true)));
+
+        // when/then
+        assertFalse(underTestService.isStillActive(TOKEN_PRINCIPAL));
+    }
+
+    @Test
+    void shouldTrustTheClaimsWhenTheRevocationCheckIsOff() {
+        // given
+        MyUserDetailsService underTestService = underTestService(false, Duration.ofMinutes(1));
+
+        // when/then
+        assertTrue(underTestService.isStillActive(TOKEN_PRINCIPAL));
+        assertFalse(underTestService.isStillActive(new ReaderPrincipal(1L, "reader", false)));
+        verifyNoInteractions(readerRepository);
+    }
+
+    private static Reader reader(String username, boolean isEnabled) {
+        return Reader.builder().id(1L).username(username).isEnabled(isEnabled).build();
+    }
+}
@@ -0,0 +1,244 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.repository.OrphanedCatalogRepository;
+import dev.bakr.library_manager.repository.OrphanedCatalogRepository.CatalogTable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/* orphaned_at comes from V14 and isn't mapped by the entities, so it's added to the tables that Hibernate creates. Chunks
+are 2 ids, and the grace period is 1h: a row "marked long ago" is stamped 2h back. */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orphans;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrphanedCatalogRepository.class, JobLeaseService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrphanCollectorTest {
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    @Autowired
+    private OrphanedCatalogRepository orphanedCatalogRepository;
+    @Autowired
+    private JobLeaseService jobLeaseService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private OrphanedCatalogRepository catalogStatements;
+    private BookCatalogCache bookCatalogCache;
+    private AuthorService authorService;
+    private SimpleMeterRegistry meterRegistry;
+    private OrphanCollector underTestCollector;
+
+    @BeforeEach
+    void setUp() {
+        for (String table : new String[]{"books", "authors", "categories", "publishers"}) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS orphaned_at timestamp(6)");
+        }
+        jdbcTemplate.update("INSERT INTO readers (reader_id, email, is_enabled, password, username) "
+                                    + "VALUES (1, 'reader@example.com', true, 'password', 'reader')");
+        jdbcTemplate.update("INSERT INTO authors (author_id, full_name) VALUES (1, 'Kept Author'), (2, 'Lone Author')");
+
+        catalogStatements = spy(orphanedCatalogRepository);
+        bookCatalogCache = mock(BookCatalogCache.class);
+        authorService = mock(AuthorService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        underTestCollector = new OrphanCollector(catalogStatements, jobLeaseService, bookCatalogCache, authorService,
+                                                 mock(CategoryService.class), mock(PublisherService.class),
+                                                 entityManagerFactory, meterRegistry, GRACE_PERIOD, 2,
+                                                 Duration.ofMinutes(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : new String[]{"readers_books", "books", "authors", "readers", "job_leases"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+    }
+
+    @Test
+    void shouldOnlyMarkTheOrphansOfTheFirstRun() {
+        // given: books 2-4 are in no collection (two chunks of ids), book 1 is
+        insertBook(1, 1);
+        insertBook(2, 1);
+        insertBook(3, 2);
+        insertBook(4, null);
+        jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                    + "VALUES (1, 1, 'unread', CURRENT_DATE)");
+
+        // when
+        underTestCollector.collect();
+
+        // then: marked, but within the grace period, so no book and no author is removed
+        assertNull(orphanedAtOf("books", 1));
+        assertNotNull(orphanedAtOf("books", 2));
+        assertNotNull(orphanedAtOf("books", 3));
+        assertNotNull(orphanedAtOf("books", 4));
+        assertEquals(4, countOf("books"));
+        assertEquals(2, countOf("authors"));
+        assertEquals(3.0, counter("catalog.orphans.marked", "books"));
+        assertEquals(0.0, counter("catalog.orphans.reclaimed", "books"));
+        verify(bookCatalogCache, never()).evict(any());
+    }
+
+    @Test
+    void shouldRemoveTheOrphansOnceTheGracePeriodIsOverAndMarkWhatTheyLetGoOf() {
+        // given: book 3 was marked long ago, book 2 only now
+        insertBook(1, 1);
+        insertBook(2, 1);
+        insertBook(3, 2);
+        jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                    + "VALUES (1, 1, 'unread', CURRENT_DATE)");
+        jdbcTemplate.update("UPDATE books SET orphaned_at = ? WHERE book_id = 3", LocalDateTime.now().minusHours(2));
+
+        // when
+        underTestCollector.collect();
+
+        // then: its author is used by no book anymore, it starts its own grace period
+        assertEquals(List.of(1L, 2L), jdbcTemplate.queryForList("SELECT book_id FROM books ORDER BY book_id", Long.class));
+        verify(bookCatalogCache, times(1)).evict("9780000000003");
+        assertEquals(1.0, counter("catalog.orphans.reclaimed", "books"));
+        assertNull(orphanedAtOf("authors", 1));
+        assertNotNull(orphanedAtOf("authors", 2));
+        assertEquals(2, countOf("authors"));
+
+        // when: the author's grace period is over too
+        jdbcTemplate.update("UPDATE authors SET orphaned_at = ? WHERE author_id = 2", LocalDateTime.now().minusHours(2));
+        underTestCollector.collect();
+
+        // then
+        assertEquals(List.of(1L), jdbcTemplate.queryForList("SELECT author_id FROM authors", Long.class));
+        verify(authorService, times(1)).forgetAuthors(List.of("Lone Author"));
+    }
+
+    @Test
+    void shouldUnmarkABookThatAReaderAddedBack() {
+        // given
+        insertBook(1, 1);
+        jdbcTemplate.update("UPDATE books SET orphaned_at = ? WHERE book_id = 1", LocalDateTime.now().minusHours(2));
+        jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                    + "VALUES (1, 1, 'unread', CURRENT_DATE)");
+
+        // when
+        underTestCollector.collect();
+
+        // then
+        assertEquals(1, countOf("books"));
+        assertNull(orphanedAtOf("books", 1));
+        verify(catalogStatements, never()).deleteOrphans(eq(CatalogTable.BOOKS), any(), any());
+    }
+
+    @Test
+    void shouldKeepAnOrphanThatIsReferencedAgainBetweenTheCheckAndTheDelete() {
+        // given: a reader adds the book right after the collector found it
+        insertBook(1, 1);
+        insertBook(2, 1);
+        jdbcTemplate.update("UPDATE books SET orphaned_at = ?", LocalDateTime.now().minusHours(2));
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) == CatalogTable.BOOKS) {
+                jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                            + "VALUES (1, 1, 'unread', CURRENT_DATE)");
+            }
+            return invocation.callRealMethod();
+        }).when(catalogStatements).deleteOrphans(any(), any(), any());
+
+        // when
+        underTestCollector.collect();
+
+        // then: the delete checks the references again, the kept book is unmarked and the other one is removed
+        assertEquals(List.of(1L), jdbcTemplate.queryForList("SELECT book_id FROM books", Long.class));
+        assertNull(orphanedAtOf("books", 1));
+        assertEquals(1.0, counter("catalog.orphans.reclaimed", "books"));
+    }
+
+    @Test
+    void shouldNotRunWhileAnotherNodeHoldsTheLease() {
+        // given
+        insertBook(1, 1);
+        jdbcTemplate.update("UPDATE books SET orphaned_at = ?", LocalDateTime.now().minusHours(2));
+        jdbcTemplate.update("INSERT INTO job_leases (job_name, owner, lease_until) VALUES ('orphan-collector', 'other-node', ?)",
+                            LocalDateTime.now().plusMinutes(10));
+
+        // when
+        underTestCollector.collect();
+
+        // then
+        assertEquals(1, countOf("books"));
+        verify(catalogStatements, never()).findMaxId(any());
+
+        // when: the other node's lease ran out
+        jdbcTemplate.update("UPDATE job_leases SET lease_until = ?", LocalDateTime.now().minusSeconds(1));
+        underTestCollector.collect();
+
+        // then: and the lease is released for whoever runs next
+        assertEquals(0, countOf("books"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_leases WHERE lease_until <= ?",
+                                                    Integer.class, LocalDateTime.now()));
+    }
+
+    @Test
+    void shouldMarkOnlyTheUnreferencedBooksOfADeletedAccount() {
+        // given
+        insertBook(1, 1);
+        insertBook(2, 1);
+        jdbcTemplate.update("INSERT INTO readers_books (reader_id, book_id, status, adding_date) "
+                                    + "VALUES (1, 1, 'unread', CURRENT_DATE)");
+
+        // when
+        underTestCollector.markBooksIfUnreferenced(List.of(1L, 2L));
+
+        // then
+        assertNull(orphanedAtOf("books", 1));
+        assertNotNull(orphanedAtOf("books", 2));
+    }
+
+    private void insertBook(long bookId, Integer authorId) {
+        jdbcTemplate.update("INSERT INTO books (book_id, title, isbn, pages_count, author_id) VALUES (?, 'Book', ?, 100, ?)",
+                            bookId, "978000000000" + bookId, authorId);
+    }
+
+    private LocalDateTime orphanedAtOf(String table, long id) {
+        String idColumn = table.substring(0, table.length() - 1) + "_id";
+        return jdbcTemplate.queryForObject("SELECT orphaned_at FROM " + table + " WHERE " + idColumn + " = ?",
+                                           LocalDateTime.class, id);
+    }
+
+    private int countOf(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private double counter(String name, String table) {
+        return meterRegistry.get(name).tag("table", table).counter().count();
+    }
+}
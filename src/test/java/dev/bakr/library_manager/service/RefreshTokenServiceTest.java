@@ -0,0 +1,219 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.exceptions.InvalidInputsException;
+import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.repository.RefreshTokenRepository;
+import dev.bakr.library_manager.service.RefreshTokenService.RotatedRefreshToken;
+import dev.bakr.library_manager.utils.Hashing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:refresh;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+        "security.jwt.refresh-expiration-time=600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RefreshTokenService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+    @Autowired
+    private RefreshTokenService underTestService;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Reader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = readerRepository.save(Reader.builder()
+                                               .username("reader")
+                                               .email("reader@example.com")
+                                               .password("password")
+                                               .isEnabled(true)
+                                               .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAllInBatch();
+        readerRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldReplaceTheTokenWithANewOneOfTheSameFamily() {
+        // given
+        String refreshToken = underTestService.issueRefreshToken(reader.getId());
+
+        // when
+        RotatedRefreshToken rotatedToken = underTestService.rotate(refreshToken);
+
+        // then
+        assertEquals(reader.getId(), rotatedToken.readerPrincipal().getId());
+        assertEquals("reader", rotatedToken.readerPrincipal().getUsername());
+        assertNotEquals(refreshToken, rotatedToken.refreshToken());
+        assertNotNull(refreshTokenRepository.findById(Hashing.sha256Hex(refreshToken)).orElseThrow().getReplacedAt());
+        assertEquals(familyOf(refreshToken), familyOf(rotatedToken.refreshToken()));
+    }
+
+    @Test
+    void shouldRevokeTheFamilyWhenAReplacedTokenIsPresentedAgain() {
+        // given: the token was used once, and its replacement once more
+        String stolenToken = underTestService.issueRefreshToken(reader.getId());
+        String secondToken = underTestService.rotate(stolenToken).refreshToken();
+        String latestToken = underTestService.rotate(secondToken).refreshToken();
+        String otherLoginToken = underTestService.issueRefreshToken(reader.getId());
+
+        // when
+        InvalidInputsException ex = assertThrows(InvalidInputsException.class, () -> underTestService.rotate(stolenToken));
+
+        // then: the revocation is committed even though the refresh failed, the other login isn't affected
+        assertEquals("The refresh token was already used! Login again.", ex.getMessage());
+        assertEquals(1, refreshTokenRepository.count());
+        assertThrows(InvalidInputsException.class, () -> underTestService.rotate(latestToken));
+        assertNotNull(underTestService.rotate(otherLoginToken).refreshToken());
+    }
+
+    @Test
+    void shouldLetOnlyOneOfTwoConcurrentRefreshesWithTheSameTokenThrough() throws Exception {
+        // given
+        String refreshToken = underTestService.issueRefreshToken(reader.getId());
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+
+        // when
+        List<Future<RotatedRefreshToken>> refreshes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                refreshes.add(threads.submit(() -> {
+                    barrier.await();
+                    return underTestService.rotate(refreshToken);
+                }));
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        // then: one gets a new token, the other one fails and revokes the family, the new token included
+        List<RotatedRefreshToken> rotatedTokens = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<RotatedRefreshToken> refresh : refreshes) {
+            try {
+                rotatedTokens.add(refresh.get());
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        assertEquals(1, rotatedTokens.size());
+        assertEquals(1, failures.size());
+        assertInstanceOf(InvalidInputsException.class, failures.getFirst());
+        assertEquals(0, refreshTokenRepository.count());
+        assertThrows(InvalidInputsException.class, () -> underTestService.rotate(rotatedTokens.getFirst().refreshToken()));
+    }
+
+    @Test
+    void shouldRejectAnExpiredToken() {
+        // given
+        String refreshToken = underTestService.issueRefreshToken(reader.getId());
+        jdbcTemplate.update("UPDATE refresh_tokens SET expires_at = ?", LocalDateTime.now().minusSeconds(1));
+
+        // when
+        InvalidInputsException ex = assertThrows(InvalidInputsException.class, () -> underTestService.rotate(refreshToken));
+
+        // then
+        assertEquals("The refresh token has expired! Login again.", ex.getMessage());
+    }
+
+    @Test
+    void shouldRejectTheTokenOfADisabledReader() {
+        // given
+        String refreshToken = underTestService.issueRefreshToken(reader.getId());
+        reader.setIsEnabled(false);
+        readerRepository.save(reader);
+
+        // when
+        InvalidInputsException ex = assertThrows(InvalidInputsException.class, () -> underTestService.rotate(refreshToken));
+
+        // then: and the token is used up
+        assertEquals("This account is no longer active! Login again.", ex.getMessage());
+        assertEquals(1, refreshTokenRepository.count());
+        assertNotNull(refreshTokenRepository.findById(Hashing.sha256Hex(refreshToken)).orElseThrow().getReplacedAt());
+    }
+
+    @Test
+    void shouldRejectAnUnknownToken() {
+        // when
+        InvalidInputsException ex = assertThrows(InvalidInputsException.class, () -> underTestService.rotate("unknown"));
+
+        // then
+        assertEquals("Invalid refresh token! Login again.", ex.getMessage());
+    }
+
+    @Test
+    void shouldRevokeTheWholeFamilyOnLogout() {
+        // given
+        String firstToken = underTestService.issueRefreshToken(reader.getId());
+        String latestToken = underTestService.rotate(firstToken).refreshToken();
+        String otherLoginToken = underTestService.issueRefreshToken(reader.getId());
+
+        // when
+        underTestService.revokeFamily(latestToken);
+
+        // then
+        assertThrows(InvalidInputsException.class, () -> underTestService.rotate(latestToken));
+        assertTrue(refreshTokenRepository.findById(Hashing.sha256Hex(firstToken)).isEmpty());
+        assertTrue(refreshTokenRepository.findById(Hashing.sha256Hex(otherLoginToken)).isPresent());
+    }
+
+    @Test
+    void shouldSweepOnlyTheExpiredTokens() {
+        // given
+        String expiredToken = underTestService.issueRefreshToken(reader.getId());
+        String validToken = underTestService.issueRefreshToken(reader.getId());
+        jdbcTemplate.update("UPDATE refresh_tokens SET expires_at = ? WHERE token_hash = ?",
+                            LocalDateTime.now().minusSeconds(1), Hashing.sha256Hex(expiredToken));
+
+        // when
+        underTestService.sweepExpired();
+
+        // then
+        assertTrue(refreshTokenRepository.findById(Hashing.sha256Hex(expiredToken)).isEmpty());
+        assertTrue(refreshTokenRepository.findById(Hashing.sha256Hex(validToken)).isPresent());
+    }
+
+    private String familyOf(String refreshToken) {
+        return refreshTokenRepository.findById(Hashing.sha256Hex(refreshToken)).orElseThrow().getFamilyId();
+    }
+}
@@ -0,0 +1,171 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.repository.RevokedTokenRepository;
+import dev.bakr.library_manager.utils.Hashing;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* Two services on the same table stand for two nodes, with a propagation delay of 1s */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:blacklist;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TokenBlacklistServiceTest {
+    private static final String SECRET_KEY = "Zm9yLXRlc3RzLW9ubHktbm90LXRoZS1yZWFsLWtleS1hdC1hbGwtMTIzNDU2Nzg5MDEy";
+    private static final Duration PROPAGATION_DELAY = Duration.ofSeconds(1);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final JwtService jwtService = new JwtService(SECRET_KEY, TimeUnit.HOURS.toMillis(1), 100,
+                                                         new SimpleMeterRegistry());
+    private TokenBlacklistService underTestNode;
+    private TokenBlacklistService otherNode;
+
+    @BeforeEach
+    void setUp() {
+        underTestNode = new TokenBlacklistService(revokedTokenRepository, new SimpleMeterRegistry(), PROPAGATION_DELAY, 100);
+        otherNode = new TokenBlacklistService(revokedTokenRepository, new SimpleMeterRegistry(), PROPAGATION_DELAY, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        revokedTokenRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldStoreTheJtiOfALoggedOutTokenUntilItExpires() {
+        // given
+        String token = jwtService.generateToken(new ReaderPrincipal(1L, "reader", true));
+        Claims claims = jwtService.parseClaims(token);
+
+        // when
+        underTestNode.blacklistToken(claims, token);
+
+        // then: the key is the jti, not the token
+        assertTrue(underTestNode.isTokenBlacklisted(claims, token));
+        assertEquals(List.of(claims.getId()), jdbcTemplate.queryForList("SELECT token_key FROM revoked_tokens", String.class));
+        LocalDateTime expiresAt = jdbcTemplate.queryForObject("SELECT expires_at FROM revoked_tokens", LocalDateTime.class);
+        assertTrue(Math.abs(Duration.between(expiresAt, LocalDateTime.now().plusHours(1)).toSeconds()) < 5, "" + expiresAt);
+    }
+
+    @Test
+    void shouldKeyATokenWithoutJtiByItsHash() {
+        // given: a token issued before the jti was added, and with no expiration
+        String legacyToken = Jwts.builder()
+                .subject("reader")
+                .issuedAt(new Date())
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .compact();
+        Claims claims = jwtService.parseClaims(legacyToken);
+
+        // when
+        underTestNode.blacklistToken(claims, legacyToken);
+
+        // then: kept for a day
+        assertEquals(List.of(Hashing.sha256Hex(legacyToken)),
+                     jdbcTemplate.queryForList("SELECT token_key FROM revoked_tokens", String.class));
+        LocalDateTime expiresAt = jdbcTemplate.queryForObject("SELECT expires_at FROM revoked_tokens", LocalDateTime.class);
+        assertTrue(Math.abs(Duration.between(expiresAt, LocalDateTime.now().plusHours(24)).toSeconds()) < 5, "" + expiresAt);
+        assertTrue(otherNode.isTokenBlacklisted(claims, legacyToken));
+    }
+
+    @Test
+    void shouldAcceptTheSameLogoutTwice() {
+        // given
+        String token = jwtService.generateToken(new ReaderPrincipal(1L, "reader", true));
+        Claims claims = jwtService.parseClaims(token);
+        underTestNode.blacklistToken(claims, token);
+
+        // when
+        otherNode.blacklistToken(claims, token);
+
+        // then
+        assertEquals(1, revokedTokenRepository.count());
+        assertTrue(otherNode.isTokenBlacklisted(claims, token));
+    }
+
+    @Test
+    void shouldSeeTheLogoutOfAnotherNodeWithinThePropagationDelay() {
+        // given: the other node has just checked the token, and caches that it isn't revoked
+        String token = jwtService.generateToken(new ReaderPrincipal(1L, "reader", true));
+        Claims claims = jwtService.parseClaims(token);
+        assertFalse(otherNode.isTokenBlacklisted(claims, token));
+
+        // when
+        underTestNode.blacklistToken(claims, token);
+
+        // then: a node that never saw the token finds it right away, the other one once its answer is stale
+        assertTrue(new TokenBlacklistService(revokedTokenRepository, new SimpleMeterRegistry(), PROPAGATION_DELAY, 100)
+                           .isTokenBlacklisted(claims, token));
+        assertFalse(otherNode.isTokenBlacklisted(claims, token));
+        await().atMost(Duration.ofSeconds(5)).pollInterval(Duration.ofMillis(50))
+                .until(() -> otherNode.isTokenBlacklisted(claims, token));
+    }
+
+    @Test
+    void shouldKeepARevokedTokenRevokedWithoutAskingTheTableAgain() {
+        // given
+        String token = jwtService.generateToken(new ReaderPrincipal(1L, "reader", true));
+        Claims claims = jwtService.parseClaims(token);
+        underTestNode.blacklistToken(claims, token);
+
+        // when: the row is gone (e.g., swept by another node)
+        revokedTokenRepository.deleteAllInBatch();
+
+        // then
+        assertTrue(underTestNode.isTokenBlacklisted(claims, token));
+    }
+
+    @Test
+    void shouldSweepOnlyTheExpiredRows() {
+        // given
+        String expiredToken = jwtService.generateToken(new ReaderPrincipal(1L, "reader", true));
+        String validToken = jwtService.generateToken(new ReaderPrincipal(2L, "other", true));
+        Claims expiredClaims = jwtService.parseClaims(expiredToken);
+        Claims validClaims = jwtService.parseClaims(validToken);
+        underTestNode.blacklistToken(expiredClaims, expiredToken);
+        underTestNode.blacklistToken(validClaims, validToken);
+        jdbcTemplate.update("UPDATE revoked_tokens SET expires_at = ? WHERE token_key = ?",
+                            LocalDateTime.now().minusSeconds(1), expiredClaims.getId());
+
+        // when
+        underTestNode.sweepExpired();
+
+        // then
+        assertEquals(List.of(validClaims.getId()),
+                     jdbcTemplate.queryForList("SELECT token_key FROM revoked_tokens", String.class));
+        assertEquals(1, underTestNode.getBlacklistSize());
+    }
+}
@@ -0,0 +1,185 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.exceptions.ExistsException;
+import dev.bakr.library_manager.mappers.WordMapper;
+import dev.bakr.library_manager.model.Reader;
+import dev.bakr.library_manager.model.ReaderBook;
+import dev.bakr.library_manager.model.ReaderBookId;
+import dev.bakr.library_manager.model.ReaderPrincipal;
+import dev.bakr.library_manager.model.Word;
+import dev.bakr.library_manager.repository.ReaderBookRepository;
+import dev.bakr.library_manager.repository.ReaderRepository;
+import dev.bakr.library_manager.repository.WordRepository;
+import dev.bakr.library_manager.requests.WordDtoRequest;
+import dev.bakr.library_manager.responses.WordDtoResponse;
+import dev.bakr.library_manager.utils.SecurityCheck;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WordServiceTest {
+    private static final Long BOOK_ID = 1L;
+
+    @Mock
+    private WordRepository wordRepository;
+    @Mock
+    private ReaderRepository readerRepository;
+    @Mock
+    private ReaderBookRepository readerBookRepository;
+    @Mock
+    private WordMapper wordMapper;
+    @Mock
+    private WordSuggestionIndex wordSuggestionIndex;
+
+    @InjectMocks
+    private WordService underTestService;
+
+    private MockedStatic<SecurityCheck> mockedSecurity;
+    private Reader inMemoryReader;
+    private ReaderBookId readerBookId;
+    private ReaderBook inMemoryReaderBook;
+    private WordDtoRequest wordDtoRequest;
+
+    @BeforeEach
+    void setUp() {
+        inMemoryReader = Reader.builder().id(1L).readerBooks(new ArrayList<>()).build();
+        readerBookId = ReaderBook.createCompositeKey(inMemoryReader.getId(), BOOK_ID);
+        inMemoryReaderBook = new ReaderBook();
+        inMemoryReaderBook.setId(readerBookId);
+        inMemoryReaderBook.setWords(new ArrayList<>());
+        wordDtoRequest = new WordDtoRequest("Serendipity ", "sérendipité", "A happy serendipity.", 12);
+
+        mockedSecurity = mockStatic(SecurityCheck.class);
+        mockedSecurity.when(SecurityCheck::getAuthenticatedReader).thenReturn(new ReaderPrincipal(inMemoryReader));
+        when(readerRepository.findById(inMemoryReader.getId())).thenReturn(Optional.of(inMemoryReader));
+        when(readerBookRepository.findById(readerBookId)).thenReturn(Optional.of(inMemoryReaderBook));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockedSecurity.close();
+    }
+
+    @Test
+    void shouldAddAWord() {
+        // given
+        Word newWord = word(null, "Serendipity ");
+        Word savedWord = word(7L, "Serendipity ");
+        WordDtoResponse expectedResponse = new WordDtoResponse(7L, "Serendipity ", "sérendipité", "A happy serendipity.", 12);
+        when(wordMapper.toEntity(wordDtoRequest)).thenReturn(newWord);
+        when(wordRepository.saveAndFlush(newWord)).thenReturn(savedWord);
+        when(wordMapper.toDto(newWord)).thenReturn(expectedResponse);
+
+        // when
+        WordDtoResponse actualResponse = underTestService.addWord(BOOK_ID, wordDtoRequest);
+
+        // then
+        assertSame(expectedResponse, actualResponse);
+        assertSame(inMemoryReaderBook, newWord.getReaderBook());
+        assertEquals(1, inMemoryReaderBook.getWords().size());
+        verify(wordSuggestionIndex, times(1)).wordSaved(any(), any());
+    }
+
+    @Test
+    void shouldRejectAWordThatTheBookCopyAlreadyHas() {
+        // given: the same word in another case, the unique index on the word key rejects it
+        Word newWord = word(null, "Serendipity ");
+        when(wordMapper.toEntity(wordDtoRequest)).thenReturn(newWord);
+        when(wordRepository.saveAndFlush(newWord)).thenThrow(violationOf("words.uk_words_word_key"));
+
+        // when
+        ExistsException ex = assertThrows(ExistsException.class, () -> underTestService.addWord(BOOK_ID, wordDtoRequest));
+
+        // then
+        assertEquals("You already have this word in this book copy!", ex.getMessage());
+        verifyNoInteractions(wordSuggestionIndex);
+        verify(readerBookRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotTurnTheViolationOfAnotherConstraintIntoAnExistsException() {
+        // given
+        Word newWord = word(null, "Serendipity ");
+        DataIntegrityViolationException foreignKeyViolation = violationOf("words.fk_reader_book_word");
+        when(wordMapper.toEntity(wordDtoRequest)).thenReturn(newWord);
+        when(wordRepository.saveAndFlush(newWord)).thenThrow(foreignKeyViolation);
+
+        // when
+        DataIntegrityViolationException ex = assertThrows(DataIntegrityViolationException.class,
+                                                          () -> underTestService.addWord(BOOK_ID, wordDtoRequest));
+
+        // then
+        assertSame(foreignKeyViolation, ex);
+        verifyNoInteractions(wordSuggestionIndex);
+    }
+
+    @Test
+    void shouldRejectAnUpdateToAWordThatTheBookCopyAlreadyHas() {
+        // given: word 8 is changed into a word that the book copy has as another word
+        Word wordToUpdate = word(8L, "Ephemeral");
+        when(wordRepository.findByIdAndReaderBookId(8L, readerBookId)).thenReturn(wordToUpdate);
+        when(wordRepository.saveAndFlush(wordToUpdate)).thenThrow(violationOf("words.uk_words_word_key"));
+
+        // when
+        ExistsException ex = assertThrows(ExistsException.class,
+                                          () -> underTestService.updateWord(BOOK_ID, 8L, wordDtoRequest));
+
+        // then
+        assertEquals("You already have this word in this book copy!", ex.getMessage());
+        assertEquals("serendipity", wordToUpdate.getWordKey());
+        verifyNoInteractions(wordSuggestionIndex);
+    }
+
+    @Test
+    void shouldRejectAnUpdateToAWordThatIsNotInTheBookCopy() {
+        // given
+        when(wordRepository.findByIdAndReaderBookId(8L, readerBookId)).thenReturn(null);
+
+        // when
+        ExistsException ex = assertThrows(ExistsException.class,
+                                          () -> underTestService.updateWord(BOOK_ID, 8L, wordDtoRequest));
+
+        // then
+        assertEquals("This word isn't found in this book copy to update it!", ex.getMessage());
+        verify(wordRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(wordSuggestionIndex);
+    }
+
+    private static Word word(Long id, String wordContent) {
+        Word word = new Word();
+        word.setId(id);
+        word.setWordContent(wordContent);
+        word.setTranslation("sérendipité");
+        word.setRelatedSentence("A happy serendipity.");
+        word.setPageNumber(12);
+        return word;
+    }
+
+    private static DataIntegrityViolationException violationOf(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement", new ConstraintViolationException(
+                "could not execute statement", new SQLException("Duplicate entry"), constraintName));
+    }
+}
@@ -0,0 +1,129 @@
+package dev.bakr.library_manager.service;
+
+import dev.bakr.library_manager.repository.WordRepository;
+import dev.bakr.library_manager.responses.WordSuggestionDtoResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WordSuggestionIndexTest {
+    private static final WordSuggestionDtoResponse TAKE_OFF = new WordSuggestionDtoResponse(1L, 1L, "take off", "décoller");
+    private static final WordSuggestionDtoResponse TAKEAWAY = new WordSuggestionDtoResponse(2L, 1L, "takeaway", "à emporter");
+
+    @Mock
+    private WordRepository wordRepository;
+
+    private WordSuggestionIndex underTestIndex;
+
+    // The committed words per reader, what findAllSuggestionsByReaderId reads
+    private final Map<Long, List<WordSuggestionDtoResponse>> wordsByReaderId = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        underTestIndex = new WordSuggestionIndex(wordRepository, new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(30));
+    }
+
+    private void givenTheRepositoryReadsTheCommittedWords() {
+        when(wordRepository.findAllSuggestionsByReaderId(anyLong())).thenAnswer(
+                invocation -> List.copyOf(wordsByReaderId.getOrDefault(invocation.<Long>getArgument(0), List.of())));
+    }
+
+    @Test
+    void shouldFindWordsByThePrefixOfTheirContentTranslationOrOneOfTheirWords() {
+        // given
+        givenTheRepositoryReadsTheCommittedWords();
+        wordsByReaderId.put(1L, List.of(TAKE_OFF, TAKEAWAY));
+
+        // when
+        List<WordSuggestionDtoResponse> byContent = underTestIndex.suggest(1L, "TAKE", 10);
+        List<WordSuggestionDtoResponse> byInnerWord = underTestIndex.suggest(1L, "of", 10);
+        List<WordSuggestionDtoResponse> byTranslation = underTestIndex.suggest(1L, "déc", 10);
+
+        // then
+        assertEquals(List.of(TAKE_OFF, TAKEAWAY), byContent);
+        assertEquals(List.of(TAKE_OFF), byInnerWord);
+        assertEquals(List.of(TAKE_OFF), byTranslation);
+        verify(wordRepository, times(1)).findAllSuggestionsByReaderId(1L);
+    }
+
+    @Test
+    void shouldNotCacheAnIndexThatAWordWasSavedWhileItWasLoading() {
+        // given: TAKEAWAY is committed (and announced) after the index read the words, before it was cached
+        when(wordRepository.findAllSuggestionsByReaderId(1L))
+                .thenAnswer(invocation -> {
+                    underTestIndex.wordSaved(1L, TAKEAWAY);
+                    return List.of(TAKE_OFF);
+                })
+                .thenReturn(List.of(TAKE_OFF, TAKEAWAY));
+
+        // when
+        underTestIndex.suggest(1L, "take", 10);
+        List<WordSuggestionDtoResponse> nextSuggestions = underTestIndex.suggest(1L, "take", 10);
+
+        // then: the second request built a new index instead of using the one missing TAKEAWAY
+        assertEquals(List.of(TAKE_OFF, TAKEAWAY), nextSuggestions);
+    }
+
+    /* The narrow window is between the index's last check of the change counter and the moment it's in the cache: a save
+    that lands there doesn't find the index to update it. The two threads are lined up on a barrier for every reader, so
+    the save keeps landing around the build. Whatever the interleaving, the index read afterwards has the saved word. */
+    @Test
+    void shouldNeverKeepAnIndexThatMissesAWordSavedDuringItsBuild() throws Exception {
+        // given
+        givenTheRepositoryReadsTheCommittedWords();
+        int readerCount = 2_000;
+        List<Long> readersMissingTheWord = new CopyOnWriteArrayList<>();
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+
+        try {
+            for (long readerId = 1; readerId <= readerCount; readerId++) {
+                long currentReaderId = readerId;
+                wordsByReaderId.put(currentReaderId, List.of(TAKE_OFF));
+                CyclicBarrier barrier = new CyclicBarrier(2);
+
+                // when
+                Future<?> build = threads.submit(() -> {
+                    barrier.await();
+                    return underTestIndex.suggest(currentReaderId, "take", 10);
+                });
+                Future<?> save = threads.submit(() -> {
+                    barrier.await();
+                    wordsByReaderId.put(currentReaderId, List.of(TAKE_OFF, TAKEAWAY));
+                    underTestIndex.wordSaved(currentReaderId, TAKEAWAY);
+                    return null;
+                });
+                build.get();
+                save.get();
+
+                if (!underTestIndex.suggest(currentReaderId, "take", 10).contains(TAKEAWAY)) {
+                    readersMissingTheWord.add(currentReaderId);
+                }
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        // then
+        assertEquals(List.of(), readersMissingTheWord);
+    }
+}
@@ -0,0 +1,92 @@
+package dev.bakr.library_manager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchQueryTest {
+    @Test
+    void shouldSplitTheInputIntoPhrasesAndWords() {
+        // when
+        SearchQuery underTestQuery = SearchQuery.parse("  \"not all those who   wander\" are lost ");
+
+        // then
+        assertEquals(List.of("not all those who wander"), underTestQuery.phrases());
+        assertEquals(List.of("are", "lost"), underTestQuery.words());
+        assertEquals(List.of("not all those who wander", "are", "lost"), underTestQuery.fragments());
+        assertFalse(underTestQuery.isEmpty());
+    }
+
+    @Test
+    void shouldTreatAQuotedSingleWordAsAWord() {
+        // when
+        SearchQuery underTestQuery = SearchQuery.parse("\"lost\"");
+
+        // then
+        assertEquals(List.of(), underTestQuery.phrases());
+        assertEquals(List.of("lost"), underTestQuery.words());
+    }
+
+    @Test
+    void shouldDropTheBooleanModeOperators() {
+        // when
+        SearchQuery underTestQuery = SearchQuery.parse("+cat -dog* (mouse) ~bird <fish> @2 wander-lust");
+
+        // then
+        assertEquals(List.of("cat", "dog", "mouse", "bird", "fish", "2", "wander", "lust"), underTestQuery.words());
+        assertEquals("+cat +dog +mouse +bird +fish +wander +lust", underTestQuery.toBooleanMode());
+    }
+
+    @Test
+    void shouldReadAnUnclosedQuoteAsWords() {
+        // when
+        SearchQuery underTestQuery = SearchQuery.parse("\"not closed");
+
+        // then
+        assertEquals(List.of(), underTestQuery.phrases());
+        assertEquals(List.of("not", "closed"), underTestQuery.words());
+    }
+
+    @Test
+    void shouldRequireEveryPhraseAndWordInBooleanMode() {
+        // when
+        String underTestBooleanMode = SearchQuery.parse("lost \"not all those who wander\"").toBooleanMode();
+
+        // then
+        assertEquals("+\"not all those who wander\" +lost", underTestBooleanMode);
+    }
+
+    @Test
+    void shouldNotRequireTheWordsTheFullTextIndexLeavesOut() {
+        // when: "is" is a stopword, "ok" is shorter than the smallest token
+        SearchQuery underTestQuery = SearchQuery.parse("\"the road\" is ok");
+
+        // then: the phrase keeps its stopword, InnoDB skips it inside a phrase
+        assertEquals("+\"the road\"", underTestQuery.toBooleanMode());
+        assertEquals(List.of("the road", "is", "ok"), underTestQuery.fragments());
+    }
+
+    @Test
+    void shouldHaveNoBooleanModeWhenEveryTermIsAStopword() {
+        // when
+        SearchQuery underTestQuery = SearchQuery.parse("\"to be\" OR it");
+
+        // then: the search falls back to LIKE
+        assertFalse(underTestQuery.isEmpty());
+        assertEquals("", underTestQuery.toBooleanMode());
+    }
+
+    @Test
+    void shouldBeEmptyWhenOnlyOperatorsAreTyped() {
+        // when
+        SearchQuery underTestQuery = SearchQuery.parse(" \"\" + - * \"()\" ");
+
+        // then
+        assertTrue(underTestQuery.isEmpty());
+        assertEquals("", underTestQuery.toBooleanMode());
+    }
+}
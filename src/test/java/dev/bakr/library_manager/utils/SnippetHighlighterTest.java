@@ -0,0 +1,97 @@
+package dev.bakr.library_manager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnippetHighlighterTest {
+    @Test
+    void shouldMarkWholeWordsOnlyWhateverTheirCase() {
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight("The Cat went back to education, cats too.",
+                                                               List.of("cat"));
+
+        // then
+        assertEquals("The <mark>Cat</mark> went back to education, cats too.", underTestSnippet);
+    }
+
+    @Test
+    void shouldMarkAtTheRightPlaceWhenLowercasingChangesTheLength() {
+        // given: "İ".toLowerCase() is two chars, so offsets found in the lowercased text are off by one per "İ"
+        String text = "İİİ İstanbul'da kedi, the cat";
+
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight(text, List.of("cat"));
+
+        // then
+        assertEquals("İİİ İstanbul&#39;da kedi, the <mark>cat</mark>", underTestSnippet);
+    }
+
+    @Test
+    void shouldMatchCaseInsensitivelyBeyondAscii() {
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight("ÉCOLE et école", List.of("école"));
+
+        // then: É and é are escaped like the rest of the text
+        assertEquals("<mark>&Eacute;COLE</mark> et <mark>&eacute;cole</mark>", underTestSnippet);
+    }
+
+    @Test
+    void shouldMarkAPhraseAcrossAnyWhitespaceAndPreferTheLongerFragment() {
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight("Not all those who\n  wander are lost.",
+                                                               List.of("wander", "not all those who wander", "lost"));
+
+        // then
+        assertEquals("<mark>Not all those who\n  wander</mark> are <mark>lost</mark>.", underTestSnippet);
+    }
+
+    @Test
+    void shouldTakeTheFragmentsLiterally() {
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight("a.b axb what? whatever", List.of("a.b", "what?"));
+
+        // then
+        assertEquals("<mark>a.b</mark> axb <mark>what?</mark> whatever", underTestSnippet);
+    }
+
+    @Test
+    void shouldEscapeTheTextAroundAndInsideTheMarks() {
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight("<b>cat</b> & <i>dog</i>", List.of("cat", "i"));
+
+        // then
+        assertEquals("&lt;b&gt;<mark>cat</mark>&lt;/b&gt; &amp; &lt;<mark>i</mark>&gt;dog&lt;/<mark>i</mark>&gt;",
+                     underTestSnippet);
+    }
+
+    @Test
+    void shouldCutAWindowAroundTheFirstMatch() {
+        // given
+        String text = "word ".repeat(100) + "needle " + "word ".repeat(100);
+
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight(text, List.of("needle"));
+
+        // then
+        assertTrue(underTestSnippet.startsWith("..."));
+        assertTrue(underTestSnippet.endsWith("..."));
+        assertTrue(underTestSnippet.contains("<mark>needle</mark>"));
+        assertEquals(200 + "<mark></mark>".length() + 2 * "...".length(), underTestSnippet.length());
+    }
+
+    @Test
+    void shouldStartAtTheBeginningWithoutFragments() {
+        // given
+        String text = "x".repeat(300);
+
+        // when
+        String underTestSnippet = SnippetHighlighter.highlight(text, List.of());
+
+        // then
+        assertEquals("x".repeat(200) + "...", underTestSnippet);
+    }
+}
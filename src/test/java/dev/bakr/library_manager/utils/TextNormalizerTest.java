@@ -0,0 +1,105 @@
+package dev.bakr.library_manager.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class TextNormalizerTest {
+    @Test
+    void shouldCollapseTheWhitespaceTrimAndLowercase() {
+        // when
+        String normalizedText = TextNormalizer.normalize("  Not ALL those\twho\r\n\n wander  ");
+
+        // then
+        assertEquals("not all those who wander", normalizedText);
+    }
+
+    @Test
+    void shouldTreatUnicodeWhitespaceAsWhitespace() {
+        // when
+        String normalizedText = TextNormalizer.normalize("　Non breaking space ");
+
+        // then
+        assertEquals("non breaking space", normalizedText);
+    }
+
+    @Test
+    void shouldKeepTheAccents() {
+        // when
+        String normalizedText = TextNormalizer.normalize("ÉCOLE  Crème brûlée");
+
+        // then
+        assertEquals("école crème brûlée", normalizedText);
+    }
+
+    @Test
+    void shouldLowercaseOneCodePointAtATimeLikeSql() {
+        // when
+        String dottedCapitalI = TextNormalizer.normalize("İstanbul");
+        String finalSigma = TextNormalizer.normalize("ΟΔΟΣ");
+        String outsideTheBmp = TextNormalizer.normalize("𐐀 😀");
+
+        // then: "i" and σ, where String.toLowerCase() gives "i" + a combining dot and ς
+        assertEquals("istanbul", dottedCapitalI);
+        assertEquals("οδοσ", finalSigma);
+        assertEquals("𐐨 😀", outsideTheBmp);
+    }
+
+    @Test
+    void shouldGiveTheSameHashToTextsThatOnlyDifferInCaseOrWhitespace() {
+        // when
+        String hash = TextNormalizer.contentHash("Être ou ne pas être");
+        String hashOfTheSameText = TextNormalizer.contentHash("  ÊTRE\tou ne   PAS être\n");
+        String hashOfAnotherText = TextNormalizer.contentHash("Etre ou ne pas etre");
+
+        // then
+        assertEquals(hash, hashOfTheSameText);
+        assertNotEquals(hash, hashOfAnotherText);
+    }
+
+    @Test
+    void shouldHashTheUtf8BytesOfTheNormalizedText() {
+        // when
+        String hash = TextNormalizer.contentHash(" Café ");
+
+        // then: what SHA2('café', 256) gives in SQL
+        assertEquals("850f7dc43910ff890f8879c0ed26fe697c93a067ad93a7d50f466a7028a9bf4e", hash);
+    }
+
+    @Test
+    void shouldGiveAWordTheSameKeyInEveryUnicodeForm() {
+        // when
+        String composedKey = TextNormalizer.wordKey("Résumé");
+        String decomposedKey = TextNormalizer.wordKey("Re\u0301sume\u0301");
+        String fullWidthKey = TextNormalizer.wordKey("ＲＥＳＵＭＥ");
+        String ligatureKey = TextNormalizer.wordKey("ﬁnance");
+
+        // then
+        assertEquals("résumé", composedKey);
+        assertEquals("résumé", decomposedKey);
+        assertEquals("resume", fullWidthKey);
+        assertEquals("finance", ligatureKey);
+    }
+
+    @Test
+    void shouldGiveAWordTheSameKeyInAnotherCaseOrWithExtraSpaces() {
+        // when
+        String key = TextNormalizer.wordKey("Take off");
+        String keyOfTheSameWord = TextNormalizer.wordKey(" TAKE\u3000 OFF ");
+
+        // then
+        assertEquals("take off", key);
+        assertEquals(key, keyOfTheSameWord);
+    }
+
+    @Test
+    void shouldKeepTheAccentsInTheKey() {
+        // when
+        String keyWithAccents = TextNormalizer.wordKey("résumé");
+        String keyWithoutAccents = TextNormalizer.wordKey("resume");
+
+        // then: the words are different (and the column is compared byte for byte, see V13)
+        assertNotEquals(keyWithAccents, keyWithoutAccents);
+    }
+}